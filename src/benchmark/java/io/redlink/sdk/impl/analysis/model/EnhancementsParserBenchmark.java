@@ -0,0 +1,213 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.redlink.sdk.impl.analysis.AnalysisRequest.OutputFormat;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory.ParserType;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Model;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of parsing the same Enhancement Structure from the different wire formats. Run it with:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=io.redlink.sdk.impl.analysis.model.EnhancementsParserBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EnhancementsParserBenchmark {
+
+    private static final String TEST_FILE = "/enhancements.ttl";
+
+    private static final String NAMESPACE = "urn:enhancement:";
+
+    /**
+     * Number of copies of the sample structure included in the response
+     */
+    @Param({"10", "1000"})
+    public int copies;
+
+    private byte[] turtle;
+
+    private byte[] rdfjson;
+
+    private byte[] jsonld;
+
+    @Setup
+    public void setUp() throws Exception {
+        final Model model = replicate(load(), copies);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Rio.write(model, out, RDFFormat.TURTLE);
+        turtle = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        Rio.write(model, out, RDFFormat.RDFJSON);
+        rdfjson = out.toByteArray();
+
+        out = new ByteArrayOutputStream();
+        writeJSONLD(model, out);
+        jsonld = out.toByteArray();
+    }
+
+    @Benchmark
+    public Enhancements turtleSparql() throws Exception {
+        return EnhancementsParserFactory.createParser(response(turtle, RDFFormat.TURTLE.getDefaultMIMEType()), ParserType.SPARQL).createEnhancements();
+    }
+
+    @Benchmark
+    public Enhancements turtleModel() throws Exception {
+        return EnhancementsParserFactory.createParser(response(turtle, RDFFormat.TURTLE.getDefaultMIMEType()), ParserType.MODEL).createEnhancements();
+    }
+
+    @Benchmark
+    public Enhancements rdfjson() throws Exception {
+        return EnhancementsParserFactory.createParser(response(rdfjson, OutputFormat.RDFJSON.value().toString())).createEnhancements();
+    }
+
+    @Benchmark
+    public Enhancements jsonld() throws Exception {
+        return EnhancementsParserFactory.createParser(response(jsonld, OutputFormat.JSONLD.value().toString())).createEnhancements();
+    }
+
+    private static HttpResponse response(byte[] content, String mimeType) {
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        response.setEntity(new ByteArrayEntity(content, ContentType.create(mimeType, "UTF-8")));
+        return response;
+    }
+
+    private static Model load() throws Exception {
+        final InputStream in = EnhancementsParserBenchmark.class.getResourceAsStream(TEST_FILE);
+        try {
+            return Rio.parse(in, NAMESPACE, RDFFormat.TURTLE);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Copies the annotations of the sample structure, with their own URIs and selections, so they
+     * are not merged by the parsers
+     */
+    private static Model replicate(Model sample, int copies) {
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+        final URI start = vf.createURI(FISE.NAMESPACE, "start");
+        final URI end = vf.createURI(FISE.NAMESPACE, "end");
+        final Model model = new LinkedHashModel();
+        for (int i = 0; i < copies; i++) {
+            for (Statement st : sample) {
+                final Resource subject = (Resource) rename(st.getSubject(), i, vf);
+                Value object = rename(st.getObject(), i, vf);
+                if (start.equals(st.getPredicate()) || end.equals(st.getPredicate())) {
+                    object = vf.createLiteral(String.valueOf(((Literal) object).intValue() + i * 100), XMLSchema.INT);
+                }
+                model.add(subject, st.getPredicate(), object);
+            }
+        }
+        return model;
+    }
+
+    private static Value rename(Value value, int copy, ValueFactory vf) {
+        if (value instanceof URI && value.stringValue().startsWith(NAMESPACE)) {
+            return vf.createURI(NAMESPACE + copy + "-" + ((URI) value).getLocalName());
+        }
+        return value;
+    }
+
+    /**
+     * Writes the model as expanded JSON-LD (there is no JSON-LD writer available)
+     */
+    private static void writeJSONLD(Model model, ByteArrayOutputStream out) throws IOException {
+        final JsonGenerator generator = new JsonFactory().createGenerator(out);
+        generator.writeStartArray();
+        for (Resource subject : model.subjects()) {
+            generator.writeStartObject();
+            generator.writeStringField("@id", subject.stringValue());
+            for (URI predicate : model.filter(subject, null, null).predicates()) {
+                generator.writeArrayFieldStart(predicate.stringValue());
+                for (Value object : model.filter(subject, predicate, null).objects()) {
+                    generator.writeStartObject();
+                    if (object instanceof Literal) {
+                        final Literal literal = (Literal) object;
+                        generator.writeStringField("@value", literal.getLabel());
+                        if (literal.getLanguage() != null) {
+                            generator.writeStringField("@language", literal.getLanguage());
+                        } else if (literal.getDatatype() != null) {
+                            generator.writeStringField("@type", literal.getDatatype().stringValue());
+                        }
+                    } else {
+                        generator.writeStringField("@id", object.stringValue());
+                    }
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.close();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include(EnhancementsParserBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
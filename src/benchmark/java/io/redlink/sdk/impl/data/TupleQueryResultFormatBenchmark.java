@@ -0,0 +1,164 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResultHandlerBase;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.impl.TupleQueryResultImpl;
+import org.openrdf.query.resultio.QueryResultIO;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.query.resultio.TupleQueryResultParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of decoding the same tuple query results from the different wire formats. Run it with:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=io.redlink.sdk.impl.data.TupleQueryResultFormatBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TupleQueryResultFormatBenchmark {
+
+    private static final String NAMESPACE = "http://example.org/resource/";
+
+    private static final Closeable NO_CONNECTION = new Closeable() {
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Number of solutions of the results
+     */
+    @Param({"1000", "100000"})
+    public int solutions;
+
+    private byte[] binary;
+
+    private byte[] tsv;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+        final List<BindingSet> results = new ArrayList<>(solutions);
+        for (int i = 0; i < solutions; i++) {
+            final MapBindingSet solution = new MapBindingSet(3);
+            solution.addBinding("s", vf.createURI(NAMESPACE, "r" + i));
+            solution.addBinding("label", vf.createLiteral("Resource number " + i, "en"));
+            solution.addBinding("rank", vf.createLiteral(String.valueOf(i), XMLSchema.INT));
+            results.add(solution);
+        }
+        binary = write(results, TupleQueryResultFormat.BINARY);
+        tsv = write(results, TupleQueryResultFormat.TSV);
+        json = write(results, TupleQueryResultFormat.JSON);
+    }
+
+    @Benchmark
+    public int binary() throws Exception {
+        return parse(binary, TupleQueryResultFormat.BINARY);
+    }
+
+    @Benchmark
+    public int tsv() throws Exception {
+        return parse(tsv, TupleQueryResultFormat.TSV);
+    }
+
+    @Benchmark
+    public int json() throws Exception {
+        return parse(json, TupleQueryResultFormat.JSON);
+    }
+
+    @Benchmark
+    public int jsonCursor() throws Exception {
+        final TupleQueryResultCursor cursor = new TupleQueryResultCursor(new ByteArrayInputStream(json), NO_CONNECTION);
+        try {
+            int count = 0;
+            while (cursor.hasNext()) {
+                cursor.next();
+                count++;
+            }
+            return count;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static int parse(byte[] results, TupleQueryResultFormat format) throws Exception {
+        final SolutionCounter counter = new SolutionCounter();
+        final TupleQueryResultParser parser = QueryResultIO.createParser(format, ValueFactoryImpl.getInstance());
+        parser.setQueryResultHandler(counter);
+        parser.parseQueryResult(new ByteArrayInputStream(results));
+        return counter.count;
+    }
+
+    private static byte[] write(List<BindingSet> results, TupleQueryResultFormat format) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        QueryResultIO.write(new TupleQueryResultImpl(Arrays.asList("s", "label", "rank"), results), format, out);
+        return out.toByteArray();
+    }
+
+    private static class SolutionCounter extends TupleQueryResultHandlerBase {
+
+        private int count;
+
+        @Override
+        public void handleSolution(BindingSet solution) {
+            count++;
+        }
+
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include(TupleQueryResultFormatBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -13,18 +13,31 @@
  */
 package io.redlink.sdk;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.redlink.sdk.impl.analysis.AnalysisRequest;
+import io.redlink.sdk.impl.analysis.EnhancementResult;
 import io.redlink.sdk.impl.analysis.model.Enhancements;
+import io.redlink.sdk.impl.data.BatchingUpdateConfig;
+import io.redlink.sdk.impl.data.BatchingUpdateWriter;
+import io.redlink.sdk.impl.data.BulkImportConfig;
+import io.redlink.sdk.impl.data.StatementLoader;
+import io.redlink.sdk.impl.data.StatementLoaderConfig;
 import io.redlink.sdk.impl.data.model.LDPathResult;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Iterator;
 
 import org.apache.marmotta.client.model.sparql.SPARQLResult;
 import org.openrdf.model.Model;
+import org.openrdf.model.Statement;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.TupleQueryResultHandler;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 
 /**
@@ -42,9 +55,9 @@ public interface RedLink extends Serializable {
 
     /**
      * RedLink Analysis API. Any implementation of this interface must have a constructor that receives a {@link Credentials}
-     * object which will be used for each service request
+     * object which will be used for each service request. Clients must be {@link #close() closed} when no longer needed
      */
-    interface Analysis extends Serializable {
+    interface Analysis extends Serializable, Closeable {
 
         String PATH = "analysis";
 
@@ -88,13 +101,54 @@ public interface RedLink extends Serializable {
          */
         <T> T enhance(AnalysisRequest request, Class<T> responseType);
 
+        /**
+         * Performs asynchronously an analysis of the content included in the request. The calling thread is not blocked
+         * while waiting for the response, so many analysis can be in-flight at the same time sharing the same connection pool
+         *
+         * @param request {@link AnalysisRequest} containing the request parameters and the content to be enhanced
+         * @return future Simplified RedLink Enhancement Structure
+         */
+        ListenableFuture<Enhancements> enhanceAsync(AnalysisRequest request);
+
+        /**
+         * Performs the analysis of a large text content by splitting it on sentence boundaries into chunks of at most
+         * <code>chunkSize</code> characters, which are analyzed in parallel. The results are merged back into a single
+         * {@link Enhancements} object, with the selections at their offsets in the whole content
+         *
+         * @param request   {@link AnalysisRequest} containing the request parameters and the plain text content to be enhanced
+         * @param chunkSize maximum number of characters of each chunk
+         * @return Simplified RedLink Enhancement Structure
+         */
+        Enhancements enhanceChunked(AnalysisRequest request, int chunkSize);
+
+        /**
+         * Analyzes a batch of requests, keeping as many of them in-flight as connections per route are available in the
+         * pool. Results are returned in the same order as the requests; see {@link #enhanceAll(Iterable, int, boolean)}
+         *
+         * @param requests {@link AnalysisRequest}s to be enhanced
+         * @return single-use iterator over the results, one per request
+         */
+        Iterator<EnhancementResult> enhanceAll(Iterable<AnalysisRequest> requests);
+
+        /**
+         * Analyzes a batch of requests, keeping at most <code>parallelism</code> of them in-flight (never more than the
+         * connections per route of the pool). Requests are pulled lazily as results are consumed, and a request that fails
+         * is reported as an {@link EnhancementResult} carrying the error instead of aborting the whole batch
+         *
+         * @param requests    {@link AnalysisRequest}s to be enhanced
+         * @param parallelism maximum number of concurrent requests
+         * @param ordered     true to get the results in the order of the requests, false to get them as they complete
+         * @return single-use iterator over the results, one per request
+         */
+        Iterator<EnhancementResult> enhanceAll(Iterable<AnalysisRequest> requests, int parallelism, boolean ordered);
+
     }
 
     /**
      * RedLink LinkedData API. Any implementation of this interface must have a constructor that receives a {@link Credentials}
-     * object which will be used for each service request
+     * object which will be used for each service request. Clients must be {@link #close() closed} when no longer needed
      */
-    interface Data extends Serializable {
+    interface Data extends Serializable, Closeable {
 
         String PATH = "data";
 
@@ -114,7 +168,8 @@ public interface RedLink extends Serializable {
 
         /**
          * Import an RDF {@link Model} into the selected Dataset. The Dataset must exist at the user RedLink account and
-         * must be configured for the user's RedLink application used in the request.
+         * must be configured for the user's RedLink application used in the request. The data is sent in the preferred
+         * wire format of the client supported by the endpoint.
          *
          * @param data    RDF {@link Model} to be imported
          * @param dataset Name of the dataset where the data will be imported
@@ -136,6 +191,19 @@ public interface RedLink extends Serializable {
          */
         boolean importDataset(Model data, String dataset, boolean cleanBefore) throws RDFHandlerException;
 
+        /**
+         * Import an RDF {@link Model} into the selected Dataset, serialized on the wire using the passed {@link RDFFormat}.
+         * The model is streamed to the server while serialized, so no serialized copy of it is kept in memory. Line-based
+         * formats, such as {@link RDFFormat#NTRIPLES}, and {@link RDFFormat#BINARY} are cheaper to serialize and parse than Turtle
+         *
+         * @param data        RDF {@link Model} to be imported
+         * @param dataset     Name of the dataset where the data will be imported
+         * @param cleanBefore Flag indicating if the dataset must be cleaned before
+         * @param format      {@link RDFFormat} used to transfer the data
+         * @return Flag indicating if the importation has been performed successfully
+         */
+        boolean importDataset(Model data, String dataset, boolean cleanBefore, RDFFormat format);
+
         /**
          * Import the Model contained in the passed {@link File} into the selected Dataset. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request
@@ -160,6 +228,32 @@ public interface RedLink extends Serializable {
          */
         boolean importDataset(File file, String dataset, boolean cleanBefore) throws FileNotFoundException;
 
+        /**
+         * Import the RDF contained in the passed {@link File} into the selected Dataset, splitting it in partitions
+         * aligned to statements which are uploaded concurrently, and retried independently. N-Triples, N-Quads and
+         * Turtle files are supported; blank node labels are scoped to each partition. If the configuration has a
+         * checkpoint file, the partitions imported are recorded there, and importing the same file again only
+         * uploads the missing ones
+         *
+         * @param file    {@link File} containing the RDF to be imported
+         * @param dataset Name of the dataset where the data will be imported
+         * @param config  partitioning, concurrency and checkpoint settings
+         * @return Flag indicating if all the partitions have been imported successfully
+         * @throws FileNotFoundException
+         */
+        boolean importDataset(File file, String dataset, BulkImportConfig config) throws FileNotFoundException;
+
+        /**
+         * Import the statements into the selected Dataset as they are iterated, serialized in chunks which are sent
+         * concurrently, so the statements do not need to be held in memory. The Dataset must exist at the user RedLink
+         * account and must be configured for the user's RedLink application used in the request
+         *
+         * @param statements {@link Iterator} of the statements to be imported
+         * @param dataset    Name of the dataset where the data will be imported
+         * @return Flag indicating if the importation has been performed successfully
+         */
+        boolean importDataset(Iterator<? extends Statement> statements, String dataset);
+
         /**
          * Import the Model contained in the passed {@link InputStream} into the selected Dataset. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request
@@ -193,6 +287,15 @@ public interface RedLink extends Serializable {
          */
         Model exportDataset(String dataset);
 
+        /**
+         * Export the user dataset at his RedLink application, streaming the statements to the {@link RDFHandler} as they
+         * are parsed from the response, so the dataset does not need to be materialized in memory
+         *
+         * @param dataset Name of the dataset at user's RedLink application to be exported
+         * @param handler {@link RDFHandler} receiving the statements of the dataset
+         */
+        void exportDataset(String dataset, RDFHandler handler);
+
         /**
          * Clean (delete all the data) user's dataset. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request
@@ -220,6 +323,40 @@ public interface RedLink extends Serializable {
          */
         Model getResource(String resource, String dataset);
 
+        /**
+         * Get resource data by its URI, streaming the statements to the {@link RDFHandler}
+         *
+         * @param resource URI (identifier) of the resource
+         * @param handler  {@link RDFHandler} receiving the statements of the resource (none if the resource is not found)
+         */
+        void getResource(String resource, RDFHandler handler);
+
+        /**
+         * Get resource data by its URI from the user dataset passed by parameter, streaming the statements to the {@link RDFHandler}
+         *
+         * @param resource URI (identifier) of the resource
+         * @param dataset  Name of the dataset at user's RedLink application where the resource will be lookup
+         * @param handler  {@link RDFHandler} receiving the statements of the resource (none if the resource is not found)
+         */
+        void getResource(String resource, String dataset, RDFHandler handler);
+
+        /**
+         * Get asynchronously resource data by its URI as RDF {@link Model}
+         *
+         * @param resource URI (identifier) of the resource
+         * @return future {@link Model} representing the resource and all its properties (empty if the resource is not found)
+         */
+        ListenableFuture<Model> getResourceAsync(String resource);
+
+        /**
+         * Get asynchronously resource data by its URI as RDF {@link Model} from the user dataset passed by parameter
+         *
+         * @param resource URI (identifier) of the resource
+         * @param dataset  Name of the dataset at user's RedLink application where the resource will be lookup
+         * @return future {@link Model} representing the resource and all its properties (empty if the resource is not found)
+         */
+        ListenableFuture<Model> getResourceAsync(String resource, String dataset);
+
         /**
          * Import a resource represented by an RDF {@link Model} into the selected Dataset. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request.
@@ -244,6 +381,19 @@ public interface RedLink extends Serializable {
          */
         boolean importResource(String resource, Model data, String dataset, boolean cleanBefore);
 
+        /**
+         * Import a resource represented by an RDF {@link Model} into the selected Dataset, serialized on the wire
+         * using the passed {@link RDFFormat}
+         *
+         * @param resource    URI (identifier) of the resource
+         * @param data        Resource data as RDF {@link Model}
+         * @param dataset     Name of the dataset at user's RedLink application where the resource will be imported
+         * @param cleanBefore Flag indicating if the resource must be deleted before
+         * @param format      {@link RDFFormat} used to transfer the data
+         * @return Flag indicating if the importation has been performed successfully
+         */
+        boolean importResource(String resource, Model data, String dataset, boolean cleanBefore, RDFFormat format);
+
         /**
          * Delete a Resource identified by its URI in the user dataset passed by parameter. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request
@@ -286,6 +436,63 @@ public interface RedLink extends Serializable {
         @Deprecated
         SPARQLResult sparqlSelect(String query);
 
+        /**
+         * Execute asynchronously a SPARQL tuple query using the dataset passed by paramater as context
+         *
+         * @param query   SPARQL tuple query to be executed
+         * @param dataset Name of the dataset at user's RedLink application where the query will be executed
+         * @return future result of the query as {@link SPARQLResult} object
+         */
+        ListenableFuture<SPARQLResult> sparqlTupleQueryAsync(String query, String dataset);
+
+        /**
+         * Execute asynchronously a SPARQL tuple query using as context all the configured datasets at user's RedLink application
+         *
+         * @param query SPARQL tuple query to be executed
+         * @return future result of the query as {@link SPARQLResult} object
+         */
+        ListenableFuture<SPARQLResult> sparqlTupleQueryAsync(String query);
+
+        /**
+         * Execute a SPARQL tuple query using the dataset passed by paramater as context, streaming the resulting
+         * solutions to the {@link TupleQueryResultHandler} as they are parsed from the response
+         *
+         * @param query   SPARQL tuple query to be executed
+         * @param dataset Name of the dataset at user's RedLink application where the query will be executed
+         * @param handler {@link TupleQueryResultHandler} receiving the solutions of the result
+         */
+        void sparqlTupleQuery(String query, String dataset, TupleQueryResultHandler handler);
+
+        /**
+         * Execute a SPARQL tuple query using as context all the configured datasets at user's RedLink application,
+         * streaming the resulting solutions to the {@link TupleQueryResultHandler} as they are parsed from the response
+         *
+         * @param query   SPARQL tuple query to be executed
+         * @param handler {@link TupleQueryResultHandler} receiving the solutions of the result
+         */
+        void sparqlTupleQuery(String query, TupleQueryResultHandler handler);
+
+        /**
+         * Execute a SPARQL tuple query using the dataset passed by paramater as context, returning a cursor that
+         * lazily parses the solutions from the response. The cursor holds a connection until fully iterated or
+         * closed, so it must always be closed
+         *
+         * @param query   SPARQL tuple query to be executed
+         * @param dataset Name of the dataset at user's RedLink application where the query will be executed
+         * @return {@link TupleQueryResult} cursor over the solutions of the result
+         */
+        TupleQueryResult sparqlTupleQueryCursor(String query, String dataset);
+
+        /**
+         * Execute a SPARQL tuple query using as context all the configured datasets at user's RedLink application,
+         * returning a cursor that lazily parses the solutions from the response. The cursor holds a connection until
+         * fully iterated or closed, so it must always be closed
+         *
+         * @param query SPARQL tuple query to be executed
+         * @return {@link TupleQueryResult} cursor over the solutions of the result
+         */
+        TupleQueryResult sparqlTupleQueryCursor(String query);
+
         /**
          * Execute a SPARQL graph query using the dataset passed by paramater as context. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request
@@ -304,6 +511,42 @@ public interface RedLink extends Serializable {
          */
         Model sparqlGraphQuery(String query);
 
+        /**
+         * Execute a SPARQL graph query using the dataset passed by paramater as context, streaming the resulting
+         * statements to the {@link RDFHandler}
+         *
+         * @param query   SPARQL graph query to be executed
+         * @param dataset Name of the dataset at user's RedLink application where the query will be executed
+         * @param handler {@link RDFHandler} receiving the statements of the result
+         */
+        void sparqlGraphQuery(String query, String dataset, RDFHandler handler);
+
+        /**
+         * Execute a SPARQL graph query using as context all the configured datasets at user's RedLink application,
+         * streaming the resulting statements to the {@link RDFHandler}
+         *
+         * @param query   SPARQL graph query to be executed
+         * @param handler {@link RDFHandler} receiving the statements of the result
+         */
+        void sparqlGraphQuery(String query, RDFHandler handler);
+
+        /**
+         * Execute asynchronously a SPARQL graph query using the dataset passed by paramater as context
+         *
+         * @param query   SPARQL graph query to be executed
+         * @param dataset Name of the dataset at user's RedLink application where the query will be executed
+         * @return future result of the query as {@link org.openrdf.model.Model} object
+         */
+        ListenableFuture<Model> sparqlGraphQueryAsync(String query, String dataset);
+
+        /**
+         * Execute asynchronously a SPARQL graph query using as context all the configured datasets at user's RedLink application
+         *
+         * @param query SPARQL graph query to be executed
+         * @return future result of the query as {@link org.openrdf.model.Model} object
+         */
+        ListenableFuture<Model> sparqlGraphQueryAsync(String query);
+
         /**
          * Update dataset's resources using an SPARQL update query. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request
@@ -314,6 +557,53 @@ public interface RedLink extends Serializable {
          */
         boolean sparqlUpdate(String query, String dataset);
 
+        /**
+         * Update asynchronously dataset's resources using an SPARQL update query
+         *
+         * @param query   SPARQL query to be executed
+         * @param dataset Name of the dataset at user's RedLink application where the query will be executed
+         * @return future flag indicating whether the update has performed successfully
+         */
+        ListenableFuture<Boolean> sparqlUpdateAsync(String query, String dataset);
+
+        /**
+         * Create a writer buffering <code>INSERT DATA</code> and <code>DELETE DATA</code> operations on the dataset,
+         * which are sent as combined SPARQL updates using the default thresholds
+         *
+         * @param dataset Name of the dataset at user's RedLink application where the operations will be executed
+         * @return {@link BatchingUpdateWriter}, which must be closed to send the last operations
+         */
+        BatchingUpdateWriter createUpdateWriter(String dataset);
+
+        /**
+         * Create a writer buffering <code>INSERT DATA</code> and <code>DELETE DATA</code> operations on the dataset,
+         * which are sent as combined SPARQL updates once any of the configured thresholds is reached
+         *
+         * @param dataset Name of the dataset at user's RedLink application where the operations will be executed
+         * @param config  thresholds and listener of the batches
+         * @return {@link BatchingUpdateWriter}, which must be closed to send the last operations
+         */
+        BatchingUpdateWriter createUpdateWriter(String dataset, BatchingUpdateConfig config);
+
+        /**
+         * Create a loader importing the statements handled into the dataset, serialized in chunks which are sent
+         * concurrently using the default settings
+         *
+         * @param dataset Name of the dataset where the data will be imported
+         * @return {@link StatementLoader}, which must be closed to send the last statements
+         */
+        StatementLoader createStatementLoader(String dataset);
+
+        /**
+         * Create a loader importing the statements handled into the dataset, serialized in chunks of the configured
+         * size of which at most the configured number are sent at the same time
+         *
+         * @param dataset Name of the dataset where the data will be imported
+         * @param config  chunk size, maximum chunks in flight and listener of the chunks
+         * @return {@link StatementLoader}, which must be closed to send the last statements
+         */
+        StatementLoader createStatementLoader(String dataset, StatementLoaderConfig config);
+
         /**
          * Execute a LDPath program using the dataset passed by paramater as context. The Dataset must exist at the user RedLink account and
          * must be configured for the user's RedLink application used in the request
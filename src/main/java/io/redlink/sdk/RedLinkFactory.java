@@ -14,12 +14,19 @@
 package io.redlink.sdk;
 
 import io.redlink.sdk.impl.DefaultCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import io.redlink.sdk.impl.analysis.EnhancementCache;
 import io.redlink.sdk.impl.analysis.RedLinkAnalysisImpl;
+import io.redlink.sdk.impl.data.QueryCache;
 import io.redlink.sdk.impl.data.RedLinkDataImpl;
+import io.redlink.sdk.impl.data.ResourceCache;
 
+import org.openrdf.rio.RDFFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * RedLink SDK Factory. This class eases the creation of the different RedLink
  * services' clients. A single client for each configured Application should
@@ -70,6 +77,31 @@ public class RedLinkFactory {
         return new RedLinkAnalysisImpl(credentials);
     }
 
+    /**
+     * Create an {@link io.redlink.sdk.RedLink.Analysis} client associated to an user {@link Credentials},
+     * using custom transport settings
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @return RedLink's {@link io.redlink.sdk.RedLink.Analysis} service client
+     */
+    public static RedLink.Analysis createAnalysisClient(Credentials credentials, RedLinkClientConfig config) {
+        return new RedLinkAnalysisImpl(credentials, config);
+    }
+
+    /**
+     * Create an {@link io.redlink.sdk.RedLink.Analysis} client associated to an user {@link Credentials},
+     * using custom transport settings and caching the analysis results
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @param cache       cache of the analysis results, which can be shared by several clients
+     * @return RedLink's {@link io.redlink.sdk.RedLink.Analysis} service client
+     */
+    public static RedLink.Analysis createAnalysisClient(Credentials credentials, RedLinkClientConfig config, EnhancementCache cache) {
+        return new RedLinkAnalysisImpl(credentials, config, cache);
+    }
+
     /**
      * Create a {@link io.redlink.sdk.RedLink.Data} client associated to an user API key
      *
@@ -90,4 +122,56 @@ public class RedLinkFactory {
         return new RedLinkDataImpl(credentials);
     }
 
+    /**
+     * Create a {@link io.redlink.sdk.RedLink.Data} client associated to an user {@link Credentials},
+     * using custom transport settings
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @return RedLink's {@link io.redlink.sdk.RedLink.Data} service client
+     */
+    public static RedLink.Data createDataClient(Credentials credentials, RedLinkClientConfig config) {
+        return new RedLinkDataImpl(credentials, config);
+    }
+
+    /**
+     * Create a {@link io.redlink.sdk.RedLink.Data} client associated to an user {@link Credentials},
+     * using custom transport settings and exchanging RDF data in the given formats
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @param wireFormats {@link RDFFormat}s used to exchange data, in order of preference
+     * @return RedLink's {@link io.redlink.sdk.RedLink.Data} service client
+     */
+    public static RedLink.Data createDataClient(Credentials credentials, RedLinkClientConfig config, List<RDFFormat> wireFormats) {
+        return new RedLinkDataImpl(credentials, config, wireFormats);
+    }
+
+    /**
+     * Create a {@link io.redlink.sdk.RedLink.Data} client associated to an user {@link Credentials},
+     * using custom transport settings and caching the resources read
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @param cache       cache of the resources read, which can be shared by several clients
+     * @return RedLink's {@link io.redlink.sdk.RedLink.Data} service client
+     */
+    public static RedLink.Data createDataClient(Credentials credentials, RedLinkClientConfig config, ResourceCache cache) {
+        return new RedLinkDataImpl(credentials, config, RedLinkDataImpl.DEFAULT_WIRE_FORMATS, cache);
+    }
+
+    /**
+     * Create a {@link io.redlink.sdk.RedLink.Data} client associated to an user {@link Credentials},
+     * using custom transport settings and caching the resources read and the results of the queries
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @param cache       cache of the resources read, which can be shared by several clients (null for none)
+     * @param queryCache  cache of the query results, which can be shared by several clients (null for none)
+     * @return RedLink's {@link io.redlink.sdk.RedLink.Data} service client
+     */
+    public static RedLink.Data createDataClient(Credentials credentials, RedLinkClientConfig config, ResourceCache cache, QueryCache queryCache) {
+        return new RedLinkDataImpl(credentials, config, RedLinkDataImpl.DEFAULT_WIRE_FORMATS, cache, queryCache);
+    }
+
 }
@@ -40,14 +40,16 @@ abstract class AbstractCredentials implements Credentials {
 
     protected Status status;
 
-    protected RedLinkClient client;
+    /**
+     * Client for checking the status out of any RedLink client, not serialized
+     */
+    private transient RedLinkClient client;
 
     AbstractCredentials(String endpoint, String version, String apiKey, String datahub) {
         this.endpoint = endpoint;
         this.version = version;
         this.apiKey = apiKey;
         this.datahub = datahub;
-        this.client = new RedLinkClient();
     }
 
     AbstractCredentials(String endpoint, String version, String apiKey) {
@@ -82,8 +84,24 @@ abstract class AbstractCredentials implements Credentials {
         return status.isAccessible();
     }
 
+    /**
+     * Forces the update of the cached status. The request is performed using the connection pool
+     * shared with the clients using the default transport settings, acquired on first usage
+     *
+     * @return fresh status
+     */
     @Override
-    public synchronized Status getStatus()  {
+    public Status getStatus()  {
+        return getStatus(getClient());
+    }
+
+    /**
+     * Requests the status using the given client, so it is checked with its connection pool and transport settings
+     *
+     * @param client client performing the request
+     * @return fresh status
+     */
+    Status getStatus(RedLinkClient client) {
         try {
             final URI target = buildUrl(new UriBuilder(endpoint).path(version));
             return client.get(target, Status.class, "application/json");
@@ -92,4 +110,11 @@ abstract class AbstractCredentials implements Credentials {
         }
     }
 
+    private synchronized RedLinkClient getClient() {
+        if (client == null) {
+            client = new RedLinkClient();
+        }
+        return client;
+    }
+
 }
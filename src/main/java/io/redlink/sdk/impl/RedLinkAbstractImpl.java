@@ -18,8 +18,11 @@ import io.redlink.sdk.RedLink;
 import io.redlink.sdk.util.UriBuilder;
 import org.apache.http.client.utils.URIBuilder;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * RedLink Client API (abstract) template implementation. Any RedLink client concrete implementation must extend this class and use a
@@ -27,7 +30,7 @@ import java.net.URISyntaxException;
  *
  * @author rafa.haro@redlink.co
  */
-public abstract class RedLinkAbstractImpl implements RedLink {
+public abstract class RedLinkAbstractImpl implements RedLink, Closeable {
 
     private static final long serialVersionUID = -2644378258418145067L;
 
@@ -36,16 +39,38 @@ public abstract class RedLinkAbstractImpl implements RedLink {
     protected final RedLinkClient client;
 
     public RedLinkAbstractImpl(Credentials credentials) {
+        this(credentials, RedLinkClientConfig.defaultConfig());
+    }
+
+    public RedLinkAbstractImpl(Credentials credentials, RedLinkClientConfig config) {
         this.credentials = credentials;
+        // acquired before checking the status, so the check uses the same connection pool and settings
+        this.client = new RedLinkClient(config);
         try {
-            this.status = credentials.getStatus();
+            if (credentials instanceof AbstractCredentials) {
+                this.status = ((AbstractCredentials) credentials).getStatus(client);
+            } else {
+                this.status = credentials.getStatus();
+            }
             if (!this.status.isAccessible()) {
                 throw new IllegalArgumentException("invalid credentials: not accessible api key");
             }
         } catch (URISyntaxException | IOException e) {
+            client.close();
             throw new IllegalArgumentException("invalid credentials: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            client.close();
+            throw e;
         }
-        this.client = new RedLinkClient();
+    }
+
+    /**
+     * Releases the connection pool used by this client; pools shared with other clients
+     * are only shut down once all of them have been closed
+     */
+    @Override
+    public void close() {
+        client.close();
     }
 
     /**
@@ -59,4 +84,24 @@ public abstract class RedLinkAbstractImpl implements RedLink {
         return (UriBuilder) new UriBuilder(credentials.getEndpoint()).setPath(credentials.getVersion());
     }
 
+    /**
+     * Waits for the result of an asynchronous request, rethrowing its failure as a {@link RuntimeException}
+     *
+     * @param future future result
+     * @return result
+     */
+    protected static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
 }
@@ -14,9 +14,12 @@
 package io.redlink.sdk.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.redlink.sdk.util.VersionHelper;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
@@ -24,14 +27,17 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.DeflateInputStream;
 import org.apache.http.client.entity.InputStreamFactory;
 import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.nio.entity.NFileEntity;
 import org.apache.http.util.EntityUtils;
 import org.openrdf.rio.RDFFormat;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -39,22 +45,33 @@ import java.net.URI;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.GZIPInputStream;
 
 /**
- * Redlink client wrapping HttpClient
+ * Redlink client wrapping HttpClient. Clients with the same transport settings share the connection pools,
+ * which are released when all of them are {@link #close() closed}
  *
  * @author sergio.fernandez@redlink.co
  */
-public class RedLinkClient implements Serializable {
+public class RedLinkClient implements Serializable, Closeable {
 
     private static final long serialVersionUID = -6399964450824289653L;
 
-    public static final int REQUEST_TIMEOUT = 60;  //TODO: configuration
+    public static final int REQUEST_TIMEOUT = 60;
 
     public static final String HTTP_HEADER_ACCEPT = "Accept";
     public static final String HTTP_HEADER_CONTENT_TYPE = "Content-Type";
 
+    /**
+     * Size (bytes) of the request bodies above which the server is asked to accept the request
+     * (<code>Expect: 100-continue</code>) before the body is sent
+     */
+    public static final long EXPECT_CONTINUE_THRESHOLD = 1024 * 1024;
+
     public static final Map<String,InputStreamFactory> decoderRegistry;
 
     public static final InputStreamFactory GZIP = new InputStreamFactory() {
@@ -87,34 +104,84 @@ public class RedLinkClient implements Serializable {
         decoderRegistry = Collections.unmodifiableMap(dr);
     }
 
-    private transient CloseableHttpClient client;
+    private transient volatile RedLinkTransport transport;
+    private transient boolean closed;
     private final ObjectMapper mapper;
+    private final RedLinkClientConfig config;
 
     public RedLinkClient() {
+        this(RedLinkClientConfig.defaultConfig());
+    }
+
+    public RedLinkClient(RedLinkClientConfig config) {
+        this.config = config;
         mapper = new ObjectMapper();
-        client = buildHttpClient();
+        transport = RedLinkTransport.acquire(config);
     }
 
-    private CloseableHttpClient buildHttpClient() {
-        final HttpClientBuilder builder = HttpClientBuilder.create();
+    /**
+     * Returns the transport settings used by this client
+     *
+     * @return client configuration
+     */
+    public RedLinkClientConfig getConfig() {
+        return config;
+    }
 
-        final RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(REQUEST_TIMEOUT * 1000)
-                .setConnectionRequestTimeout(REQUEST_TIMEOUT * 1000)
-                .setSocketTimeout(REQUEST_TIMEOUT * 1000)
-                .build();
-        builder.setDefaultRequestConfig(config);
+    /**
+     * Default executor for parsing the responses of asynchronous requests, lazily created
+     */
+    private static final class DefaultExecutorHolder {
 
-        builder.setUserAgent(String.format("RedlinkJavaSDK/%s", VersionHelper.getVersion()));
+        static final Executor EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                RedLinkTransport.buildThreadFactory("redlink-parser-%d"));
 
-        final PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
-        cm.setMaxTotal(100);
-        builder.setConnectionManager(cm);
+    }
 
-        // Workaround for SEARCH-230: we use our own Content-Encoding decoder registry.
-        builder.setContentDecoderRegistry(decoderRegistry);
+    private Executor getExecutor() {
+        final Executor executor = config.getExecutor();
+        return executor != null ? executor : DefaultExecutorHolder.EXECUTOR;
+    }
 
-        return builder.build();
+    /**
+     * Gets the transport shared with the other clients with the same settings. Since the transport is not serialized,
+     * deserialized clients attach (exactly once, even under concurrent first usage) to the transport registered in
+     * the current JVM for their settings
+     *
+     * @return shared transport
+     */
+    RedLinkTransport getTransport() {
+        RedLinkTransport result = transport;
+        if (result == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("client already closed");
+                }
+                result = transport;
+                if (result == null) {
+                    transport = result = RedLinkTransport.acquire(config);
+                }
+            }
+        }
+        return result;
+    }
+
+    private CloseableHttpClient getHttpClient() {
+        return getTransport().getClient();
+    }
+
+    /**
+     * Releases the shared transport; connection pools are shut down once no other client uses them
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            if (transport != null) {
+                transport.release();
+                transport = null;
+            }
+        }
     }
 
     public String get(final URI target) throws IOException {
@@ -157,15 +224,12 @@ public class RedLinkClient implements Serializable {
         return get(target, accept, handler);
     }
 
-    private <T> T get(final URI target, String accept, ResponseHandler<T> handler) throws IOException {
+    public <T> T get(final URI target, String accept, ResponseHandler<T> handler) throws IOException {
         final HttpGet get = new HttpGet(target);
         if (StringUtils.isNotBlank(accept)) {
             get.setHeader(HTTP_HEADER_ACCEPT, accept);
         }
-        if (client == null) {
-            client = buildHttpClient();
-        }
-        return client.execute(get, handler);
+        return getHttpClient().execute(get, handler);
     }
 
     public CloseableHttpResponse put(URI target, InputStream in, RDFFormat format) throws IOException {
@@ -176,6 +240,14 @@ public class RedLinkClient implements Serializable {
         return exec(new HttpPost(target), in, format);
     }
 
+    public CloseableHttpResponse put(URI target, HttpEntity entity, RDFFormat format) throws IOException {
+        return exec(new HttpPut(target), entity, format);
+    }
+
+    public CloseableHttpResponse post(URI target, HttpEntity entity, RDFFormat format) throws IOException {
+        return exec(new HttpPost(target), entity, format);
+    }
+
     public CloseableHttpResponse post(URI target) throws IOException {
         return post(target, null);
     }
@@ -185,10 +257,7 @@ public class RedLinkClient implements Serializable {
         if (StringUtils.isNotBlank(accept)) {
             post.setHeader(HTTP_HEADER_ACCEPT, accept);
         }
-        if (client == null) {
-            client = buildHttpClient();
-        }
-        return client.execute(post);
+        return getHttpClient().execute(post);
     }
 
     public CloseableHttpResponse post(URI target, String body, String accept) throws IOException {
@@ -203,18 +272,20 @@ public class RedLinkClient implements Serializable {
         return exec(new HttpPost(target), new InputStreamEntity(in), accept, contentType);
     }
 
+    public CloseableHttpResponse post(URI target, HttpEntity entity, String accept, String contentType) throws IOException {
+        return exec(new HttpPost(target), entity, accept, contentType);
+    }
+
     private CloseableHttpResponse exec(HttpEntityEnclosingRequestBase req, HttpEntity entity, String accept, String format) throws IOException {
         req.setEntity(entity);
+        expectContinue(req);
         if (StringUtils.isNotBlank(accept)) {
             req.setHeader(HTTP_HEADER_ACCEPT, accept);
         }
         if (StringUtils.isNotBlank(format)) {
             req.setHeader(HTTP_HEADER_CONTENT_TYPE, format);
         }
-        if (client == null) {
-            client = buildHttpClient();
-        }
-        return client.execute(req);
+        return getHttpClient().execute(req);
     }
 
     private CloseableHttpResponse exec(HttpEntityEnclosingRequestBase req, InputStream in, RDFFormat format) throws IOException {
@@ -223,19 +294,162 @@ public class RedLinkClient implements Serializable {
 
     private CloseableHttpResponse exec(HttpEntityEnclosingRequestBase req, HttpEntity entity, RDFFormat format) throws IOException {
         req.setEntity(entity);
+        expectContinue(req);
         req.setHeader(HTTP_HEADER_CONTENT_TYPE, format.getDefaultMIMEType());
-        if (client == null) {
-            client = buildHttpClient();
-        }
-        return client.execute(req);
+        return getHttpClient().execute(req);
     }
 
     public CloseableHttpResponse delete(URI target) throws IOException {
         final HttpDelete delete = new HttpDelete(target);
-        if (client == null) {
-            client = buildHttpClient();
+        return getHttpClient().execute(delete);
+    }
+
+    public <T> ListenableFuture<T> getAsync(URI target, String accept, ResponseHandler<T> handler) {
+        final HttpGet get = new HttpGet(target);
+        if (StringUtils.isNotBlank(accept)) {
+            get.setHeader(HTTP_HEADER_ACCEPT, accept);
+        }
+        return executeAsync(get, handler);
+    }
+
+    public <T> ListenableFuture<T> postAsync(URI target, String body, String accept, String contentType, ResponseHandler<T> handler) {
+        final HttpPost post = new HttpPost(target);
+        post.setEntity(new StringEntity(body, ContentType.DEFAULT_TEXT));
+        setHeaders(post, accept, contentType);
+        return executeAsync(post, handler);
+    }
+
+    public <T> ListenableFuture<T> postAsync(URI target, InputStream in, String accept, String contentType, ResponseHandler<T> handler) {
+        final HttpPost post = new HttpPost(target);
+        post.setEntity(new InputStreamEntity(in));
+        setHeaders(post, accept, contentType);
+        return executeAsync(post, handler);
+    }
+
+    public <T> ListenableFuture<T> postAsync(URI target, HttpEntity entity, String accept, String contentType, ResponseHandler<T> handler) {
+        final HttpPost post = new HttpPost(target);
+        post.setEntity(entity);
+        expectContinue(post);
+        setHeaders(post, accept, contentType);
+        return executeAsync(post, handler);
+    }
+
+    /**
+     * Uploads a file replacing the current content of the target. The file is sent with its length, straight from the
+     * file channel to the socket when the connection allows it (plain HTTP), and large files wait for the server to
+     * accept the request before being sent
+     *
+     * @param target  target resource
+     * @param file    file to upload
+     * @param format  {@link RDFFormat} of the file
+     * @param handler handler of the response
+     * @return future result of the handler
+     */
+    public <T> ListenableFuture<T> putAsync(URI target, File file, RDFFormat format, ResponseHandler<T> handler) {
+        return uploadAsync(new HttpPut(target), file, format, handler);
+    }
+
+    /**
+     * Uploads a file adding it to the current content of the target. The file is sent with its length, straight from
+     * the file channel to the socket when the connection allows it (plain HTTP), and large files wait for the server
+     * to accept the request before being sent
+     *
+     * @param target  target resource
+     * @param file    file to upload
+     * @param format  {@link RDFFormat} of the file
+     * @param handler handler of the response
+     * @return future result of the handler
+     */
+    public <T> ListenableFuture<T> postAsync(URI target, File file, RDFFormat format, ResponseHandler<T> handler) {
+        return uploadAsync(new HttpPost(target), file, format, handler);
+    }
+
+    private <T> ListenableFuture<T> uploadAsync(HttpEntityEnclosingRequestBase req, File file, RDFFormat format, ResponseHandler<T> handler) {
+        // the entity opens (and closes) the file only while the request is sent
+        req.setEntity(new NFileEntity(file, ContentType.create(format.getDefaultMIMEType())));
+        expectContinue(req);
+        req.setHeader(HTTP_HEADER_CONTENT_TYPE, format.getDefaultMIMEType());
+        return executeAsync(req, handler);
+    }
+
+    /**
+     * Requests with large bodies ask the server to accept them before sending the body, so requests rejected
+     * (e.g. by authentication or quota) fail without transferring it
+     */
+    private void expectContinue(HttpEntityEnclosingRequestBase req) {
+        final HttpEntity entity = req.getEntity();
+        if (entity != null && entity.getContentLength() > EXPECT_CONTINUE_THRESHOLD) {
+            req.setConfig(RequestConfig.copy(getTransport().getRequestConfig()).setExpectContinueEnabled(true).build());
+        }
+    }
+
+    /**
+     * Executes the request without blocking the calling thread. The response is fully read by the
+     * I/O threads, and then handled by the {@link ResponseHandler} in the configured executor, so
+     * I/O threads are never blocked parsing responses
+     *
+     * @param request request to execute
+     * @param handler handler of the response
+     * @return future result of the handler
+     */
+    public <T> ListenableFuture<T> executeAsync(HttpUriRequest request, final ResponseHandler<T> handler) {
+        final SettableFuture<T> result = SettableFuture.create();
+        final Executor executor = getExecutor();
+        final Future<HttpResponse> call;
+        try {
+            call = getTransport().getAsyncClient().execute(request, new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(final HttpResponse response) {
+                    try {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    result.set(handler.handleResponse(response));
+                                } catch (Throwable e) {
+                                    result.setException(e);
+                                } finally {
+                                    EntityUtils.consumeQuietly(response.getEntity());
+                                }
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        result.setException(e);
+                    }
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    result.setException(e);
+                }
+
+                @Override
+                public void cancelled() {
+                    result.cancel(false);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            result.setException(e);
+            return result;
+        }
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    call.cancel(true);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    private void setHeaders(HttpRequest req, String accept, String contentType) {
+        if (StringUtils.isNotBlank(accept)) {
+            req.setHeader(HTTP_HEADER_ACCEPT, accept);
+        }
+        if (StringUtils.isNotBlank(contentType)) {
+            req.setHeader(HTTP_HEADER_CONTENT_TYPE, contentType);
         }
-        return client.execute(delete);
     }
 
 }
@@ -0,0 +1,365 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl;
+
+import java.io.Serializable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport settings used by a {@link RedLinkClient}: timeouts, connection pool limits and
+ * connection reuse policies. Instances are immutable and must be created using a
+ * {@link RedLinkClientConfigBuilder}. The defaults are sized for server-side usage, where
+ * many requests are issued concurrently against the same RedLink endpoint
+ */
+public class RedLinkClientConfig implements Serializable {
+
+    private static final long serialVersionUID = 2785326436152869087L;
+
+    /**
+     * Default connect timeout (milliseconds)
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10 * 1000;
+
+    /**
+     * Default socket (read) timeout (milliseconds)
+     */
+    public static final int DEFAULT_SOCKET_TIMEOUT = RedLinkClient.REQUEST_TIMEOUT * 1000;
+
+    /**
+     * Default timeout for leasing a connection from the pool (milliseconds)
+     */
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 30 * 1000;
+
+    /**
+     * Default maximum number of concurrent connections per route (host)
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+
+    /**
+     * Default maximum number of concurrent connections
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 100;
+
+    /**
+     * Default time a connection is kept alive when the server does not say otherwise (milliseconds)
+     */
+    public static final long DEFAULT_KEEP_ALIVE = 30 * 1000;
+
+    /**
+     * Default period of inactivity after which pooled connections are validated before reuse (milliseconds)
+     */
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2 * 1000;
+
+    /**
+     * Default time after which idle pooled connections are evicted (milliseconds)
+     */
+    public static final long DEFAULT_MAX_IDLE_TIME = 60 * 1000;
+
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+    private int socketTimeout = DEFAULT_SOCKET_TIMEOUT;
+
+    private int connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    private int maxConnectionsTotal = DEFAULT_MAX_CONNECTIONS_TOTAL;
+
+    private long keepAlive = DEFAULT_KEEP_ALIVE;
+
+    private int validateAfterInactivity = DEFAULT_VALIDATE_AFTER_INACTIVITY;
+
+    private long maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+
+    private transient Executor executor;
+
+    private RedLinkClientConfig() {
+    }
+
+    private RedLinkClientConfig(RedLinkClientConfig other) {
+        this.connectTimeout = other.connectTimeout;
+        this.socketTimeout = other.socketTimeout;
+        this.connectionRequestTimeout = other.connectionRequestTimeout;
+        this.maxConnectionsPerRoute = other.maxConnectionsPerRoute;
+        this.maxConnectionsTotal = other.maxConnectionsTotal;
+        this.keepAlive = other.keepAlive;
+        this.validateAfterInactivity = other.validateAfterInactivity;
+        this.maxIdleTime = other.maxIdleTime;
+        this.executor = other.executor;
+    }
+
+    /**
+     * Returns the configuration with the default settings
+     *
+     * @return default {@link RedLinkClientConfig}
+     */
+    public static RedLinkClientConfig defaultConfig() {
+        return new RedLinkClientConfig();
+    }
+
+    /**
+     * Timeout until a connection with the server is established
+     *
+     * @return connect timeout in milliseconds
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Maximum period of inactivity between two consecutive data packets
+     *
+     * @return socket timeout in milliseconds
+     */
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * Timeout used when requesting a connection from the connection pool
+     *
+     * @return connection request timeout in milliseconds
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * Maximum number of concurrent connections to the same route (host)
+     *
+     * @return max connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Maximum number of concurrent connections in the pool
+     *
+     * @return max connections
+     */
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    /**
+     * Time a connection is kept alive for reuse if the server does not send a
+     * <code>Keep-Alive</code> header; a non positive value keeps connections alive indefinitely
+     *
+     * @return keep alive in milliseconds
+     */
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Period of inactivity after which a pooled connection is checked (stale check) before being reused;
+     * a non positive value disables the check
+     *
+     * @return validate after inactivity in milliseconds
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * Time after which idle connections are evicted from the pool by a background thread;
+     * a non positive value disables the eviction
+     *
+     * @return max idle time in milliseconds
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * Executor where the responses of asynchronous requests are handled (parsed); when null a
+     * shared pool of daemon threads is used. This setting is not serialized
+     *
+     * @return executor, or null for the default one
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Key identifying the settings affecting the connection pools, used for sharing them
+     * between clients with the same transport settings
+     *
+     * @return transport key
+     */
+    String transportKey() {
+        return connectTimeout + ":" + socketTimeout + ":" + connectionRequestTimeout + ":" + maxConnectionsPerRoute + ":"
+                + maxConnectionsTotal + ":" + keepAlive + ":" + validateAfterInactivity + ":" + maxIdleTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RedLinkClientConfig[connectTimeout=%d, socketTimeout=%d, connectionRequestTimeout=%d, " +
+                        "maxConnectionsPerRoute=%d, maxConnectionsTotal=%d, keepAlive=%d, validateAfterInactivity=%d, maxIdleTime=%d]",
+                connectTimeout, socketTimeout, connectionRequestTimeout, maxConnectionsPerRoute, maxConnectionsTotal,
+                keepAlive, validateAfterInactivity, maxIdleTime);
+    }
+
+    /**
+     * Client Configuration Builder. This class allows the user to easily generate {@link RedLinkClientConfig} objects
+     */
+    public static class RedLinkClientConfigBuilder {
+
+        private final RedLinkClientConfig config = new RedLinkClientConfig();
+
+        /**
+         * Set the timeout until a connection with the server is established
+         *
+         * @param timeout timeout
+         * @param unit    unit of the timeout
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setConnectTimeout(long timeout, TimeUnit unit) {
+            this.config.connectTimeout = toMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Set the socket (read) timeout
+         *
+         * @param timeout timeout
+         * @param unit    unit of the timeout
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setSocketTimeout(long timeout, TimeUnit unit) {
+            this.config.socketTimeout = toMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Set the timeout for leasing a connection from the pool
+         *
+         * @param timeout timeout
+         * @param unit    unit of the timeout
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setConnectionRequestTimeout(long timeout, TimeUnit unit) {
+            this.config.connectionRequestTimeout = toMillis(timeout, unit);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of concurrent connections per route (host)
+         *
+         * @param max max connections per route
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setMaxConnectionsPerRoute(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max connections per route must be positive");
+            }
+            this.config.maxConnectionsPerRoute = max;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of concurrent connections
+         *
+         * @param max max connections
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setMaxConnectionsTotal(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max connections must be positive");
+            }
+            this.config.maxConnectionsTotal = max;
+            return this;
+        }
+
+        /**
+         * Set how long connections are kept alive when the server does not send a <code>Keep-Alive</code> header
+         *
+         * @param keepAlive keep alive (non positive for indefinitely)
+         * @param unit      unit of the keep alive
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setKeepAlive(long keepAlive, TimeUnit unit) {
+            this.config.keepAlive = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * Set the period of inactivity after which pooled connections are validated before being reused
+         *
+         * @param inactivity inactivity period (non positive to disable the check)
+         * @param unit       unit of the inactivity period
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setValidateAfterInactivity(long inactivity, TimeUnit unit) {
+            this.config.validateAfterInactivity = toMillis(inactivity, unit);
+            return this;
+        }
+
+        /**
+         * Set the time after which idle connections are evicted from the pool
+         *
+         * @param maxIdleTime max idle time (non positive to disable the eviction)
+         * @param unit        unit of the max idle time
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setMaxIdleTime(long maxIdleTime, TimeUnit unit) {
+            this.config.maxIdleTime = unit.toMillis(maxIdleTime);
+            return this;
+        }
+
+        /**
+         * Set the executor where the responses of asynchronous requests are handled
+         *
+         * @param executor executor (null for the default one)
+         * @return Current Config Builder
+         */
+        public RedLinkClientConfigBuilder setExecutor(Executor executor) {
+            this.config.executor = executor;
+            return this;
+        }
+
+        /**
+         * Returns the client configuration
+         *
+         * @return built {@link RedLinkClientConfig} object
+         */
+        public RedLinkClientConfig build() {
+            if (config.maxConnectionsPerRoute > config.maxConnectionsTotal) {
+                throw new IllegalArgumentException("max connections per route can not exceed the max connections");
+            }
+            return new RedLinkClientConfig(config);
+        }
+
+        private static int toMillis(long value, TimeUnit unit) {
+            final long millis = unit.toMillis(value);
+            if (millis < 0 || millis > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid timeout: " + value + " " + unit);
+            }
+            return (int) millis;
+        }
+
+    }
+
+    /**
+     * Create a new Config Builder
+     *
+     * @return Created {@link RedLinkClientConfigBuilder}
+     */
+    public static RedLinkClientConfigBuilder builder() {
+        return new RedLinkClientConfigBuilder();
+    }
+
+}
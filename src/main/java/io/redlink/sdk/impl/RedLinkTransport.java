@@ -0,0 +1,259 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.redlink.sdk.util.VersionHelper;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pools (blocking and non-blocking) shared by all the {@link RedLinkClient}s with the same
+ * transport settings in the JVM. Transports are reference counted: each client acquires the transport
+ * when created and releases it when closed, and the pools are shut down when the last reference is released
+ */
+final class RedLinkTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(RedLinkTransport.class);
+
+    private static final Map<String, RedLinkTransport> registry = new HashMap<>();
+
+    private final String key;
+
+    private final RedLinkClientConfig config;
+
+    private final RequestConfig requestConfig;
+
+    private final CloseableHttpClient client;
+
+    private volatile CloseableHttpAsyncClient asyncClient;
+
+    private int references;
+
+    /**
+     * Set once the last reference is released, guarded by this transport like the lazy creation of the async client
+     */
+    private volatile boolean closed;
+
+    private RedLinkTransport(String key, RedLinkClientConfig config) {
+        this.key = key;
+        this.config = config;
+        this.requestConfig = buildRequestConfig();
+        this.client = buildHttpClient();
+    }
+
+    /**
+     * Gets the transport for the configuration passed, creating it if necessary, and increments its references
+     *
+     * @param config transport settings
+     * @return shared transport
+     */
+    static RedLinkTransport acquire(RedLinkClientConfig config) {
+        final String key = config.transportKey();
+        synchronized (registry) {
+            RedLinkTransport transport = registry.get(key);
+            if (transport == null) {
+                log.debug("creating new transport for {}", config);
+                transport = new RedLinkTransport(key, config);
+                registry.put(key, transport);
+            }
+            transport.references++;
+            return transport;
+        }
+    }
+
+    /**
+     * Decrements the references of the transport, shutting down its connection pools if it is no longer used
+     */
+    void release() {
+        synchronized (registry) {
+            if (--references > 0) {
+                return;
+            }
+            registry.remove(key);
+        }
+        log.debug("shutting down transport for {}", config);
+        closeQuietly(client);
+        synchronized (this) {
+            closed = true;
+            closeQuietly(asyncClient);
+        }
+    }
+
+    /**
+     * Number of transports currently alive in the JVM
+     *
+     * @return active transports
+     */
+    static int getActiveTransports() {
+        synchronized (registry) {
+            return registry.size();
+        }
+    }
+
+    CloseableHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Default settings of the requests, to be copied by requests overriding any of them
+     *
+     * @return default request config
+     */
+    RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    /**
+     * Gets the non-blocking client, starting it on first usage
+     *
+     * @return non-blocking client
+     * @throws IllegalStateException if the transport has already been released
+     */
+    CloseableHttpAsyncClient getAsyncClient() throws IOException {
+        CloseableHttpAsyncClient result = asyncClient;
+        if (closed) {
+            throw new IllegalStateException("transport already released");
+        }
+        if (result == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("transport already released");
+                }
+                result = asyncClient;
+                if (result == null) {
+                    asyncClient = result = buildHttpAsyncClient();
+                }
+            }
+        }
+        return result;
+    }
+
+    private RequestConfig buildRequestConfig() {
+        return RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout())
+                .setSocketTimeout(config.getSocketTimeout())
+                .build();
+    }
+
+    private CloseableHttpClient buildHttpClient() {
+        final HttpClientBuilder builder = HttpClientBuilder.create();
+
+        builder.setDefaultRequestConfig(requestConfig);
+
+        builder.setUserAgent(String.format("RedlinkJavaSDK/%s", VersionHelper.getVersion()));
+
+        final PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+        cm.setMaxTotal(config.getMaxConnectionsTotal());
+        cm.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        cm.setValidateAfterInactivity(config.getValidateAfterInactivity());
+        builder.setConnectionManager(cm);
+
+        builder.setKeepAliveStrategy(new KeepAliveStrategy(config.getKeepAlive()));
+        if (config.getMaxIdleTime() > 0) {
+            builder.evictExpiredConnections();
+            builder.evictIdleConnections(config.getMaxIdleTime(), TimeUnit.MILLISECONDS);
+        }
+
+        // Workaround for SEARCH-230: we use our own Content-Encoding decoder registry.
+        builder.setContentDecoderRegistry(RedLinkClient.decoderRegistry);
+
+        return builder.build();
+    }
+
+    private CloseableHttpAsyncClient buildHttpAsyncClient() throws IOException {
+        final HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create();
+
+        builder.setDefaultRequestConfig(requestConfig);
+
+        builder.setUserAgent(String.format("RedlinkJavaSDK/%s", VersionHelper.getVersion()));
+
+        final IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout())
+                .setSoTimeout(config.getSocketTimeout())
+                .build();
+        final ConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(ioReactorConfig, buildThreadFactory("redlink-io-%d"));
+        final PoolingNHttpClientConnectionManager cm = new PoolingNHttpClientConnectionManager(ioReactor);
+        cm.setMaxTotal(config.getMaxConnectionsTotal());
+        cm.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+        builder.setConnectionManager(cm);
+
+        builder.setKeepAliveStrategy(new KeepAliveStrategy(config.getKeepAlive()));
+        builder.setThreadFactory(buildThreadFactory("redlink-reactor-%d"));
+
+        final CloseableHttpAsyncClient asyncClient = builder.build();
+        asyncClient.start();
+        return asyncClient;
+    }
+
+    static ThreadFactory buildThreadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.warn("error closing http client: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Keep-alive strategy honoring the <code>Keep-Alive</code> header sent by the server,
+     * and falling back to the configured keep-alive otherwise
+     */
+    private static class KeepAliveStrategy extends DefaultConnectionKeepAliveStrategy {
+
+        private final long keepAlive;
+
+        KeepAliveStrategy(long keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            final long duration = super.getKeepAliveDuration(response, context);
+            if (duration > 0) {
+                return duration;
+            } else {
+                return keepAlive > 0 ? keepAlive : -1;
+            }
+        }
+
+    }
+
+}
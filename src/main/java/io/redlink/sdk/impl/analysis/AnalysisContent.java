@@ -0,0 +1,286 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Content to be analyzed, backed by a byte array, a {@link ByteBuffer} or a memory-mapped region of a file. Unlike
+ * a plain {@link InputStream}, the content knows its length and can be read any number of times, so requests can be
+ * sent with a fixed Content-Length and be retried. Instances are immutable and can be shared across threads, as
+ * every reader gets its own view of the underlying bytes
+ */
+public final class AnalysisContent {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Bytes of the content, between its position and limit; never modified, only duplicated
+     */
+    private final ByteBuffer buffer;
+
+    private AnalysisContent(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Content backed by a byte array, which is not copied and so must not be modified afterwards
+     *
+     * @param bytes content
+     * @return {@link AnalysisContent}
+     */
+    public static AnalysisContent of(byte[] bytes) {
+        return new AnalysisContent(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Content backed by the remaining bytes of a {@link ByteBuffer}, which are not copied and so must not be
+     * modified afterwards. The position and limit of the buffer are not changed
+     *
+     * @param buffer content
+     * @return {@link AnalysisContent}
+     */
+    public static AnalysisContent of(ByteBuffer buffer) {
+        return new AnalysisContent(buffer.slice());
+    }
+
+    /**
+     * Content of a text, encoded once with the given charset
+     *
+     * @param text    content
+     * @param charset encoding of the content
+     * @return {@link AnalysisContent}
+     */
+    public static AnalysisContent of(String text, Charset charset) {
+        return of(text.getBytes(charset));
+    }
+
+    /**
+     * Content of a whole file, mapped in memory
+     *
+     * @param file file containing the content
+     * @return {@link AnalysisContent}
+     * @throws IOException if the file can not be mapped
+     */
+    public static AnalysisContent of(File file) throws IOException {
+        return of(file, 0, file.length());
+    }
+
+    /**
+     * Content of a region of a file, mapped in memory. The mapping remains valid once the file has been closed, but
+     * its content must not change while in use
+     *
+     * @param file     file containing the content
+     * @param position offset of the region in the file
+     * @param length   length of the region, up to {@link Integer#MAX_VALUE} bytes
+     * @return {@link AnalysisContent}
+     * @throws IOException if the file can not be mapped
+     */
+    public static AnalysisContent of(File file, long position, long length) throws IOException {
+        if (position < 0 || length < 0 || length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invalid file region " + position + "+" + length);
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (position + length > raf.length()) {
+                throw new IllegalArgumentException("file region " + position + "+" + length + " exceeds the size of " + file);
+            }
+            return new AnalysisContent(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, position, length));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Length of the content
+     *
+     * @return number of bytes
+     */
+    public long length() {
+        return buffer.remaining();
+    }
+
+    /**
+     * Opens a new stream reading the content from its beginning, independent of any other stream
+     *
+     * @return {@link InputStream} of the content
+     */
+    public InputStream openStream() {
+        return new ByteBufferInputStream(buffer.duplicate());
+    }
+
+    /**
+     * Read-only view of the content
+     *
+     * @return new {@link ByteBuffer} whose remaining bytes are the content
+     */
+    public ByteBuffer asByteBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Copy of the content
+     *
+     * @return content bytes
+     */
+    public byte[] toByteArray() {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Repeatable entity of the content, with a known length
+     *
+     * @param contentType content type of the entity
+     * @return {@link HttpEntity} of the content
+     */
+    HttpEntity toEntity(String contentType) {
+        final ContentEntity entity = new ContentEntity(buffer);
+        entity.setContentType(contentType);
+        return entity;
+    }
+
+    /**
+     * Writes the content, in slices, to the output
+     */
+    private static void write(ByteBuffer buffer, OutputStream out) throws IOException {
+        final ByteBuffer view = buffer.duplicate();
+        if (view.hasArray()) {
+            out.write(view.array(), view.arrayOffset() + view.position(), view.remaining());
+        } else {
+            final byte[] chunk = new byte[Math.min(BUFFER_SIZE, view.remaining())];
+            while (view.hasRemaining()) {
+                final int n = Math.min(chunk.length, view.remaining());
+                view.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Entity of the content; the non-blocking transport writes it straight from the buffer to the connection
+     */
+    private static class ContentEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * Bytes still to be produced for the non-blocking transport
+         */
+        private ByteBuffer pending;
+
+        private ContentEntity(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteBufferInputStream(buffer.duplicate());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            write(buffer, out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+            if (pending == null) {
+                pending = buffer.duplicate();
+            }
+            encoder.write(pending);
+            if (!pending.hasRemaining()) {
+                encoder.complete();
+                pending = null;
+            }
+        }
+
+        @Override
+        public void close() {
+            pending = null;
+        }
+
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
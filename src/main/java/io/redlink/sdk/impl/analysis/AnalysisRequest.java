@@ -20,6 +20,7 @@ import io.redlink.sdk.RedLink.Analysis;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.Collection;
 
 /**
@@ -90,7 +91,7 @@ public class AnalysisRequest {
      * Supported Content Formats in the Builder API
      */
     private enum ContentType {
-        STRING, FILE, INPUTSTREAM, EMPTY
+        STRING, FILE, INPUTSTREAM, BUFFER, EMPTY
     }
     
     private boolean consumed = false;
@@ -119,7 +120,11 @@ public class AnalysisRequest {
      * String to Analyze
      */
     private Optional<String> contentString = Optional.absent();
-    private Optional<String> contentEncoding = Optional.absent(); 
+
+    /**
+     * Repeatable content, once encoded, mapped or read
+     */
+    private AnalysisContent contentSource;
 
     /**
      * Analysis Service name
@@ -201,7 +206,10 @@ public class AnalysisRequest {
      *
      * @return {@link InputStream} containing the content that is going to be analyzed
      */
-    public InputStream getContent() {
+    public synchronized InputStream getContent() {
+        if (contentSource != null) {
+            return contentSource.openStream();
+        }
         switch(contentType){
             case EMPTY:
                 throw new RuntimeException("There is not Content available to analyze");
@@ -213,19 +221,6 @@ public class AnalysisRequest {
                         throw new RuntimeException(e);
                     }
                 break;
-                case STRING:
-                    if (consumed) {
-                        if (contentEncoding.isPresent()) {
-                            try {
-                                contentStream = Optional.of(IOUtils.toInputStream(contentString.get(), contentEncoding.get()));
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                        } else {
-                            contentStream = Optional.of(IOUtils.toInputStream(contentString.get()));
-                        }
-                    }
-                    break;
                 case INPUTSTREAM:
                     if (consumed) {
                         throw new RuntimeException("The Content Stream to be analyzed has been already consumed");
@@ -239,6 +234,48 @@ public class AnalysisRequest {
         return contentStream.get();
     }
 
+    /**
+     * Get current request content as a repeatable {@link AnalysisContent} of known length. Files are mapped in
+     * memory, and streams are read once and buffered, so the content can be sent again (e.g. on retries)
+     *
+     * @return {@link AnalysisContent} containing the content that is going to be analyzed
+     */
+    public synchronized AnalysisContent getContentSource() {
+        if (contentSource == null) {
+            switch (contentType) {
+                case EMPTY:
+                    throw new RuntimeException("There is not Content available to analyze");
+                case FILE:
+                    try {
+                        contentSource = AnalysisContent.of(contentFile.get());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    if (!consumed) {
+                        IOUtils.closeQuietly(contentStream.get());
+                        consumed = true;
+                    }
+                    break;
+                case INPUTSTREAM:
+                    if (consumed) {
+                        throw new RuntimeException("The Content Stream to be analyzed has been already consumed");
+                    }
+                    try {
+                        contentSource = AnalysisContent.of(IOUtils.toByteArray(contentStream.get()));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        IOUtils.closeQuietly(contentStream.get());
+                        consumed = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return contentSource;
+    }
+
     /**
      * Get current request analysis name
      *
@@ -281,6 +318,65 @@ public class AnalysisRequest {
         return ldpath.orNull();
     }
 
+    /**
+     * Get current request content as text; content not set as a {@link String} is read as UTF-8
+     *
+     * @return the content that is going to be analyzed
+     * @throws IOException
+     */
+    String getText() throws IOException {
+        if (contentType == ContentType.STRING) {
+            return contentString.get();
+        }
+        return new String(getContentSource().toByteArray(), "UTF-8");
+    }
+
+    /**
+     * Copy of this request, with the same parameters, to analyze another content
+     *
+     * @param content      {@link String} content to be analyzed
+     * @param outputFormat {@link OutputFormat} of the response
+     * @return new {@link AnalysisRequest}
+     */
+    AnalysisRequest withContent(String content, OutputFormat outputFormat) {
+        final AnalysisRequestBuilder builder = copy(outputFormat);
+        try {
+            builder.setContent(content, "UTF-8");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Copy of this request, with the same content and parameters, asking for another format of the response
+     *
+     * @param outputFormat {@link OutputFormat} of the response
+     * @return new {@link AnalysisRequest}
+     */
+    AnalysisRequest withOutputFormat(OutputFormat outputFormat) {
+        return copy(outputFormat).setContent(getContentSource()).build();
+    }
+
+    private AnalysisRequestBuilder copy(OutputFormat outputFormat) {
+        final AnalysisRequestBuilder builder = builder()
+                .setInputFormat(inputFormat)
+                .setOutputFormat(outputFormat)
+                .setConfidence(confidence)
+                .setSummaries(summary)
+                .setThumbnails(thumbnail);
+        if (analysis.isPresent()) {
+            builder.setAnalysis(analysis.get());
+        }
+        if (ldpath.isPresent()) {
+            builder.setLDpathProgram(ldpath.get());
+        }
+        for (String field : dereferencedFields) {
+            builder.addDereferencingField(field);
+        }
+        return builder;
+    }
+
     /**
      * Analysis Request Builder. This class allows the user to easily generate {@link AnalysisRequest} objects to
      * be used at {@link Analysis} services
@@ -365,7 +461,7 @@ public class AnalysisRequest {
          */
         public AnalysisRequestBuilder setContent(String content) {
             // Assuming UTF-8
-            this.request.contentStream = Optional.of(IOUtils.toInputStream(content));
+            this.request.contentSource = AnalysisContent.of(content, Charset.defaultCharset());
             this.request.contentString = Optional.of(content);
             this.request.contentType = ContentType.STRING;
             return this;
@@ -380,9 +476,8 @@ public class AnalysisRequest {
          * @throws IOException
          */
         public AnalysisRequestBuilder setContent(String content, String encoding) throws IOException {
-            this.request.contentStream = Optional.of(IOUtils.toInputStream(content, encoding));
+            this.request.contentSource = AnalysisContent.of(content, Charset.forName(encoding));
             this.request.contentString = Optional.of(content);
-            this.request.contentEncoding = Optional.of(encoding);
             this.request.contentType = ContentType.STRING;
             return this;
         }
@@ -397,6 +492,7 @@ public class AnalysisRequest {
         public AnalysisRequestBuilder setContent(File file) throws FileNotFoundException {
             this.request.contentStream = Optional.of((InputStream) new FileInputStream(file));
             this.request.contentFile = Optional.of(file);
+            this.request.contentSource = null;
             this.request.contentType = ContentType.FILE;
             return this;
         }
@@ -409,9 +505,22 @@ public class AnalysisRequest {
          */
         public AnalysisRequestBuilder setContent(InputStream stream) {
             this.request.contentStream = Optional.of(stream);
+            this.request.contentSource = null;
             this.request.contentType = ContentType.INPUTSTREAM;
             return this;
         }
+
+        /**
+         * Set Request Content
+         *
+         * @param content {@link AnalysisContent} to be analyzed
+         * @return Current Request Builder
+         */
+        public AnalysisRequestBuilder setContent(AnalysisContent content) {
+            this.request.contentSource = content;
+            this.request.contentType = ContentType.BUFFER;
+            return this;
+        }
         
         public AnalysisRequestBuilder setLDpathProgram(String ldpathProgram){
             this.request.ldpath = Optional.of(ldpathProgram);
@@ -0,0 +1,157 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.redlink.sdk.RedLink;
+import io.redlink.sdk.impl.analysis.model.Enhancements;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Runs a batch of {@link AnalysisRequest}s over {@link RedLink.Analysis#enhanceAsync(AnalysisRequest)}, keeping at most
+ * <code>parallelism</code> of them in-flight. Requests are only pulled from the source as results are consumed, so
+ * neither the requests nor the results of the whole batch are ever held in memory. A failed request is reported as
+ * an {@link EnhancementResult} carrying the error, and the rest of the batch goes on
+ */
+final class BatchEnhancer implements Iterator<EnhancementResult> {
+
+    private final RedLink.Analysis analysis;
+
+    private final Iterator<AnalysisRequest> requests;
+
+    private final int parallelism;
+
+    private final boolean ordered;
+
+    /**
+     * In-flight requests in submission order (ordered mode)
+     */
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    /**
+     * Results in completion order (unordered mode)
+     */
+    private final BlockingQueue<EnhancementResult> completed = new LinkedBlockingQueue<>();
+
+    private int inFlight = 0;
+
+    private int submitted = 0;
+
+    BatchEnhancer(RedLink.Analysis analysis, Iterator<AnalysisRequest> requests, int parallelism, boolean ordered) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        this.analysis = analysis;
+        this.requests = requests;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return inFlight > 0 || requests.hasNext();
+    }
+
+    @Override
+    public EnhancementResult next() {
+        fill();
+        if (inFlight == 0) {
+            throw new NoSuchElementException();
+        }
+        final EnhancementResult result;
+        try {
+            result = ordered ? await(pending.removeFirst()) : completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        inFlight--;
+        fill();
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void fill() {
+        while (inFlight < parallelism && requests.hasNext()) {
+            submit(submitted++, requests.next());
+            inFlight++;
+        }
+    }
+
+    private void submit(final int index, final AnalysisRequest request) {
+        ListenableFuture<Enhancements> future;
+        try {
+            future = analysis.enhanceAsync(request);
+        } catch (RuntimeException e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+        if (ordered) {
+            pending.addLast(new Pending(index, request, future));
+        } else {
+            Futures.addCallback(future, new FutureCallback<Enhancements>() {
+                @Override
+                public void onSuccess(Enhancements enhancements) {
+                    completed.add(EnhancementResult.success(index, request, enhancements));
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    completed.add(EnhancementResult.failure(index, request, t));
+                }
+            }, MoreExecutors.directExecutor());
+        }
+    }
+
+    private static EnhancementResult await(Pending pending) throws InterruptedException {
+        try {
+            return EnhancementResult.success(pending.index, pending.request, pending.future.get());
+        } catch (ExecutionException e) {
+            return EnhancementResult.failure(pending.index, pending.request, e.getCause());
+        } catch (CancellationException e) {
+            return EnhancementResult.failure(pending.index, pending.request, e);
+        }
+    }
+
+    private static final class Pending {
+
+        private final int index;
+
+        private final AnalysisRequest request;
+
+        private final ListenableFuture<Enhancements> future;
+
+        private Pending(int index, AnalysisRequest request, ListenableFuture<Enhancements> future) {
+            this.index = index;
+            this.request = request;
+            this.future = future;
+        }
+
+    }
+
+}
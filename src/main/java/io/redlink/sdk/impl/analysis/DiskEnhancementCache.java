@@ -0,0 +1,650 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent tier of the {@link EnhancementCache}, which keeps the raw analysis responses on disk so they survive
+ * restarts. Responses are appended to segment files in a directory; the active segment is rolled once it reaches the
+ * segment size, and sealed segments are read through memory-mapped I/O. An in-memory index maps each key to the
+ * location of its latest record, and it is rebuilt on startup by scanning the record headers, so a torn record at the
+ * end of the last segment (e.g. after a crash) is just discarded.
+ * <p>
+ * Segments where most records have been superseded are compacted when rolling, copying their live records to the active
+ * segment, and the oldest segments are dropped when the total size exceeds the maximum size. Instances are thread-safe
+ * and must be created using a {@link DiskEnhancementCacheBuilder}; the same directory must not be opened twice
+ */
+public final class DiskEnhancementCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskEnhancementCache.class);
+
+    /**
+     * Default maximum size of the segments in the directory (bytes)
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024L * 1024 * 1024;
+
+    /**
+     * Default size at which the active segment is rolled (bytes)
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d{8})\\.log");
+
+    private static final int MAGIC = 0x524c4543;
+
+    /**
+     * magic, timestamp and key length
+     */
+    private static final int HEADER = 4 + 8 + 1;
+
+    /**
+     * Sealed segments with less live data than this ratio are compacted
+     */
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final File directory;
+
+    private final long maximumSize;
+
+    private final long segmentSize;
+
+    private final long expireAfterWrite;
+
+    private final Map<HashCode, Location> index = new HashMap<>();
+
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    private Segment active;
+
+    private long size = 0;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    private boolean compacting = false;
+
+    private boolean closed = false;
+
+    private DiskEnhancementCache(File directory, long maximumSize, long segmentSize, long expireAfterWrite) throws IOException {
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+        this.segmentSize = segmentSize;
+        this.expireAfterWrite = expireAfterWrite;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can not create cache directory " + directory);
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        final TreeMap<Integer, File> files = new TreeMap<>();
+        final File[] listed = directory.listFiles();
+        if (listed != null) {
+            for (File file : listed) {
+                final Matcher matcher = SEGMENT.matcher(file.getName());
+                if (matcher.matches()) {
+                    files.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            }
+        }
+        for (Map.Entry<Integer, File> file : files.entrySet()) {
+            final Segment segment = new Segment(file.getKey(), file.getValue());
+            segments.put(segment.id, segment);
+            scan(segment, file.getKey().equals(files.lastKey()));
+            size += segment.size;
+        }
+        if (segments.isEmpty() || segments.lastEntry().getValue().size >= segmentSize) {
+            active = createSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        } else {
+            active = segments.lastEntry().getValue();
+            active.mapped = null;
+        }
+        log.debug("opened enhancement cache at {}: {} entries in {} segments", directory, index.size(), segments.size());
+        evict();
+    }
+
+    /**
+     * Indexes the records of a segment; records in the last segment are also checked, and it is truncated
+     * after the last valid one
+     */
+    private void scan(Segment segment, boolean last) throws IOException {
+        segment.size = segment.channel.size();
+        segment.seal();
+        final ByteBuffer buffer = segment.mapped.duplicate();
+        final long now = System.currentTimeMillis();
+        int position = 0;
+        while (position < segment.size) {
+            buffer.limit((int) segment.size).position(position);
+            final Record record = Record.read(buffer, last);
+            if (record == null) {
+                break;
+            }
+            if (!isExpired(record.timestamp, now)) {
+                final Location old = index.put(record.key, new Location(segment.id, position, record.length, record.timestamp));
+                if (old != null) {
+                    segments.get(old.segment).live -= old.length;
+                }
+                segment.live += record.length;
+            }
+            position += record.length;
+        }
+        if (position < segment.size) {
+            log.warn("discarding {} invalid bytes at the end of {}", segment.size - position, segment.file);
+            segment.channel.truncate(position);
+            segment.size = position;
+            segment.seal();
+        }
+    }
+
+    private Segment createSegment(int id) throws IOException {
+        final Segment segment = new Segment(id, new File(directory, String.format("segment-%08d.log", id)));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Returns the cached response for the key
+     *
+     * @param key cache key
+     * @return the cached response, or null if not found
+     * @throws IOException
+     */
+    synchronized Entry get(HashCode key) throws IOException {
+        checkOpen();
+        final Location location = index.get(key);
+        if (location == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(location.timestamp, System.currentTimeMillis())) {
+            remove(key, location);
+            misses++;
+            return null;
+        }
+        final ByteBuffer buffer = segments.get(location.segment).read(location.offset, location.length);
+        final Record record = Record.read(buffer, true);
+        if (record == null || !record.key.equals(key)) {
+            log.warn("discarding corrupted cache entry {}", key);
+            remove(key, location);
+            misses++;
+            return null;
+        }
+        final byte[] content = new byte[record.payloadLength];
+        buffer.position(record.payloadOffset);
+        buffer.get(content);
+        hits++;
+        return new Entry(record.contentType, content, record.timestamp);
+    }
+
+    /**
+     * Appends a response to the cache, replacing any previous one for the same key
+     *
+     * @param key         cache key
+     * @param contentType media type of the response
+     * @param content     raw response
+     * @throws IOException
+     */
+    synchronized void put(HashCode key, String contentType, byte[] content) throws IOException {
+        checkOpen();
+        final long timestamp = System.currentTimeMillis();
+        append(key, timestamp, Record.write(key, timestamp, contentType, content));
+        evict();
+    }
+
+    private void append(HashCode key, long timestamp, ByteBuffer record) throws IOException {
+        final int length = record.remaining();
+        if (active.size > 0 && active.size + length > segmentSize) {
+            roll();
+        }
+        final int offset = (int) active.size;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += active.channel.write(record, position);
+        }
+        active.size += length;
+        active.live += length;
+        size += length;
+        final Location old = index.put(key, new Location(active.id, offset, length, timestamp));
+        if (old != null) {
+            segments.get(old.segment).live -= old.length;
+        }
+    }
+
+    private void roll() throws IOException {
+        active.seal();
+        active = createSegment(active.id + 1);
+        if (!compacting) {
+            compact(COMPACTION_THRESHOLD);
+        }
+    }
+
+    /**
+     * Rewrites the live entries of the sealed segments holding superseded or expired entries, releasing their space
+     *
+     * @throws IOException
+     */
+    public synchronized void compact() throws IOException {
+        checkOpen();
+        compact(1.0);
+    }
+
+    private void compact(double threshold) throws IOException {
+        compacting = true;
+        try {
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                if (segment != active && segment.live < segment.size * threshold) {
+                    compact(segment);
+                }
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private void compact(Segment segment) throws IOException {
+        final long now = System.currentTimeMillis();
+        final List<Map.Entry<HashCode, Location>> live = new ArrayList<>();
+        for (Map.Entry<HashCode, Location> entry : index.entrySet()) {
+            if (entry.getValue().segment == segment.id) {
+                live.add(entry);
+            }
+        }
+        for (Map.Entry<HashCode, Location> entry : live) {
+            final Location location = entry.getValue();
+            if (isExpired(location.timestamp, now)) {
+                index.remove(entry.getKey());
+            } else {
+                append(entry.getKey(), location.timestamp, segment.read(location.offset, location.length));
+            }
+        }
+        delete(segment);
+        log.debug("compacted {}: {} live entries moved", segment.file, live.size());
+    }
+
+    /**
+     * Drops the oldest segments while the cache exceeds its maximum size; the active one is always kept
+     */
+    private void evict() throws IOException {
+        while (size > maximumSize && segments.size() > 1) {
+            final Segment oldest = segments.firstEntry().getValue();
+            final Iterator<Location> locations = index.values().iterator();
+            while (locations.hasNext()) {
+                if (locations.next().segment == oldest.id) {
+                    locations.remove();
+                }
+            }
+            delete(oldest);
+        }
+    }
+
+    private void delete(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        size -= segment.size;
+        segment.close();
+        if (!segment.file.delete()) {
+            log.warn("could not delete cache segment {}", segment.file);
+        }
+    }
+
+    private void remove(HashCode key, Location location) {
+        index.remove(key);
+        segments.get(location.segment).live -= location.length;
+    }
+
+    private boolean isExpired(long timestamp, long now) {
+        return expireAfterWrite > 0 && now - timestamp > expireAfterWrite;
+    }
+
+    /**
+     * Discards all the cached responses, deleting the segment files
+     *
+     * @throws IOException
+     */
+    public synchronized void invalidateAll() throws IOException {
+        checkOpen();
+        final int next = segments.lastKey() + 1;
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            delete(segment);
+        }
+        index.clear();
+        active = createSegment(next);
+    }
+
+    /**
+     * Number of cached responses
+     *
+     * @return number of entries
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Disk space used by the segments, including superseded entries not yet compacted
+     *
+     * @return size in bytes
+     */
+    public synchronized long getSizeInBytes() {
+        return size;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("enhancement cache at " + directory + " is closed");
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * Cached raw response
+     */
+    static final class Entry {
+
+        final String contentType;
+
+        final byte[] content;
+
+        /**
+         * When the response was written (milliseconds since the epoch)
+         */
+        final long timestamp;
+
+        private Entry(String contentType, byte[] content, long timestamp) {
+            this.contentType = contentType;
+            this.content = content;
+            this.timestamp = timestamp;
+        }
+
+    }
+
+    /**
+     * Latest record of a key
+     */
+    private static final class Location {
+
+        private final int segment;
+
+        private final int offset;
+
+        private final int length;
+
+        private final long timestamp;
+
+        private Location(int segment, int offset, int length, long timestamp) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+        }
+
+    }
+
+    /**
+     * Record layout: magic, timestamp, key length, key, content type length, content type, content length,
+     * content and the CRC-32 of everything from the timestamp to the content
+     */
+    private static final class Record {
+
+        private HashCode key;
+
+        private long timestamp;
+
+        private String contentType;
+
+        private int payloadOffset;
+
+        private int payloadLength;
+
+        private int length;
+
+        static ByteBuffer write(HashCode key, long timestamp, String contentType, byte[] content) {
+            final byte[] keyBytes = key.asBytes();
+            final byte[] type = contentType == null ? new byte[0] : contentType.getBytes(Charsets.UTF_8);
+            final ByteBuffer buffer = ByteBuffer.allocate(HEADER + keyBytes.length + 2 + type.length + 4 + content.length + 4);
+            buffer.putInt(MAGIC)
+                    .putLong(timestamp)
+                    .put((byte) keyBytes.length).put(keyBytes)
+                    .putShort((short) type.length).put(type)
+                    .putInt(content.length).put(content);
+            final CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 4, buffer.position() - 4);
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            return buffer;
+        }
+
+        /**
+         * Reads the record at the position of the buffer
+         *
+         * @return the record, or null if it is truncated or invalid
+         */
+        static Record read(ByteBuffer buffer, boolean verify) {
+            final int start = buffer.position();
+            if (buffer.remaining() < HEADER || buffer.getInt() != MAGIC) {
+                return null;
+            }
+            final Record record = new Record();
+            record.timestamp = buffer.getLong();
+            final int keyLength = buffer.get() & 0xff;
+            if (buffer.remaining() < keyLength + 2) {
+                return null;
+            }
+            final byte[] key = new byte[keyLength];
+            buffer.get(key);
+            final int typeLength = buffer.getShort() & 0xffff;
+            if (keyLength == 0 || buffer.remaining() < typeLength + 4) {
+                return null;
+            }
+            final byte[] type = new byte[typeLength];
+            buffer.get(type);
+            record.payloadLength = buffer.getInt();
+            if (record.payloadLength < 0 || buffer.remaining() < record.payloadLength + 4) {
+                return null;
+            }
+            record.payloadOffset = buffer.position();
+            buffer.position(record.payloadOffset + record.payloadLength);
+            final int checksum = buffer.getInt();
+            if (verify) {
+                final CRC32 crc = new CRC32();
+                final ByteBuffer data = buffer.duplicate();
+                data.position(start + 4).limit(record.payloadOffset + record.payloadLength);
+                final byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                crc.update(bytes);
+                if ((int) crc.getValue() != checksum) {
+                    return null;
+                }
+            }
+            record.key = HashCode.fromBytes(key);
+            record.contentType = typeLength == 0 ? null : new String(type, Charsets.UTF_8);
+            record.length = buffer.position() - start;
+            return record;
+        }
+
+    }
+
+    private static final class Segment {
+
+        private final int id;
+
+        private final File file;
+
+        private final FileChannel channel;
+
+        private long size = 0;
+
+        /**
+         * Bytes of the records still referenced by the index
+         */
+        private long live = 0;
+
+        /**
+         * Read-only view of a sealed segment
+         */
+        private MappedByteBuffer mapped;
+
+        private Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+        }
+
+        private void seal() throws IOException {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        private ByteBuffer read(int offset, int length) throws IOException {
+            if (mapped != null) {
+                final ByteBuffer buffer = mapped.duplicate();
+                buffer.limit(offset + length).position(offset);
+                return buffer.slice();
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of " + file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private void close() throws IOException {
+            mapped = null;
+            channel.close();
+        }
+
+    }
+
+    /**
+     * Disk Enhancement Cache Builder. This class allows the user to easily generate {@link DiskEnhancementCache} objects
+     */
+    public static class DiskEnhancementCacheBuilder {
+
+        private final File directory;
+
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        private long segmentSize = DEFAULT_SEGMENT_SIZE;
+
+        private long expireAfterWrite = 0;
+
+        private DiskEnhancementCacheBuilder(File directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Set the maximum size of the cache; the oldest segments are dropped when it is exceeded
+         *
+         * @param maximumSize maximum size in bytes
+         * @return Current Cache Builder
+         */
+        public DiskEnhancementCacheBuilder setMaximumSize(long maximumSize) {
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("maximum size must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Set the size at which the active segment is rolled
+         *
+         * @param segmentSize segment size in bytes
+         * @return Current Cache Builder
+         */
+        public DiskEnhancementCacheBuilder setSegmentSize(long segmentSize) {
+            if (segmentSize < 1 || segmentSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("invalid segment size: " + segmentSize);
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Set how long a response is cached since it was written; by default responses do not expire on disk, but an
+         * {@link EnhancementCache} never reads responses older than its own time to live
+         *
+         * @param duration time to live (non positive to never expire)
+         * @param unit     unit of the time to live
+         * @return Current Cache Builder
+         */
+        public DiskEnhancementCacheBuilder setExpireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWrite = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Opens the cache, indexing the segments already in the directory
+         *
+         * @return built {@link DiskEnhancementCache} object
+         * @throws IOException if the directory can not be created or read
+         */
+        public DiskEnhancementCache build() throws IOException {
+            return new DiskEnhancementCache(directory, maximumSize, segmentSize, expireAfterWrite);
+        }
+
+    }
+
+    /**
+     * Create a new Cache Builder
+     *
+     * @param directory directory where the segments are stored
+     * @return Created {@link DiskEnhancementCacheBuilder}
+     */
+    public static DiskEnhancementCacheBuilder builder(File directory) {
+        return new DiskEnhancementCacheBuilder(directory);
+    }
+
+}
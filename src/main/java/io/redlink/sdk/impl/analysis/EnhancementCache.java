@@ -0,0 +1,285 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.redlink.sdk.impl.analysis.model.EnhancementParserException;
+import io.redlink.sdk.impl.analysis.model.Enhancements;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of analysis results, keyed by a SHA-256 hash of the analyzed content and of the request
+ * parameters affecting the result, so identical content is only sent once to the analysis service. Entries are
+ * weighted by their number of annotations and entities, evicted in least-recently-used order once the maximum
+ * weight is reached, and expire a fixed time after being written. Optionally, the raw responses are also kept in a
+ * {@link DiskEnhancementCache}, from where they are parsed again when missing in memory (e.g. after a restart) as
+ * long as they have not expired. Cached results are not copied: every hit returns the same {@link Enhancements}
+ * instance, which is safe because the analysis results cannot be modified once parsed (they have no public
+ * mutators and all their collections are unmodifiable views). Instances are thread-safe and must be created using
+ * an {@link EnhancementCacheBuilder}
+ */
+public final class EnhancementCache {
+
+    /**
+     * Default maximum weight (annotations and entities) of the cached results
+     */
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 100 * 1000;
+
+    /**
+     * Default time a result is cached (milliseconds)
+     */
+    public static final long DEFAULT_EXPIRE_AFTER_WRITE = 60 * 60 * 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(EnhancementCache.class);
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final Cache<HashCode, Enhancements> cache;
+
+    private final DiskEnhancementCache disk;
+
+    private final long expireAfterWrite;
+
+    private EnhancementCache(long maximumWeight, long expireAfterWrite, DiskEnhancementCache disk) {
+        this.disk = disk;
+        this.expireAfterWrite = expireAfterWrite;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(new Weigher<HashCode, Enhancements>() {
+                    @Override
+                    public int weigh(HashCode key, Enhancements value) {
+                        return 1 + value.getEnhancements().size() + value.getEntities().size();
+                    }
+                })
+                .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Computes the key of an analysis: the hash of the content and of the request parameters
+     *
+     * @param request {@link AnalysisRequest} parameters
+     * @param content content to be analyzed
+     * @return cache key
+     */
+    static HashCode key(AnalysisRequest request, byte[] content) {
+        return key(request, AnalysisContent.of(content));
+    }
+
+    /**
+     * Computes the key of an analysis: the hash of the content and of the request parameters
+     *
+     * @param request {@link AnalysisRequest} parameters
+     * @param content content to be analyzed
+     * @return cache key
+     */
+    static HashCode key(AnalysisRequest request, AnalysisContent content) {
+        final Hasher hasher = Hashing.sha256().newHasher().putInt((int) content.length());
+        final ByteBuffer buffer = content.asByteBuffer();
+        final byte[] chunk = new byte[Math.min(CHUNK_SIZE, buffer.remaining())];
+        while (buffer.hasRemaining()) {
+            final int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            hasher.putBytes(chunk, 0, n);
+        }
+        hasher.putString(request.getInputFormat(), Charsets.UTF_8).putByte((byte) 0)
+                .putString(String.valueOf(request.getAnalysis()), Charsets.UTF_8).putByte((byte) 0)
+                .putDouble(request.getConfidence())
+                .putBoolean(request.getSummary())
+                .putBoolean(request.getThumbnail())
+                .putString(String.valueOf(request.getLDPathProgram()), Charsets.UTF_8).putByte((byte) 0);
+        for (String field : new TreeSet<>(request.getFieldsToDereference())) {
+            hasher.putString(field, Charsets.UTF_8).putByte((byte) 0);
+        }
+        return hasher.hash();
+    }
+
+    Enhancements get(HashCode key) {
+        Enhancements enhancements = cache.getIfPresent(key);
+        if (enhancements == null && disk != null) {
+            try {
+                final DiskEnhancementCache.Entry entry = disk.get(key);
+                // responses expired in memory are not read again from disk, whatever the expiration of the disk cache
+                if (entry != null && System.currentTimeMillis() - entry.timestamp <= expireAfterWrite) {
+                    final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+                    final ByteArrayEntity entity = new ByteArrayEntity(entry.content);
+                    entity.setContentType(entry.contentType);
+                    response.setEntity(entity);
+                    enhancements = EnhancementsParserFactory.createParser(response).createEnhancements();
+                    cache.put(key, enhancements);
+                }
+            } catch (IOException | EnhancementParserException e) {
+                log.warn("error reading cached enhancements {}: {}", key, e.getMessage());
+            }
+        }
+        return enhancements;
+    }
+
+    /**
+     * Whether the raw responses have to be passed to {@link #put(HashCode, Enhancements, String, byte[])}
+     */
+    boolean isPersistent() {
+        return disk != null;
+    }
+
+    void put(HashCode key, Enhancements enhancements) {
+        cache.put(key, enhancements);
+    }
+
+    void put(HashCode key, Enhancements enhancements, String contentType, byte[] response) {
+        cache.put(key, enhancements);
+        if (disk != null) {
+            try {
+                disk.put(key, contentType, response);
+            } catch (IOException e) {
+                log.warn("error writing cached enhancements {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Number of cached results
+     *
+     * @return approximate number of entries
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Hit, miss and eviction counters of the cache
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Persistent tier of the cache
+     *
+     * @return the disk cache, or null if results are only kept in memory
+     */
+    public DiskEnhancementCache getDiskCache() {
+        return disk;
+    }
+
+    /**
+     * Discards all the cached results, in memory and on disk
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+        if (disk != null) {
+            try {
+                disk.invalidateAll();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Enhancement Cache Builder. This class allows the user to easily generate {@link EnhancementCache} objects
+     */
+    public static class EnhancementCacheBuilder {
+
+        private long maximumWeight = DEFAULT_MAXIMUM_WEIGHT;
+
+        private long expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+
+        private DiskEnhancementCache disk;
+
+        /**
+         * Set the maximum total weight of the cached results, where each result weighs its number of
+         * annotations and entities
+         *
+         * @param maximumWeight maximum weight
+         * @return Current Cache Builder
+         */
+        public EnhancementCacheBuilder setMaximumWeight(long maximumWeight) {
+            if (maximumWeight < 1) {
+                throw new IllegalArgumentException("maximum weight must be positive");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Set how long a result is cached since it was written
+         *
+         * @param duration time to live
+         * @param unit     unit of the time to live
+         * @return Current Cache Builder
+         */
+        public EnhancementCacheBuilder setExpireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 1) {
+                throw new IllegalArgumentException("time to live must be positive");
+            }
+            this.expireAfterWrite = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Set a disk cache where the raw responses are also kept, so they survive restarts. The disk cache is not
+         * closed by the enhancement cache
+         *
+         * @param disk disk cache (null to only keep the results in memory)
+         * @return Current Cache Builder
+         */
+        public EnhancementCacheBuilder setDiskCache(DiskEnhancementCache disk) {
+            this.disk = disk;
+            return this;
+        }
+
+        /**
+         * Returns the enhancement cache
+         *
+         * @return built {@link EnhancementCache} object
+         */
+        public EnhancementCache build() {
+            return new EnhancementCache(maximumWeight, expireAfterWrite, disk);
+        }
+
+    }
+
+    /**
+     * Create a new Cache Builder
+     *
+     * @return Created {@link EnhancementCacheBuilder}
+     */
+    public static EnhancementCacheBuilder builder() {
+        return new EnhancementCacheBuilder();
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import io.redlink.sdk.impl.analysis.model.Enhancements;
+
+/**
+ * Outcome of one of the {@link AnalysisRequest}s of a batch analysis: either the {@link Enhancements}
+ * or the error that made that single request fail
+ */
+public final class EnhancementResult {
+
+    private final int index;
+
+    private final AnalysisRequest request;
+
+    private final Enhancements enhancements;
+
+    private final Throwable error;
+
+    private EnhancementResult(int index, AnalysisRequest request, Enhancements enhancements, Throwable error) {
+        this.index = index;
+        this.request = request;
+        this.enhancements = enhancements;
+        this.error = error;
+    }
+
+    static EnhancementResult success(int index, AnalysisRequest request, Enhancements enhancements) {
+        return new EnhancementResult(index, request, enhancements, null);
+    }
+
+    static EnhancementResult failure(int index, AnalysisRequest request, Throwable error) {
+        return new EnhancementResult(index, request, null, error);
+    }
+
+    /**
+     * Position of the request in the batch, starting at 0
+     *
+     * @return request index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public AnalysisRequest getRequest() {
+        return request;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Enhancements of the request
+     *
+     * @return enhancements, or null if the analysis failed
+     */
+    public Enhancements getEnhancements() {
+        return enhancements;
+    }
+
+    /**
+     * Error of the analysis
+     *
+     * @return the cause of the failure, or null if the analysis succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "EnhancementResult[" + index + (isSuccess() ? "]" : ", " + error + "]");
+    }
+
+}
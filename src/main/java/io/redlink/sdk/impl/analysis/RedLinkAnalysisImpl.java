@@ -17,24 +17,41 @@ import io.redlink.sdk.Credentials;
 import io.redlink.sdk.RedLink;
 import io.redlink.sdk.impl.analysis.AnalysisRequest.InputFormat;
 import io.redlink.sdk.impl.analysis.AnalysisRequest.OutputFormat;
+import io.redlink.sdk.impl.analysis.TextChunker.Chunk;
 import io.redlink.sdk.impl.RedLinkAbstractImpl;
+import io.redlink.sdk.impl.RedLinkClientConfig;
 import io.redlink.sdk.impl.analysis.model.EnhancementParserException;
 import io.redlink.sdk.impl.analysis.model.Enhancements;
 import io.redlink.sdk.impl.analysis.model.EnhancementsParser;
+import io.redlink.sdk.impl.analysis.model.EnhancementsMerger;
 import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory;
 import io.redlink.sdk.util.UriBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * RedLink's {@link Analysis} Service Client implementation. The implementation follows a basic workflow: using the user
@@ -51,16 +68,91 @@ public class RedLinkAnalysisImpl extends RedLinkAbstractImpl implements RedLink.
 
     private static final Logger log = LoggerFactory.getLogger(RedLinkAnalysisImpl.class);
 
+    /**
+     * Results of previous analyses, or null when not caching (neither serialized)
+     */
+    private final transient EnhancementCache cache;
+
+    /**
+     * Analyses in-flight, shared by the concurrent requests of the same content and parameters (not serialized)
+     */
+    private transient volatile ConcurrentMap<HashCode, ListenableFuture<Enhancements>> inFlight;
+
     public RedLinkAnalysisImpl(Credentials credentials) {
-        super(credentials);
+        this(credentials, RedLinkClientConfig.defaultConfig());
+    }
+
+    public RedLinkAnalysisImpl(Credentials credentials, RedLinkClientConfig config) {
+        this(credentials, config, null);
+    }
+
+    public RedLinkAnalysisImpl(Credentials credentials, RedLinkClientConfig config, EnhancementCache cache) {
+        super(credentials, config);
+        this.cache = cache;
+    }
+
+    /**
+     * Cache of the analysis results used by this client
+     *
+     * @return the cache, or null if results are not cached
+     */
+    public EnhancementCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets the analyses in-flight; since they are not serialized, deserialized clients create them on first usage
+     *
+     * @return analyses in-flight
+     */
+    private ConcurrentMap<HashCode, ListenableFuture<Enhancements>> getInFlight() {
+        ConcurrentMap<HashCode, ListenableFuture<Enhancements>> result = inFlight;
+        if (result == null) {
+            synchronized (this) {
+                result = inFlight;
+                if (result == null) {
+                    inFlight = result = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return result;
     }
 
     @Override
     public Enhancements enhance(AnalysisRequest request) {
+        final AnalysisContent content = request.getContentSource();
+        final HashCode key = EnhancementCache.key(request, content);
+        if (cache != null) {
+            final Enhancements enhancements = cache.get(key);
+            if (enhancements != null) {
+                return enhancements;
+            }
+        }
+
+        final SettableFuture<Enhancements> promise = SettableFuture.create();
+        final ListenableFuture<Enhancements> shared = getInFlight().putIfAbsent(key, promise);
+        if (shared != null) {
+            log.debug("joining in-flight analysis {}", key);
+            return await(shared);
+        }
         try {
-            CloseableHttpResponse response = execEnhance(request);
+            final Enhancements enhancements = enhanceContent(request, content, key);
+            promise.set(enhancements);
+            return enhancements;
+        } catch (Throwable t) {
+            // errors too, otherwise the callers joining this analysis would wait forever
+            promise.setException(t);
+            throw t;
+        } finally {
+            getInFlight().remove(key, promise);
+        }
+    }
+
+    private Enhancements enhanceContent(AnalysisRequest request, AnalysisContent content, HashCode key) {
+        try {
+            CloseableHttpResponse response = execEnhance(request, content);
             try {
-                return parseResponse(response);
+                return parseResponse(response, key);
             } finally {
                 response.close();
             }
@@ -74,21 +166,9 @@ public class RedLinkAnalysisImpl extends RedLinkAbstractImpl implements RedLink.
     public <T> T enhance(AnalysisRequest request, Class<T> responseType) {
         Object result = null;
         if (responseType.isAssignableFrom(Enhancements.class)) {
-            AnalysisRequest finalRequest = request;
-            if (request.getOutputMediaType().
-                    equals(OutputFormat.JSON.value()) ||
-                    request.getOutputMediaType().
-                            equals(OutputFormat.XML.value())) {
-                finalRequest = AnalysisRequest.builder().
-                        setAnalysis(request.getAnalysis()).
-                        setContent(request.getContent()).
-                        setInputFormat(InputFormat.valueOf(request.getInputFormat())).
-                        setOutputFormat(OutputFormat.TURTLE).
-                        setConfidence(request.getConfidence()).
-                        setSummaries(request.getSummary()).
-                        setThumbnails(request.getThumbnail()).build();
-            }
-            result = enhance(finalRequest);
+            final OutputFormat format = OutputFormat.valueOf(request.getOutputFormat());
+            final OutputFormat parsed = getParsedFormat(format);
+            result = enhance(parsed != format ? request.withOutputFormat(parsed) : request);
         } else if (responseType.isAssignableFrom((String.class))) {
             try {
                 CloseableHttpResponse response = execEnhance(request);
@@ -119,7 +199,143 @@ public class RedLinkAnalysisImpl extends RedLinkAbstractImpl implements RedLink.
         return responseType.cast(result);
     }
 
+    @Override
+    public ListenableFuture<Enhancements> enhanceAsync(AnalysisRequest request) {
+        final AnalysisContent content;
+        try {
+            content = request.getContentSource();
+        } catch (RuntimeException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+        final HashCode key = EnhancementCache.key(request, content);
+        if (cache != null) {
+            final Enhancements cached = cache.get(key);
+            if (cached != null) {
+                return Futures.immediateFuture(cached);
+            }
+        }
+
+        final SettableFuture<Enhancements> promise = SettableFuture.create();
+        final ListenableFuture<Enhancements> shared = getInFlight().putIfAbsent(key, promise);
+        if (shared != null) {
+            log.debug("joining in-flight analysis {}", key);
+            // a caller cancelling its future must not cancel the analysis for the others
+            return Futures.nonCancellationPropagating(shared);
+        }
+        final ListenableFuture<Enhancements> future;
+        try {
+            final URI target = buildEnhanceTarget(request);
+            final long pre = System.currentTimeMillis();
+            future = client.postAsync(target, content.toEntity(getContentType(request)),
+                    request.getOutputMediaType().toString(), getContentType(request),
+                    new ResponseHandler<Enhancements>() {
+                        @Override
+                        public Enhancements handleResponse(HttpResponse response) throws IOException {
+                            checkResponse(response, pre);
+                            return parseResponse(response, key);
+                        }
+                    });
+        } catch (Throwable t) {
+            // errors too, otherwise the callers joining this analysis would wait forever
+            try {
+                promise.setException(t);
+            } finally {
+                getInFlight().remove(key, promise);
+            }
+            return promise;
+        }
+        Futures.addCallback(future, new FutureCallback<Enhancements>() {
+            @Override
+            public void onSuccess(Enhancements enhancements) {
+                try {
+                    promise.set(enhancements);
+                } finally {
+                    getInFlight().remove(key, promise);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                try {
+                    promise.setException(t);
+                } finally {
+                    getInFlight().remove(key, promise);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return Futures.nonCancellationPropagating(promise);
+    }
+
+    @Override
+    public Iterator<EnhancementResult> enhanceAll(Iterable<AnalysisRequest> requests) {
+        return enhanceAll(requests, client.getConfig().getMaxConnectionsPerRoute(), true);
+    }
+
+    @Override
+    public Iterator<EnhancementResult> enhanceAll(Iterable<AnalysisRequest> requests, int parallelism, boolean ordered) {
+        // more in-flight requests than pooled connections would just queue up waiting for a lease
+        final int bounded = Math.min(parallelism, client.getConfig().getMaxConnectionsPerRoute());
+        return new BatchEnhancer(this, requests.iterator(), bounded, ordered);
+    }
+
+    @Override
+    public Enhancements enhanceChunked(AnalysisRequest request, int chunkSize) {
+        if (!request.getInputMediaType().is(InputFormat.TEXT.value())) {
+            throw new IllegalArgumentException("only plain text content can be split into chunks");
+        }
+        final String text;
+        try {
+            text = request.getText();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // chunks are parsed into enhancements, so plain JSON or XML can not be requested
+        final OutputFormat format = getParsedFormat(OutputFormat.valueOf(request.getOutputFormat()));
+        final List<Chunk> chunks = TextChunker.split(text, chunkSize);
+        final List<AnalysisRequest> requests = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            requests.add(request.withContent(chunk.getText(), format));
+        }
+
+        final EnhancementsMerger merger = new EnhancementsMerger();
+        final Iterator<EnhancementResult> results = enhanceAll(requests);
+        while (results.hasNext()) {
+            final EnhancementResult result = results.next();
+            if (!result.isSuccess()) {
+                throw new RuntimeException("Enhancement of chunk " + result.getIndex() + " failed: "
+                        + result.getError().getMessage(), result.getError());
+            }
+            final Chunk chunk = chunks.get(result.getIndex());
+            merger.add(result.getEnhancements(), chunk.getOffset(), chunk.getText().length());
+        }
+        return merger.merge();
+    }
+
     private CloseableHttpResponse execEnhance(AnalysisRequest request) {
+        return execEnhance(request, request.getContentSource());
+    }
+
+    private CloseableHttpResponse execEnhance(AnalysisRequest request, AnalysisContent content) {
+        final URI target = buildEnhanceTarget(request);
+        try {
+            final long pre = System.currentTimeMillis();
+            // a repeatable entity of known length, so it is not sent chunked and can be retried
+            final CloseableHttpResponse res = client.post(target, content.toEntity(getContentType(request)),
+                    request.getOutputMediaType().toString(), getContentType(request));
+            try {
+                checkResponse(res, pre);
+            } catch (Throwable t) {
+                res.close();
+                throw t;
+            }
+            return res;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private URI buildEnhanceTarget(AnalysisRequest request) {
         try {
 
             // Find out the target analysis
@@ -148,29 +364,60 @@ public class RedLinkAnalysisImpl extends RedLinkAbstractImpl implements RedLink.
 
             log.debug("Making analysis request to " + uriBuilder.build().toString());
 
-            final URI target = credentials.buildUrl(uriBuilder);
+            return credentials.buildUrl(uriBuilder);
+        } catch (IllegalArgumentException | URISyntaxException | MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            final String format = request.getInputMediaType().is(InputFormat.TEXT.value())
-                                            ? InputFormat.TEXT.value().toString()
-                                            : InputFormat.OCTETSTREAM.value().toString();
+    /**
+     * Format to request when the response is parsed into {@link Enhancements}: plain JSON and XML can not be parsed,
+     * so RDF/JSON is requested instead, read with the streaming JSON parser
+     */
+    private static OutputFormat getParsedFormat(OutputFormat format) {
+        return format == OutputFormat.JSON || format == OutputFormat.XML ? OutputFormat.RDFJSON : format;
+    }
 
-            final long pre = System.currentTimeMillis();
-            final CloseableHttpResponse res = client.post(target, request.getContent(), request.getOutputMediaType().toString(), format);
-            final int status = res.getStatusLine().getStatusCode();
-            final String time = String.format("%,d", System.currentTimeMillis() - pre);
-            log.debug("Server response time was {} ms (status={})", time, status);
-
-            if (status >= 200 && status < 300) {
-                return res;
-            } else {
-                String msg = String.format("Enhancement failed: HTTP error code %d, message: %s", status, res.getStatusLine().getReasonPhrase());
-                log.error(msg);
-                log.trace(EntityUtils.toString(res.getEntity()));
-                throw new RuntimeException(msg);
-            }
-        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
-            throw new RuntimeException(e);
+    private static String getContentType(AnalysisRequest request) {
+        return request.getInputMediaType().is(InputFormat.TEXT.value())
+                ? InputFormat.TEXT.value().toString()
+                : InputFormat.OCTETSTREAM.value().toString();
+    }
+
+    private static void checkResponse(HttpResponse res, long pre) throws IOException {
+        final int status = res.getStatusLine().getStatusCode();
+        final String time = String.format("%,d", System.currentTimeMillis() - pre);
+        log.debug("Server response time was {} ms (status={})", time, status);
+
+        if (status < 200 || status >= 300) {
+            String msg = String.format("Enhancement failed: HTTP error code %d, message: %s", status, res.getStatusLine().getReasonPhrase());
+            log.error(msg);
+            log.trace(EntityUtils.toString(res.getEntity()));
+            throw new RuntimeException(msg);
+        }
+    }
+
+    /**
+     * Parses the response, caching the result under the key when caching
+     */
+    private Enhancements parseResponse(HttpResponse response, HashCode key) throws IOException {
+        if (cache == null) {
+            return parseResponse(response);
+        }
+        if (!cache.isPersistent()) {
+            final Enhancements enhancements = parseResponse(response);
+            cache.put(key, enhancements);
+            return enhancements;
         }
+        // the raw response is kept for the disk cache
+        final HttpEntity entity = response.getEntity();
+        final byte[] raw = EntityUtils.toByteArray(entity);
+        final ByteArrayEntity buffered = new ByteArrayEntity(raw);
+        buffered.setContentType(entity.getContentType());
+        response.setEntity(buffered);
+        final Enhancements enhancements = parseResponse(response);
+        cache.put(key, enhancements, entity.getContentType() != null ? entity.getContentType().getValue() : null, raw);
+        return enhancements;
     }
 
     private Enhancements parseResponse(HttpResponse response) throws IOException {
@@ -0,0 +1,81 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a text into chunks on sentence boundaries (line and paragraph breaks included), so each chunk can be
+ * analyzed on its own without cutting any mention in two
+ */
+final class TextChunker {
+
+    private TextChunker() {
+    }
+
+    /**
+     * Splits the text into chunks of whole sentences of at most <code>maxLength</code> characters; a
+     * single sentence longer than that makes a chunk on its own
+     *
+     * @param text      text to split
+     * @param maxLength maximum length of a chunk
+     * @return chunks in document order, covering the whole text
+     */
+    static List<Chunk> split(String text, int maxLength) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("chunk size must be at least 1: " + maxLength);
+        }
+        final List<Chunk> chunks = new ArrayList<>();
+        final BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+        int start = 0;
+        int last = 0;
+        for (int end = sentences.next(); end != BreakIterator.DONE; end = sentences.next()) {
+            if (end - start > maxLength && last > start) {
+                chunks.add(new Chunk(start, text.substring(start, last)));
+                start = last;
+            }
+            last = end;
+        }
+        if (start < text.length()) {
+            chunks.add(new Chunk(start, text.substring(start)));
+        }
+        return chunks;
+    }
+
+    static final class Chunk {
+
+        private final int offset;
+
+        private final String text;
+
+        private Chunk(int offset, String text) {
+            this.offset = offset;
+            this.text = text;
+        }
+
+        int getOffset() {
+            return offset;
+        }
+
+        String getText() {
+            return text;
+        }
+
+    }
+
+}
@@ -0,0 +1,388 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.DCTERMS;
+import org.openrdf.model.vocabulary.RDF;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base RDF Structure parser building the annotations from an index of the statements by subject, without
+ * loading them into a repository or evaluating any query. Implementations feed the statements to the index
+ */
+abstract class AbstractRDFParser extends EnhancementsParser {
+
+    private final Map<Resource, ListMultimap<URI, Value>> subjects = Maps.newHashMap();
+
+    private final Map<Value, Set<Resource>> annotations = Maps.newHashMap();
+
+    /**
+     * Predicates are repeated all along the structure, so a single instance of each one is kept
+     */
+    private final Map<URI, URI> predicates = Maps.newHashMap();
+
+    /**
+     * Adds the statement to the index, grouping it with the rest of properties of its subject
+     *
+     * @param st statement
+     */
+    void index(Statement st) {
+        URI predicate = predicates.get(st.getPredicate());
+        if (predicate == null) {
+            predicate = st.getPredicate();
+            predicates.put(predicate, predicate);
+        }
+
+        ListMultimap<URI, Value> properties = subjects.get(st.getSubject());
+        if (properties == null) {
+            properties = ArrayListMultimap.create(8, 1);
+            subjects.put(st.getSubject(), properties);
+        }
+        properties.put(predicate, st.getObject());
+
+        if (RDF.TYPE.equals(predicate)) {
+            Set<Resource> typed = annotations.get(st.getObject());
+            if (typed == null) {
+                typed = new LinkedHashSet<>();
+                annotations.put(st.getObject(), typed);
+            }
+            typed.add(st.getSubject());
+        }
+    }
+
+    /**
+     * Clears the index
+     */
+    void clear() {
+        subjects.clear();
+        annotations.clear();
+        predicates.clear();
+    }
+
+    @Override
+    Collection<Enhancement> parseEnhancements() throws EnhancementParserException {
+        final Map<Value, Enhancement> enhancementsByUri = new LinkedHashMap<>();
+        try {
+            final Set<Resource> anchors = getTopicAnchors();
+            final Set<TextAnnotation> tas = new HashSet<>();
+            for (Resource annotation : getAnnotations(FISE.TEXT_ANNOTATION)) {
+                if (isTextAnnotation(annotation, anchors)) {
+                    final TextAnnotation ta = parseTextAnnotation(annotation);
+                    if (tas.add(ta)) {
+                        enhancementsByUri.put(annotation, ta);
+                    }
+                }
+            }
+            for (Resource annotation : getAnnotations(FISE.ENTITY_ANNOTATION)) {
+                enhancementsByUri.put(annotation, parseEntityAnnotation(annotation));
+            }
+            for (Resource annotation : getAnnotations(FISE.TOPIC_ANNOTATION)) {
+                enhancementsByUri.put(annotation, parseTopicAnnotation(annotation));
+            }
+            for (Resource annotation : getAnnotations(FISE.TEXT_ANNOTATION)) {
+                if (isSentimentAnnotation(annotation)) {
+                    enhancementsByUri.put(annotation, parseSentimentAnnotation(annotation));
+                }
+            }
+            for (Resource annotation : getAnnotations(FISE.KEYWORD_ANNOTATION)) {
+                enhancementsByUri.put(annotation, parseKeywordAnnotation(annotation));
+            }
+        } catch (NumberFormatException e) {
+            throw new EnhancementParserException("Error parsing enhancements", e);
+        }
+
+        for (Map.Entry<Value, Enhancement> entry : enhancementsByUri.entrySet()) {
+            final Collection<Value> relations = getValues((Resource) entry.getKey(), DCTERMS.RELATION);
+            if (!relations.isEmpty()) {
+                final Collection<Enhancement> related = Sets.newHashSet();
+                for (Value relation : relations) {
+                    final Enhancement enhancement = enhancementsByUri.get(relation);
+                    if (enhancement != null) {
+                        related.add(enhancement);
+                    }
+                }
+                entry.getValue().setRelations(related);
+            }
+        }
+
+        return enhancementsByUri.values();
+    }
+
+    @Override
+    public Collection<String> parseLanguages() throws EnhancementParserException {
+        final Collection<String> languages = Sets.newHashSet();
+        for (Resource annotation : getAnnotations(FISE.TEXT_ANNOTATION)) {
+            if (hasValue(annotation, DCTERMS.TYPE, DCTERMS.LINGUISTIC_SYSTEM)) {
+                for (Value language : getValues(annotation, DCTERMS.LANGUAGE)) {
+                    languages.add(language.stringValue());
+                }
+            }
+        }
+        return languages;
+    }
+
+    @Override
+    public Collection<TextAnnotation> parseTextAnnotations() throws EnhancementParserException {
+        return filter(TextAnnotation.class);
+    }
+
+    @Override
+    public Collection<EntityAnnotation> parseEntityAnnotations() throws EnhancementParserException {
+        return filter(EntityAnnotation.class);
+    }
+
+    @Override
+    public Collection<TopicAnnotation> parseTopicAnnotation() throws EnhancementParserException {
+        return filter(TopicAnnotation.class);
+    }
+
+    @Override
+    public Collection<SentimentAnnotation> parseSentimentAnnotation() throws EnhancementParserException {
+        return filter(SentimentAnnotation.class);
+    }
+
+    @Override
+    public Double parseDocumentSentiment() throws EnhancementParserException {
+        for (Resource annotation : getAnnotations(FISE.TEXT_ANNOTATION)) {
+            if (hasValue(annotation, DCTERMS.TYPE, FISE.DOCUMENT_SENTIMENT)) {
+                final Value sentiment = getFirst(annotation, FISE.SENTIMENT_VALUE);
+                if (sentiment != null) {
+                    try {
+                        return Double.parseDouble(sentiment.stringValue());
+                    } catch (NumberFormatException e) {
+                        throw new EnhancementParserException("Error parsing document sentiment", e);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Entity parseEntity(String entityUri, String dataset) throws EnhancementParserException {
+        return parseEntity(ValueFactoryImpl.getInstance().createURI(entityUri), dataset);
+    }
+
+    private <T extends Enhancement> Collection<T> filter(Class<T> type) throws EnhancementParserException {
+        final List<T> result = new ArrayList<>();
+        Iterables.addAll(result, Iterables.filter(parseEnhancements(), type));
+        return result;
+    }
+
+    /**
+     * Text Annotations used as anchor for Topic Annotations
+     */
+    private Set<Resource> getTopicAnchors() {
+        final Set<Resource> anchors = new HashSet<>();
+        for (Resource topic : getAnnotations(FISE.TOPIC_ANNOTATION)) {
+            for (Value relation : getValues(topic, DCTERMS.RELATION)) {
+                if (relation instanceof Resource) {
+                    anchors.add((Resource) relation);
+                }
+            }
+        }
+        return anchors;
+    }
+
+    private boolean isTextAnnotation(Resource annotation, Set<Resource> anchors) {
+        return !hasValue(annotation, DCTERMS.TYPE, FISE.SENTIMENT)
+                && !hasValue(annotation, DCTERMS.TYPE, FISE.DOCUMENT_SENTIMENT)
+                && !hasValue(annotation, DCTERMS.TYPE, DCTERMS.LINGUISTIC_SYSTEM)
+                && !anchors.contains(annotation)
+                && getFirst(annotation, FISE.SELECTED_TEXT) != null;
+    }
+
+    private boolean isSentimentAnnotation(Resource annotation) {
+        return hasValue(annotation, DCTERMS.TYPE, FISE.SENTIMENT)
+                && !hasValue(annotation, DCTERMS.TYPE, FISE.DOCUMENT_SENTIMENT);
+    }
+
+    private TextAnnotation parseTextAnnotation(Resource annotation) {
+        final TextAnnotation ta = new TextAnnotation();
+        ta.setConfidence(parseConfidence(annotation));
+        final Value selectedText = getFirst(annotation, FISE.SELECTED_TEXT);
+        ta.setSelectedText(selectedText.stringValue(), getLanguage(selectedText));
+        final Value start = getFirst(annotation, FISE.START);
+        final Value end = getFirst(annotation, FISE.END);
+        if (start != null && end != null) {
+            ta.setStarts(Integer.parseInt(start.stringValue()));
+            ta.setEnds(Integer.parseInt(end.stringValue()));
+        }
+        final Value prefix = getFirst(annotation, FISE.SELECTION_PREFIX);
+        final Value suffix = getFirst(annotation, FISE.SELECTION_SUFFIX);
+        if (prefix != null && suffix != null) {
+            ta.setSelectionPrefixSuffix(prefix.stringValue(), suffix.stringValue());
+        }
+        final Value context = getFirst(annotation, FISE.SELECTION_CONTEXT);
+        if (context != null) {
+            ta.setSelectionContext(context.stringValue());
+        }
+        final Value type = getFirst(annotation, DCTERMS.TYPE);
+        if (type != null) {
+            ta.setType(type.stringValue());
+        }
+        return ta;
+    }
+
+    private EntityAnnotation parseEntityAnnotation(Resource annotation) throws EnhancementParserException {
+        final EntityAnnotation ea = new EntityAnnotation();
+        ea.setConfidence(parseConfidence(annotation));
+        final Value label = getFirst(annotation, FISE.ENTITY_LABEL);
+        if (label != null) {
+            ea.setEntityLabel(label.stringValue(), getLanguage(label));
+        }
+        final Value site = getSite(annotation);
+        if (site != null) {
+            ea.setDataset(site.stringValue());
+        }
+        final Value reference = getFirst(annotation, FISE.ENTITY_REFERENCE);
+        if (reference instanceof Resource) {
+            ea.setEntityReference(parseEntity((Resource) reference, ea.getDataset()));
+        }
+        final Collection<String> types = new HashSet<>();
+        for (Value type : getValues(annotation, FISE.ENTITY_TYPE)) {
+            types.add(type.stringValue());
+        }
+        ea.setEntityTypes(types);
+        return ea;
+    }
+
+    private TopicAnnotation parseTopicAnnotation(Resource annotation) throws EnhancementParserException {
+        final TopicAnnotation ta = new TopicAnnotation();
+        ta.setConfidence(parseConfidence(annotation));
+        final Value label = getFirst(annotation, FISE.ENTITY_LABEL);
+        if (label != null) {
+            ta.setTopicLabel(label.stringValue(), getLanguage(label));
+        }
+        final Value site = getSite(annotation);
+        if (site != null) {
+            ta.setOrigin(site.stringValue());
+        }
+        final Value reference = getFirst(annotation, FISE.ENTITY_REFERENCE);
+        if (reference instanceof Resource) {
+            ta.setTopicReference(parseEntity((Resource) reference, ta.getOrigin()));
+        }
+        return ta;
+    }
+
+    private SentimentAnnotation parseSentimentAnnotation(Resource annotation) {
+        final SentimentAnnotation sa = new SentimentAnnotation();
+        sa.setConfidence(parseConfidence(annotation));
+        final Value start = getFirst(annotation, FISE.START);
+        final Value end = getFirst(annotation, FISE.END);
+        if (start != null && end != null) {
+            sa.setStarts(Integer.parseInt(start.stringValue()));
+            sa.setEnds(Integer.parseInt(end.stringValue()));
+        }
+        final Value sentiment = getFirst(annotation, FISE.SENTIMENT_VALUE);
+        if (sentiment != null) {
+            sa.setSentiment(Double.parseDouble(sentiment.stringValue()));
+        }
+        return sa;
+    }
+
+    private KeywordAnnotation parseKeywordAnnotation(Resource annotation) {
+        final KeywordAnnotation ka = new KeywordAnnotation();
+        // for keywords fise:confidence is the metric of the keyword, not the confidence of the annotation
+        ka.setConfidence(1.0);
+        final Value metric = getFirst(annotation, FISE.CONFIDENCE);
+        if (metric != null) {
+            ka.setMetric(Double.parseDouble(metric.stringValue()));
+        }
+        final Value count = getFirst(annotation, FISE.COUNT);
+        if (count != null) {
+            ka.setCount(Integer.parseInt(count.stringValue()));
+        }
+        final Value keyword = getFirst(annotation, FISE.KEYWORD);
+        if (keyword != null) {
+            ka.setKeyword(keyword.stringValue(), getLanguage(keyword));
+        }
+        return ka;
+    }
+
+    private Entity parseEntity(Resource entityUri, String dataset) throws EnhancementParserException {
+        final Entity entity = new Entity(entityUri.stringValue(), dataset);
+        for (Map.Entry<URI, Value> entry : getProperties(entityUri)) {
+            final String property = entry.getKey().stringValue();
+            final Value object = entry.getValue();
+            final String language = getLanguage(object);
+            if (language == null) {
+                entity.addPropertyValue(property, object.stringValue());
+            } else {
+                entity.addPropertyValue(property, language, object.stringValue());
+            }
+        }
+        return entity;
+    }
+
+    private Double parseConfidence(Resource annotation) {
+        final Value confidence = getFirst(annotation, FISE.CONFIDENCE);
+        // Rupert says 1.0 should be the default value...
+        return confidence != null ? Double.parseDouble(confidence.stringValue()) : 1.0;
+    }
+
+    private Value getSite(Resource annotation) {
+        final Value site = getFirst(annotation, FISE.ENTITYHUB_SITE);
+        return site != null ? site : getFirst(annotation, FISE.ORIGIN);
+    }
+
+    private boolean hasValue(Resource subject, URI property, Value value) {
+        return getValues(subject, property).contains(value);
+    }
+
+    private Collection<Resource> getAnnotations(URI type) {
+        final Set<Resource> typed = annotations.get(type);
+        return typed != null ? typed : Collections.<Resource>emptySet();
+    }
+
+    private Value getFirst(Resource subject, URI property) {
+        final List<Value> values = getValues(subject, property);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private List<Value> getValues(Resource subject, URI property) {
+        final ListMultimap<URI, Value> properties = subjects.get(subject);
+        return properties != null ? properties.get(property) : Collections.<Value>emptyList();
+    }
+
+    private Collection<Map.Entry<URI, Value>> getProperties(Resource subject) {
+        final ListMultimap<URI, Value> properties = subjects.get(subject);
+        return properties != null ? properties.entries() : Collections.<Map.Entry<URI, Value>>emptyList();
+    }
+
+    private static String getLanguage(Value value) {
+        return value instanceof Literal ? ((Literal) value).getLanguage() : null;
+    }
+
+}
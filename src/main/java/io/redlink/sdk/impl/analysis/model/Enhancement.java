@@ -14,6 +14,7 @@
 package io.redlink.sdk.impl.analysis.model;
 
 import java.util.Collection;
+import java.util.Collections;
 
 /**
  * RedLink's simplified Analysis' Annotations common schema. For more information, please visit https://stanbol.apache.org/docs/trunk/components/enhancer/enhancementstructure
@@ -53,7 +54,7 @@ public abstract class Enhancement implements Comparable<Enhancement> {
      * @return
      */
     public Collection<Enhancement> getRelations() {
-        return relations;
+        return relations == null ? null : Collections.unmodifiableCollection(relations);
     }
 
     void setRelations(Collection<Enhancement> relations) {
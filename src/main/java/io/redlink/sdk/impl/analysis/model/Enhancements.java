@@ -15,10 +15,10 @@ package io.redlink.sdk.impl.analysis.model;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
@@ -26,6 +26,8 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -35,7 +37,8 @@ import com.google.common.primitives.Doubles;
 
 /**
  * Analysis Result API. This class eases the management of the RedLink analysis service results, providing
- * an API that hides the complexity of the Enhancement Structure returned by the service
+ * an API that hides the complexity of the Enhancement Structure returned by the service. Results can not be
+ * modified once parsed (all the collections returned are unmodifiable), so they can be shared between threads
  *
  * @author sergio.fernandez@redlink.co
  * @author rafa.haro@redlink.co
@@ -55,10 +58,15 @@ public class Enhancements implements Iterable<Enhancement> {
     /**
      * Annotations' languages (LanguageAnnotation)
      */
-    private Collection<String> languages;
+    private Set<String> languages;
     
     private Double documentSentiment;
 
+    /**
+     * Reverse indexes, built once all the enhancements are added and discarded on any later change
+     */
+    private volatile Indexes indexes;
+
     Enhancements() {
         this.enhancements = ArrayListMultimap.create();
         this.entities = Maps.newLinkedHashMap();
@@ -86,6 +94,7 @@ public class Enhancements implements Iterable<Enhancement> {
     }
 
     void addEnhancement(Enhancement enhancement) {
+        indexes = null;
         enhancements.put(enhancement.getClass(), enhancement);
 
         if (enhancement instanceof EntityAnnotation) {
@@ -171,22 +180,14 @@ public class Enhancements implements Iterable<Enhancement> {
     }
 
     /**
-     * Returns a {@link Collection} of {@link EntityAnnotation}s associated to the {@link TextAnnotation} passed by parameter
+     * Returns a {@link Collection} of {@link EntityAnnotation}s associated to the {@link TextAnnotation} passed by parameter,
+     * sorted by confidence and without duplicates (the same relation can be parsed more than once)
      *
      * @param ta {@link TextAnnotation}
      * @return
      */
     public Collection<EntityAnnotation> getEntityAnnotations(TextAnnotation ta) {
-        Collection<EntityAnnotation> eas = getEntityAnnotations();
-        Collection<EntityAnnotation> result = Sets.newHashSet();
-
-        for (EntityAnnotation ea : eas) {
-            if (ea.getRelations() != null && ea.getRelations().contains(ta)) {
-                result.add(ea);
-            }
-        }
-
-        return result;
+        return getIndexes().entityAnnotationsByTextAnnotation.get(ta);
     }
 
     /**
@@ -268,54 +269,23 @@ public class Enhancements implements Iterable<Enhancement> {
                 }).toList();
     }
 
+    /**
+     * Returns the {@link EntityAnnotation}s associated to each {@link TextAnnotation}, sorted by confidence and without
+     * duplicates
+     *
+     * @return immutable view of the annotations
+     */
     public Multimap<TextAnnotation, EntityAnnotation> getEntityAnnotationsByTextAnnotation() {
-        Multimap<TextAnnotation, EntityAnnotation> map = ArrayListMultimap.create();
-
-        Collection<EntityAnnotation> eas = getEntityAnnotations();
-        for (EntityAnnotation ea : eas) {
-            if (ea.relations != null) {
-                for (Enhancement e : ea.relations) {
-                    if (e instanceof TextAnnotation) {
-                        map.put((TextAnnotation) e, ea);
-                    }
-                }
-            }
-        }
-        return map;
+        return getIndexes().entityAnnotationsByTextAnnotation;
     }
 
     /**
      * Returns the best {@link EntityAnnotation}s (those with the highest confidence value) for each extracted {@link TextAnnotation}
      *
-     * @return best annotations
+     * @return immutable view of the best annotations
      */
     public Multimap<TextAnnotation, EntityAnnotation> getBestAnnotations() {
-
-        Ordering<EntityAnnotation> o = new Ordering<EntityAnnotation>() {
-            @Override
-            public int compare(EntityAnnotation left, EntityAnnotation right) {
-                return Doubles.compare(left.confidence, right.confidence);
-            }
-        }.reverse();
-
-        Multimap<TextAnnotation, EntityAnnotation> result = ArrayListMultimap.create();
-        for (TextAnnotation ta : getTextAnnotations()) {
-            List<EntityAnnotation> eas = o.sortedCopy(getEntityAnnotations(ta));
-            if (!eas.isEmpty()) {
-                Collection<EntityAnnotation> highest = new HashSet<>();
-                Double confidence = eas.get(0).getConfidence();
-                for (EntityAnnotation ea : eas) {
-                    if (ea.confidence < confidence) {
-                        break;
-                    } else {
-                        highest.add(ea);
-                    }
-                }
-                result.putAll(ta, highest);
-            }
-        }
-
-        return result;
+        return getIndexes().bestAnnotations;
     }
 
     /**
@@ -323,19 +293,37 @@ public class Enhancements implements Iterable<Enhancement> {
      *
      * @param entityUri
      * @return
+     * @throws NoSuchElementException if there is no annotation for the entity
      */
     public EntityAnnotation getEntityAnnotation(final String entityUri) {
-        return Iterables.find(getEntityAnnotations(),
-                new Predicate<EntityAnnotation>() {
-
-                    @Override
-                    public boolean apply(EntityAnnotation ea) {
-                        return ea.getEntityReference().getUri()
-                                .equals(entityUri);
-                    }
+        final EntityAnnotation ea = getIndexes().entityAnnotationsByUri.get(entityUri);
+        if (ea == null) {
+            throw new NoSuchElementException("No entity annotation for " + entityUri);
+        }
+        return ea;
+    }
 
+    /**
+     * Returns the reverse indexes, building them if needed
+     */
+    private Indexes getIndexes() {
+        Indexes result = indexes;
+        if (result == null) {
+            synchronized (this) {
+                result = indexes;
+                if (result == null) {
+                    indexes = result = new Indexes(getTextAnnotations(), getEntityAnnotations());
                 }
-        );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the reverse indexes, so the accessors don't need to scan the annotations
+     */
+    void buildIndexes() {
+        getIndexes();
     }
 
     /**
@@ -344,14 +332,14 @@ public class Enhancements implements Iterable<Enhancement> {
      * @return
      */
     public Collection<String> getLanguages() {
-        return languages;
+        return Collections.unmodifiableSet(languages);
     }
 
     /**
      * @param languages
      */
     void setLanguages(Collection<String> languages) {
-        this.languages = languages;
+        this.languages = Sets.newHashSet(languages);
     }
 
     /**
@@ -378,10 +366,8 @@ public class Enhancements implements Iterable<Enhancement> {
      *
      * @return
      */
-    @SuppressWarnings("unchecked")
     public Collection<TopicAnnotation> getCategories() {
-        Collection<? extends Enhancement> result = enhancements.get(TopicAnnotation.class);
-        return (Collection<TopicAnnotation>) result; // Should be safe. Needs to be tested
+        return getTopicAnnotations();
     }
 
     /**
@@ -451,5 +437,70 @@ public class Enhancements implements Iterable<Enhancement> {
         }
     }
 
+    /**
+     * Immutable reverse indexes over the annotations
+     */
+    private static final class Indexes {
+
+        private static final Ordering<EntityAnnotation> BY_CONFIDENCE = new Ordering<EntityAnnotation>() {
+            @Override
+            public int compare(EntityAnnotation left, EntityAnnotation right) {
+                return Doubles.compare(left.confidence, right.confidence);
+            }
+        }.reverse();
+
+        /**
+         * Map <TextAnnotation, EntityAnnotations sorted by confidence>
+         */
+        private final ImmutableSetMultimap<TextAnnotation, EntityAnnotation> entityAnnotationsByTextAnnotation;
+
+        /**
+         * Map <Entity URI, EntityAnnotation>
+         */
+        private final ImmutableMap<String, EntityAnnotation> entityAnnotationsByUri;
+
+        /**
+         * Map <TextAnnotation, EntityAnnotations with the highest confidence>
+         */
+        private final ImmutableSetMultimap<TextAnnotation, EntityAnnotation> bestAnnotations;
+
+        Indexes(Collection<TextAnnotation> tas, Collection<EntityAnnotation> eas) {
+            // sorted values would collapse annotations of the same confidence, so they are inserted in order instead
+            final ImmutableSetMultimap.Builder<TextAnnotation, EntityAnnotation> byTextAnnotation = ImmutableSetMultimap.builder();
+            for (EntityAnnotation ea : BY_CONFIDENCE.sortedCopy(eas)) {
+                if (ea.relations != null) {
+                    for (Enhancement e : ea.relations) {
+                        if (e instanceof TextAnnotation) {
+                            byTextAnnotation.put((TextAnnotation) e, ea);
+                        }
+                    }
+                }
+            }
+            final Map<String, EntityAnnotation> byUri = Maps.newLinkedHashMap();
+            for (EntityAnnotation ea : eas) {
+                if (ea.getEntityReference() != null && !byUri.containsKey(ea.getEntityReference().getUri())) {
+                    byUri.put(ea.getEntityReference().getUri(), ea);
+                }
+            }
+            this.entityAnnotationsByTextAnnotation = byTextAnnotation.build();
+            this.entityAnnotationsByUri = ImmutableMap.copyOf(byUri);
+
+            final ImmutableSetMultimap.Builder<TextAnnotation, EntityAnnotation> best = ImmutableSetMultimap.builder();
+            for (TextAnnotation ta : tas) {
+                final Set<EntityAnnotation> sorted = entityAnnotationsByTextAnnotation.get(ta);
+                if (!sorted.isEmpty()) {
+                    final Double confidence = sorted.iterator().next().getConfidence();
+                    for (EntityAnnotation ea : sorted) {
+                        if (ea.confidence < confidence) {
+                            break;
+                        }
+                        best.put(ta, ea);
+                    }
+                }
+            }
+            this.bestAnnotations = best.build();
+        }
+
+    }
 
 }
@@ -0,0 +1,210 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Merges the {@link Enhancements} of the chunks a document was split into, as if the whole document had been
+ * analyzed at once: selections are shifted back to document offsets, {@link Entity}s are shared by URI, and
+ * the document-level annotations (topics, keywords, languages and sentiment) are combined.
+ * <p>
+ * The merged {@link Enhancements} are built from copies of the annotations, so the {@link Enhancements} passed
+ * are never modified: they can be cached or shared, and the same instance can be added more than once
+ */
+public final class EnhancementsMerger {
+
+    private final Enhancements merged = new Enhancements();
+
+    private final Map<String, Entity> entities = new HashMap<>();
+
+    private final Map<String, TopicAnnotation> topics = new HashMap<>();
+
+    private final Map<String, KeywordAnnotation> keywords = new HashMap<>();
+
+    private double sentiment = 0.0;
+
+    private int sentimentLength = 0;
+
+    /**
+     * Adds the enhancements of a chunk
+     *
+     * @param chunk  {@link Enhancements} of the chunk, not modified
+     * @param offset position of the chunk in the document
+     * @param length length of the chunk, used to weight its document sentiment
+     * @return this merger
+     */
+    public EnhancementsMerger add(Enhancements chunk, int offset, int length) {
+        // all the copies are needed before pointing the relations to them
+        final Map<Enhancement, Enhancement> copies = new IdentityHashMap<>();
+        for (Enhancement enhancement : chunk.getEnhancements()) {
+            copies.put(enhancement, merge(enhancement, offset));
+        }
+        for (Map.Entry<Enhancement, Enhancement> entry : copies.entrySet()) {
+            final Collection<Enhancement> relations = entry.getKey().getRelations();
+            if (relations != null) {
+                final Enhancement copy = entry.getValue();
+                // topics and keywords merged into a previous chunk's one keep its relations too
+                final Collection<Enhancement> related = copy.relations != null ? copy.relations : new HashSet<Enhancement>();
+                for (Enhancement relation : relations) {
+                    final Enhancement target = copies.get(relation);
+                    if (target != null) {
+                        related.add(target);
+                    }
+                }
+                copy.setRelations(related);
+            }
+        }
+
+        for (String language : chunk.getLanguages()) {
+            merged.addLanguage(language);
+        }
+        if (chunk.getDocumentSentiment() != null) {
+            sentiment += chunk.getDocumentSentiment() * length;
+            sentimentLength += length;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the merged enhancements of all the chunks added so far
+     *
+     * @return merged {@link Enhancements}
+     */
+    public Enhancements merge() {
+        if (sentimentLength > 0) {
+            merged.setDocumentSentiment(sentiment / sentimentLength);
+        }
+        merged.buildIndexes();
+        return merged;
+    }
+
+    /**
+     * Adds a copy of the annotation to the merged ones, or combines it with the equivalent one of a previous chunk
+     *
+     * @return the merged annotation
+     */
+    private Enhancement merge(Enhancement enhancement, int offset) {
+        if (enhancement instanceof TopicAnnotation) {
+            final TopicAnnotation topic = (TopicAnnotation) enhancement;
+            final TopicAnnotation existing = topic.getTopicReference() != null ? topics.get(topic.getTopicReference().getUri()) : null;
+            if (existing != null) {
+                existing.setConfidence(max(existing.getConfidence(), topic.getConfidence()));
+                return existing;
+            }
+        } else if (enhancement instanceof KeywordAnnotation) {
+            final KeywordAnnotation keyword = (KeywordAnnotation) enhancement;
+            final KeywordAnnotation existing = keywords.get(keyword.getKeyword() + "@" + keyword.getKeywordLang());
+            if (existing != null) {
+                existing.setCount(existing.getCount() + keyword.getCount());
+                existing.setMetric(max(existing.getMetric(), keyword.getMetric()));
+                existing.setConfidence(max(existing.getConfidence(), keyword.getConfidence()));
+                return existing;
+            }
+        }
+
+        final Enhancement copy = copy(enhancement, offset);
+        if (copy instanceof TopicAnnotation) {
+            final TopicAnnotation topic = (TopicAnnotation) copy;
+            if (topic.getTopicReference() != null) {
+                topics.put(topic.getTopicReference().getUri(), topic);
+            }
+        } else if (copy instanceof KeywordAnnotation) {
+            final KeywordAnnotation keyword = (KeywordAnnotation) copy;
+            keywords.put(keyword.getKeyword() + "@" + keyword.getKeywordLang(), keyword);
+        }
+        merged.addEnhancement(copy);
+        return copy;
+    }
+
+    /**
+     * Copies the annotation, shifting its selection by the offset passed; relations are not copied
+     */
+    private Enhancement copy(Enhancement enhancement, int offset) {
+        final Enhancement copy;
+        if (enhancement instanceof TextAnnotation) {
+            final TextAnnotation ta = (TextAnnotation) enhancement;
+            final TextAnnotation result = new TextAnnotation();
+            result.setStarts(ta.getStarts() + offset);
+            result.setEnds(ta.getEnds() + offset);
+            result.setSelectedText(ta.getSelectedText(), ta.getSelectedTextLang());
+            result.setSelectionContext(ta.getSelectionContext());
+            result.setSelectionPrefixSuffix(ta.getSelectionPrefix(), ta.getSelectionSuffix());
+            result.setType(ta.getType());
+            copy = result;
+        } else if (enhancement instanceof SentimentAnnotation) {
+            final SentimentAnnotation sa = (SentimentAnnotation) enhancement;
+            final SentimentAnnotation result = new SentimentAnnotation();
+            result.setSentiment(sa.getSentiment());
+            result.setStarts(sa.getStarts() + offset);
+            result.setEnds(sa.getEnds() + offset);
+            copy = result;
+        } else if (enhancement instanceof EntityAnnotation) {
+            final EntityAnnotation ea = (EntityAnnotation) enhancement;
+            final EntityAnnotation result = new EntityAnnotation();
+            result.setEntityLabel(ea.getEntityLabel(), ea.getEntityLabelLang());
+            result.setEntityReference(share(ea.getEntityReference()));
+            result.setEntityTypes(ea.getEntityTypes() == null ? null : new ArrayList<>(ea.getEntityTypes()));
+            result.setDataset(ea.getDataset());
+            copy = result;
+        } else if (enhancement instanceof TopicAnnotation) {
+            final TopicAnnotation topic = (TopicAnnotation) enhancement;
+            final TopicAnnotation result = new TopicAnnotation();
+            result.setTopicLabel(topic.getTopicLabel(), topic.getTopicLabelLang());
+            result.setTopicReference(share(topic.getTopicReference()));
+            result.setOrigin(topic.getOrigin());
+            result.setSummary(topic.getSummary());
+            copy = result;
+        } else if (enhancement instanceof KeywordAnnotation) {
+            final KeywordAnnotation keyword = (KeywordAnnotation) enhancement;
+            final KeywordAnnotation result = new KeywordAnnotation();
+            result.setKeyword(keyword.getKeyword(), keyword.getKeywordLang());
+            result.setCount(keyword.getCount());
+            result.setMetric(keyword.getMetric());
+            copy = result;
+        } else {
+            throw new IllegalArgumentException("Unsupported enhancement " + enhancement.getClass().getName());
+        }
+        copy.setConfidence(enhancement.getConfidence());
+        return copy;
+    }
+
+    /**
+     * Entities are not modified once parsed, so the first one read of each URI is shared by the copies
+     */
+    private Entity share(Entity entity) {
+        if (entity == null || entity.getUri() == null) {
+            return entity;
+        }
+        final Entity existing = entities.get(entity.getUri());
+        if (existing != null) {
+            return existing;
+        }
+        entities.put(entity.getUri(), entity);
+        return entity;
+    }
+
+    private static Double max(Double a, Double b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : Math.max(a, b);
+    }
+
+}
@@ -35,6 +35,7 @@ public abstract class EnhancementsParser {
         enhancements.setEnhancements(parseEnhancements());
         enhancements.setLanguages(parseLanguages());
         enhancements.setDocumentSentiment(parseDocumentSentiment());
+        enhancements.buildIndexes();
         return enhancements;
     }
 
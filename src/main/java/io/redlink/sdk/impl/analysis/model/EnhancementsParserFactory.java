@@ -13,14 +13,17 @@
  */
 package io.redlink.sdk.impl.analysis.model;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.net.MediaType;
 import io.redlink.sdk.impl.analysis.AnalysisRequest.OutputFormat;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.entity.ContentType;
 import org.openrdf.model.Model;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.TreeModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
 import org.openrdf.rio.*;
 import org.openrdf.rio.helpers.BasicParserSettings;
 import org.openrdf.rio.helpers.ContextStatementCollector;
@@ -29,15 +32,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.charset.Charset;
-import java.nio.charset.IllegalCharsetNameException;
-import java.nio.charset.UnsupportedCharsetException;
 import java.util.UUID;
 
 /**
- * {@link EnhancementsParser} Factory. The RDF Enhancement Structure parser is the one used by default. JSON and XML parser can be also
+ * {@link EnhancementsParser} Factory. The RDF Enhancement Structure parser is the one used by default, evaluating
+ * SPARQL queries over the structure unless another implementation is requested ({@link ParserType}). JSON-LD and RDF/JSON
+ * are read with a dedicated streaming JSON parser. JSON and XML parser can be also
  * created. The proper parser to be returned is automatically inferred from a {@link HttpResponse} object
  *
  * @author rafa.haro@redlink.co
@@ -52,53 +55,155 @@ public final class EnhancementsParserFactory {
     private static final Charset UTF8 = Charset.forName("UTF-8");
 
     /**
-     * Create an {@link RDFStructureParser} as default {@link EnhancementsParser}. The method will try to parse an Enhancement Structure in
-     * RDF format, ignoring the {@link HttpResponse} {@link MediaType}. Users need to ensure that the {@link HttpResponse} contains the Enhancement
-     * Structure in that format
+     * Available implementations of the RDF Enhancement Structure parser
+     */
+    public enum ParserType {
+
+        /**
+         * Loads the Enhancement Structure in an in-memory repository and evaluates SPARQL queries over it
+         */
+        SPARQL,
+
+        /**
+         * Indexes the triples by subject in a single pass as they are received from the RDF parser, without
+         * building a {@link Model}
+         */
+        MODEL
+
+    }
+
+    /**
+     * Create the default RDF {@link EnhancementsParser} ({@link ParserType#SPARQL}). The method will try to parse an Enhancement
+     * Structure in RDF format, ignoring the {@link HttpResponse} {@link MediaType}. Users need to ensure that the {@link HttpResponse}
+     * contains the Enhancement Structure in that format
      *
      * @param response
      * @return
      * @throws EnhancementParserException
      */
     public static final EnhancementsParser createDefaultParser(HttpResponse response) throws EnhancementParserException, IOException {
+        return createParser(response, ParserType.SPARQL);
+    }
+
+    /**
+     * Create a RDF {@link EnhancementsParser} of the given {@link ParserType}, reading the Enhancement Structure from
+     * the {@link HttpResponse}
+     *
+     * @param response
+     * @param type parser implementation
+     * @return
+     * @throws EnhancementParserException
+     */
+    public static final EnhancementsParser createParser(HttpResponse response, ParserType type) throws EnhancementParserException, IOException {
+        switch (type) {
+            case SPARQL:
+                final Model tree = new TreeModel();
+                final ValueFactory mvf = new MemValueFactory();
+                parse(response, new ContextStatementCollector(tree, mvf), mvf);
+                return new RDFStructureParser(tree);
+            case MODEL:
+                final RDFModelParser parser = new RDFModelParser();
+                parse(response, parser, ValueFactoryImpl.getInstance());
+                return parser;
+            default:
+                throw new IllegalArgumentException("Unsupported parser type " + type);
+        }
+    }
+
+    /**
+     * Create a RDF {@link EnhancementsParser} of the given {@link ParserType} over an already parsed Enhancement Structure
+     *
+     * @param model
+     * @param type parser implementation
+     * @return
+     * @throws EnhancementParserException
+     */
+    public static final EnhancementsParser createParser(Model model, ParserType type) throws EnhancementParserException {
+        switch (type) {
+            case SPARQL:
+                return new RDFStructureParser(model);
+            case MODEL:
+                return new RDFModelParser(model);
+            default:
+                throw new IllegalArgumentException("Unsupported parser type " + type);
+        }
+    }
+
+    private static void parse(HttpResponse response, RDFHandler handler, ValueFactory vf) throws EnhancementParserException, IOException {
         ParserConfig config = new ParserConfig();
         // Prevent malformed datetime values
         // TODO review - added to prevent errors when parsing invalid dates
         config.set(BasicParserSettings.VERIFY_DATATYPE_VALUES, false);
-        String uri = response.getFirstHeader(REDLINK).getValue();
-        if (uri == null || uri.isEmpty()) {
-            uri = "urn:uuid-" + UUID.randomUUID().toString();
-        }
-        Model result = new TreeModel();
+        String uri = getBaseUri(response);
         //Prepare to read the response
-        String charsetStr = ContentType.getOrDefault(response.getEntity()).getCharset().displayName();
-        Charset charset;
-        if(charsetStr == null){
-            charset =  UTF8;
-        } else {
-            try {
-                charset = Charset.forName(charsetStr);
-            }catch (IllegalCharsetNameException | UnsupportedCharsetException e){
-                log.warn("Unable to use charset '"+ charsetStr +"'. Will fallback to UTF-8", e);
-                charset = UTF8;
-            }
+        ContentType contentType = ContentType.getOrDefault(response.getEntity());
+        Charset charset = contentType.getCharset();
+        if (charset == null) {
+            charset = UTF8;
         }
-        Reader reader = new InputStreamReader(response.getEntity().getContent(), charset);
+        InputStream in = response.getEntity().getContent();
         try {
-            ValueFactory vf = new MemValueFactory();
-            RDFFormat format = RDFFormat.forMIMEType(ContentType.getOrDefault(response.getEntity()).getMimeType());
+            RDFFormat format = RDFFormat.forMIMEType(contentType.getMimeType());
             RDFParser parser = Rio.createParser(format, vf);
             parser.setParserConfig(config);
-            parser.setRDFHandler(new ContextStatementCollector(result, vf));
-            parser.parse(reader, uri);
+            parser.setRDFHandler(handler);
+            if (UTF8.equals(charset)) {
+                // RDF parsers decode UTF-8 themselves, so the bytes are read directly from the response
+                parser.parse(in, uri);
+            } else {
+                parser.parse(new InputStreamReader(in, charset), uri);
+            }
         } catch (RDFHandlerException | RDFParseException e) {
             throw new EnhancementParserException("Error Parsing Analysis results" ,e);
         } catch (IOException e) {
             throw new EnhancementParserException("Unable to read Analysis response" ,e);
         } finally {
-            IOUtils.closeQuietly(reader);
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static String getBaseUri(HttpResponse response) {
+        Header header = response.getFirstHeader(REDLINK);
+        String uri = header != null ? header.getValue() : null;
+        if (uri == null || uri.isEmpty()) {
+            uri = "urn:uuid-" + UUID.randomUUID().toString();
         }
-        return new RDFStructureParser(result);
+        return uri;
+    }
+
+    /**
+     * Create a {@link RDFModelParser} reading an Enhancement Structure serialized in JSON-LD or RDF/JSON
+     * with Jackson's streaming parser, without going through the generic RDF parsers
+     *
+     * @param response
+     * @param format {@link OutputFormat#JSONLD} or {@link OutputFormat#RDFJSON}
+     * @return
+     * @throws EnhancementParserException
+     */
+    public static final EnhancementsParser createJsonParser(HttpResponse response, OutputFormat format) throws EnhancementParserException, IOException {
+        final RDFModelParser parser = new RDFModelParser();
+        final JSONStructureReader reader = new JSONStructureReader(parser, getBaseUri(response));
+        // Jackson detects the Unicode encoding from the bytes
+        InputStream in = response.getEntity().getContent();
+        try {
+            switch (format) {
+                case JSONLD:
+                    reader.readJSONLD(in);
+                    break;
+                case RDFJSON:
+                    reader.readRDFJSON(in);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported JSON format " + format);
+            }
+        } catch (JsonProcessingException | RDFHandlerException | IllegalArgumentException e) {
+            throw new EnhancementParserException("Error Parsing Analysis results" ,e);
+        } catch (IOException e) {
+            throw new EnhancementParserException("Unable to read Analysis response" ,e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return parser;
     }
 
     /**
@@ -112,8 +217,14 @@ public final class EnhancementsParserFactory {
     public static final EnhancementsParser createParser(HttpResponse response) throws EnhancementParserException, IOException {
     	String type = ContentType.getOrDefault(response.getEntity()).getMimeType();
         OutputFormat format = OutputFormat.get(type);
+        if (format == null) {
+            return createDefaultParser(response);
+        }
 
         switch (format) {
+            case JSONLD:
+            case RDFJSON:
+                return createJsonParser(response, format);
 //		case XML: 
 //		case JSON:
 ////			FlatEnhancementStructure result = 
@@ -123,7 +123,7 @@ public class Entity {
             return Collections.emptyList();
         }
 
-        return values.values();
+        return Collections.unmodifiableCollection(values.values());
     }
 
     /**
@@ -167,7 +167,7 @@ public class Entity {
      * @return
      */
     public Collection<String> getProperties() {
-        return properties.keySet();
+        return Collections.unmodifiableSet(properties.keySet());
     }
 
     /**
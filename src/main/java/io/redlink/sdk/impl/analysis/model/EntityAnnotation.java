@@ -14,6 +14,8 @@
 package io.redlink.sdk.impl.analysis.model;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 
 /**
  * Entity annotation, suggested/linked entities recognized within the text
@@ -83,12 +85,21 @@ public final class EntityAnnotation extends Enhancement {
      * @return
      */
     public Collection<String> getEntityTypes() {
-        return entityTypes;
+        return entityTypes == null ? null : Collections.unmodifiableCollection(entityTypes);
     }
 
     void setEntityTypes(Collection<String> entityTypes) {
         this.entityTypes = entityTypes;
     }
+
+    void addEntityType(String entityType) {
+        if (entityTypes == null) {
+            entityTypes = new HashSet<>();
+        }
+        if (!entityTypes.contains(entityType)) {
+            entityTypes.add(entityType);
+        }
+    }
     
     /**
      * The dataset of the entity (e.g. an own dataset or a public dataset of an other user)
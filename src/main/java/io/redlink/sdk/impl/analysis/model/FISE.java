@@ -0,0 +1,100 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+/**
+ * Vocabulary of the Enhancement Structure (https://stanbol.apache.org/docs/trunk/components/enhancer/enhancementstructure)
+ * used by the {@link EnhancementsParser}s
+ */
+final class FISE {
+
+    static final String NAMESPACE = "http://fise.iks-project.eu/ontology/";
+
+    static final String ENTITYHUB_NAMESPACE = "http://stanbol.apache.org/ontology/entityhub/entityhub#";
+
+    static final URI TEXT_ANNOTATION;
+
+    static final URI ENTITY_ANNOTATION;
+
+    static final URI TOPIC_ANNOTATION;
+
+    static final URI KEYWORD_ANNOTATION;
+
+    static final URI SENTIMENT;
+
+    static final URI DOCUMENT_SENTIMENT;
+
+    static final URI CONFIDENCE;
+
+    static final URI START;
+
+    static final URI END;
+
+    static final URI SELECTION_PREFIX;
+
+    static final URI SELECTION_SUFFIX;
+
+    static final URI SELECTION_CONTEXT;
+
+    static final URI SELECTED_TEXT;
+
+    static final URI ENTITY_LABEL;
+
+    static final URI ENTITY_REFERENCE;
+
+    static final URI ENTITY_TYPE;
+
+    static final URI ORIGIN;
+
+    static final URI SENTIMENT_VALUE;
+
+    static final URI COUNT;
+
+    static final URI KEYWORD;
+
+    static final URI ENTITYHUB_SITE;
+
+    static {
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+        TEXT_ANNOTATION = vf.createURI(NAMESPACE, "TextAnnotation");
+        ENTITY_ANNOTATION = vf.createURI(NAMESPACE, "EntityAnnotation");
+        TOPIC_ANNOTATION = vf.createURI(NAMESPACE, "TopicAnnotation");
+        KEYWORD_ANNOTATION = vf.createURI(NAMESPACE, "KeywordAnnotation");
+        SENTIMENT = vf.createURI(NAMESPACE, "Sentiment");
+        DOCUMENT_SENTIMENT = vf.createURI(NAMESPACE, "DocumentSentiment");
+        CONFIDENCE = vf.createURI(NAMESPACE, "confidence");
+        START = vf.createURI(NAMESPACE, "start");
+        END = vf.createURI(NAMESPACE, "end");
+        SELECTION_PREFIX = vf.createURI(NAMESPACE, "selection-prefix");
+        SELECTION_SUFFIX = vf.createURI(NAMESPACE, "selection-suffix");
+        SELECTION_CONTEXT = vf.createURI(NAMESPACE, "selection-context");
+        SELECTED_TEXT = vf.createURI(NAMESPACE, "selected-text");
+        ENTITY_LABEL = vf.createURI(NAMESPACE, "entity-label");
+        ENTITY_REFERENCE = vf.createURI(NAMESPACE, "entity-reference");
+        ENTITY_TYPE = vf.createURI(NAMESPACE, "entity-type");
+        ORIGIN = vf.createURI(NAMESPACE, "origin");
+        SENTIMENT_VALUE = vf.createURI(NAMESPACE, "sentiment");
+        COUNT = vf.createURI(NAMESPACE, "count");
+        KEYWORD = vf.createURI(NAMESPACE, "keyword");
+        ENTITYHUB_SITE = vf.createURI(ENTITYHUB_NAMESPACE, "site");
+    }
+
+    private FISE() {
+    }
+
+}
@@ -0,0 +1,531 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the Enhancement Structure serialized as RDF/JSON or JSON-LD using Jackson's streaming {@link JsonParser},
+ * passing the triples directly to a {@link RDFHandler} without any intermediate tree or RDF model.
+ *
+ * The JSON-LD support covers what is needed by the Enhancement Structure: prefixes, term definitions (with
+ * <code>@id</code>, <code>@type</code> and <code>@language</code>), <code>@vocab</code>, <code>@graph</code>,
+ * value objects and embedded node objects. Remote contexts are not dereferenced, and <code>@list</code>
+ * values are read as plain sets of values.
+ */
+final class JSONStructureReader {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private static final int MAX_EXPANSION_DEPTH = 16;
+
+    private final RDFHandler handler;
+
+    private final String baseUri;
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    JSONStructureReader(RDFHandler handler, String baseUri) {
+        this.handler = handler;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Reads a RDF/JSON document
+     *
+     * @param in document
+     * @throws IOException if the document can't be read or it is not valid RDF/JSON
+     * @throws RDFHandlerException
+     */
+    void readRDFJSON(InputStream in) throws IOException, RDFHandlerException {
+        final JsonParser parser = factory.createParser(in);
+        try {
+            handler.startRDF();
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final Resource subject = createResource(parser.getCurrentName());
+                expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final URI predicate = vf.createURI(parser.getCurrentName());
+                    expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        handler.handleStatement(vf.createStatement(subject, predicate, readRDFJSONValue(parser)));
+                    }
+                    expect(parser, parser.getCurrentToken(), JsonToken.END_ARRAY);
+                }
+            }
+            handler.endRDF();
+        } finally {
+            parser.close();
+        }
+    }
+
+    private Value readRDFJSONValue(JsonParser parser) throws IOException {
+        String type = null, value = null, lang = null, datatype = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "type":
+                    type = parser.getText();
+                    break;
+                case "value":
+                    value = parser.getText();
+                    break;
+                case "lang":
+                    lang = parser.getText();
+                    break;
+                case "datatype":
+                    datatype = parser.getText();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (type == null || value == null) {
+            throw new JsonParseException(parser, "RDF/JSON values require 'type' and 'value'");
+        }
+        switch (type) {
+            case "uri":
+                return vf.createURI(value);
+            case "bnode":
+                return vf.createBNode(value.startsWith("_:") ? value.substring(2) : value);
+            case "literal":
+                if (lang != null) {
+                    return vf.createLiteral(value, lang);
+                } else if (datatype != null) {
+                    return vf.createLiteral(value, vf.createURI(datatype));
+                } else {
+                    return vf.createLiteral(value);
+                }
+            default:
+                throw new JsonParseException(parser, "Unknown RDF/JSON value type '" + type + "'");
+        }
+    }
+
+    /**
+     * Reads a JSON-LD document
+     *
+     * @param in document
+     * @throws IOException if the document can't be read or it is not valid JSON-LD
+     * @throws RDFHandlerException
+     */
+    void readJSONLD(InputStream in) throws IOException, RDFHandlerException {
+        final JsonParser parser = factory.createParser(in);
+        try {
+            handler.startRDF();
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                readNodes(parser, new Context());
+            } else {
+                expect(parser, token, JsonToken.START_OBJECT);
+                readDocument(parser);
+            }
+            handler.endRDF();
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Top level object: the properties and the <code>@graph</code> found before the <code>@context</code>
+     * (if any) are buffered and read once the context is known
+     */
+    private void readDocument(JsonParser parser) throws IOException, RDFHandlerException {
+        Context context = new Context();
+        boolean hasContext = false;
+        TokenBuffer graph = null, node = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("@context".equals(field)) {
+                context = readContext(parser, context);
+                hasContext = true;
+            } else if ("@graph".equals(field)) {
+                if (hasContext) {
+                    readNodes(parser, context);
+                } else {
+                    graph = new TokenBuffer(parser);
+                    graph.copyCurrentStructure(parser);
+                }
+            } else {
+                if (node == null) {
+                    node = new TokenBuffer(parser);
+                    node.writeStartObject();
+                }
+                node.writeFieldName(field);
+                node.copyCurrentStructure(parser);
+            }
+        }
+        if (graph != null) {
+            final JsonParser graphParser = graph.asParser();
+            graphParser.nextToken();
+            readNodes(graphParser, context);
+        }
+        if (node != null) {
+            node.writeEndObject();
+            final JsonParser nodeParser = node.asParser();
+            nodeParser.nextToken();
+            readValues(nodeParser, context, null, new ArrayList<Value>());
+        }
+    }
+
+    private void readNodes(JsonParser parser, Context context) throws IOException, RDFHandlerException {
+        readValues(parser, context, null, new ArrayList<Value>());
+    }
+
+    /**
+     * Reads the value(s) at the current token, adding them to the list passed
+     */
+    private void readValues(JsonParser parser, Context context, Term term, List<Value> values) throws IOException, RDFHandlerException {
+        switch (parser.getCurrentToken()) {
+            case START_ARRAY:
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    readValues(parser, context, term, values);
+                }
+                break;
+            case START_OBJECT:
+                readObject(parser, context, term, values);
+                break;
+            case VALUE_STRING:
+                values.add(createValue(parser.getText(), context, term));
+                break;
+            case VALUE_NUMBER_INT:
+                values.add(vf.createLiteral(parser.getText(), term != null && term.type != null && !term.type.startsWith("@")
+                        ? vf.createURI(term.type) : XMLSchema.INTEGER));
+                break;
+            case VALUE_NUMBER_FLOAT:
+                values.add(vf.createLiteral(parser.getText(), term != null && term.type != null && !term.type.startsWith("@")
+                        ? vf.createURI(term.type) : XMLSchema.DOUBLE));
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                values.add(vf.createLiteral(parser.getText(), XMLSchema.BOOLEAN));
+                break;
+            case VALUE_NULL:
+                break;
+            default:
+                throw new JsonParseException(parser, "Unexpected token " + parser.getCurrentToken());
+        }
+    }
+
+    /**
+     * Reads a value object (adding the literal) or a node object (sending its statements to
+     * the handler, and adding its subject)
+     */
+    private void readObject(JsonParser parser, Context context, Term term, List<Value> result) throws IOException, RDFHandlerException {
+        String id = null, value = null, language = null;
+        JsonToken valueToken = null;
+        final List<String> types = new ArrayList<>();
+        final List<URI> predicates = new ArrayList<>();
+        final List<List<Value>> objects = new ArrayList<>();
+        boolean hasLanguage = false, isSet = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            switch (field) {
+                case "@context":
+                    context = readContext(parser, context);
+                    break;
+                case "@id":
+                    id = parser.getText();
+                    break;
+                case "@type":
+                    if (token == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            types.add(parser.getText());
+                        }
+                    } else {
+                        types.add(parser.getText());
+                    }
+                    break;
+                case "@value":
+                    value = parser.getText();
+                    valueToken = token;
+                    break;
+                case "@language":
+                    language = parser.getText();
+                    hasLanguage = true;
+                    break;
+                case "@graph":
+                    readNodes(parser, context);
+                    break;
+                case "@set":
+                case "@list":
+                    // the enhancement structure has no ordered values, so lists are read as sets
+                    readValues(parser, context, term, result);
+                    isSet = true;
+                    break;
+                default:
+                    if (field.startsWith("@")) {
+                        parser.skipChildren();
+                    } else {
+                        final String predicate = context.expand(field, true);
+                        if (predicate == null || predicate.startsWith("_:") || predicate.indexOf(':') < 0) {
+                            // not mapped to an IRI, so it is dropped
+                            parser.skipChildren();
+                        } else {
+                            final List<Value> values = new ArrayList<>();
+                            readValues(parser, context, context.getTerm(field), values);
+                            predicates.add(vf.createURI(predicate));
+                            objects.add(values);
+                        }
+                    }
+            }
+        }
+
+        if (isSet) {
+            return;
+        } else if (value != null) {
+            if (hasLanguage && language != null) {
+                result.add(vf.createLiteral(value, language));
+            } else if (!types.isEmpty()) {
+                result.add(vf.createLiteral(value, vf.createURI(context.expand(types.get(0), true))));
+            } else if (valueToken == JsonToken.VALUE_NUMBER_INT) {
+                result.add(vf.createLiteral(value, XMLSchema.INTEGER));
+            } else if (valueToken == JsonToken.VALUE_NUMBER_FLOAT) {
+                result.add(vf.createLiteral(value, XMLSchema.DOUBLE));
+            } else if (valueToken == JsonToken.VALUE_TRUE || valueToken == JsonToken.VALUE_FALSE) {
+                result.add(vf.createLiteral(value, XMLSchema.BOOLEAN));
+            } else {
+                result.add(vf.createLiteral(value));
+            }
+            return;
+        }
+
+        final Resource subject = id != null ? createResource(context.expand(id, false)) : vf.createBNode();
+        for (String type : types) {
+            handler.handleStatement(vf.createStatement(subject, RDF.TYPE, createResource(context.expand(type, true))));
+        }
+        for (int i = 0; i < predicates.size(); i++) {
+            for (Value object : objects.get(i)) {
+                handler.handleStatement(vf.createStatement(subject, predicates.get(i), object));
+            }
+        }
+        result.add(subject);
+    }
+
+    private Value createValue(String value, Context context, Term term) {
+        if (term != null && "@id".equals(term.type)) {
+            return createResource(context.expand(value, false));
+        } else if (term != null && "@vocab".equals(term.type)) {
+            return createResource(context.expand(value, true));
+        } else if (term != null && term.type != null) {
+            return vf.createLiteral(value, vf.createURI(term.type));
+        }
+        final String language = term != null && term.hasLanguage ? term.language : context.language;
+        return language != null ? vf.createLiteral(value, language) : vf.createLiteral(value);
+    }
+
+    private Resource createResource(String iri) {
+        if (iri.startsWith("_:")) {
+            return vf.createBNode(iri.substring(2));
+        } else if (iri.indexOf(':') < 0 && baseUri != null) {
+            try {
+                final java.net.URI resolved = java.net.URI.create(baseUri).resolve(iri);
+                if (resolved.isAbsolute()) {
+                    return vf.createURI(resolved.toString());
+                }
+            } catch (IllegalArgumentException e) {
+                // falls back to the plain concatenation
+            }
+            return vf.createURI(baseUri + iri);
+        }
+        return vf.createURI(iri);
+    }
+
+    private Context readContext(JsonParser parser, Context parent) throws IOException {
+        final Context context = new Context(parent);
+        switch (parser.getCurrentToken()) {
+            case START_ARRAY:
+                Context result = parent;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    result = readContext(parser, result);
+                }
+                return result;
+            case START_OBJECT:
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String field = parser.getCurrentName();
+                    final JsonToken token = parser.nextToken();
+                    switch (field) {
+                        case "@vocab":
+                            context.vocab = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                            break;
+                        case "@language":
+                            context.language = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                            break;
+                        default:
+                            if (field.startsWith("@")) {
+                                parser.skipChildren();
+                            } else if (token == JsonToken.VALUE_STRING) {
+                                context.terms.put(field, new Term(parser.getText()));
+                            } else if (token == JsonToken.START_OBJECT) {
+                                context.terms.put(field, readTerm(parser, field));
+                            } else {
+                                // null (or invalid) definitions remove the term
+                                parser.skipChildren();
+                                context.terms.put(field, null);
+                            }
+                    }
+                }
+                // term types are expanded once all the prefixes are known
+                for (Term term : context.terms.values()) {
+                    if (term != null && term.type != null && !term.type.startsWith("@")) {
+                        term.type = context.expand(term.type, true);
+                    }
+                }
+                return context;
+            case VALUE_NULL:
+                return new Context();
+            default:
+                // remote contexts are not supported
+                return parent;
+        }
+    }
+
+    private Term readTerm(JsonParser parser, String name) throws IOException {
+        final Term term = new Term(name);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            switch (field) {
+                case "@id":
+                    term.id = parser.getText();
+                    break;
+                case "@type":
+                    term.type = parser.getText();
+                    break;
+                case "@language":
+                    term.language = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                    term.hasLanguage = true;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return term;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+        }
+    }
+
+    /**
+     * JSON-LD term definition
+     */
+    private static class Term {
+
+        private String id;
+
+        private String type;
+
+        private String language;
+
+        private boolean hasLanguage = false;
+
+        Term(String id) {
+            this.id = id;
+        }
+
+    }
+
+    /**
+     * JSON-LD active context
+     */
+    private static class Context {
+
+        private final Map<String, Term> terms;
+
+        private String vocab;
+
+        private String language;
+
+        Context() {
+            this.terms = new HashMap<>();
+        }
+
+        Context(Context parent) {
+            this.terms = new HashMap<>(parent.terms);
+            this.vocab = parent.vocab;
+            this.language = parent.language;
+        }
+
+        Term getTerm(String name) {
+            return terms.get(name);
+        }
+
+        /**
+         * Expands terms (only in vocabulary mode) and compact IRIs
+         */
+        String expand(String value, boolean vocab) {
+            return expand(value, vocab, 0);
+        }
+
+        private String expand(String value, boolean vocab, int depth) {
+            if (value == null || value.startsWith("@") || depth > MAX_EXPANSION_DEPTH) {
+                return value;
+            }
+            if (vocab && terms.containsKey(value)) {
+                final Term term = terms.get(value);
+                if (term == null) {
+                    return null;
+                } else if (!value.equals(term.id)) {
+                    return expand(term.id, true, depth + 1);
+                }
+            }
+            final int colon = value.indexOf(':');
+            if (colon > 0) {
+                final String prefix = value.substring(0, colon);
+                final String suffix = value.substring(colon + 1);
+                if ("_".equals(prefix) || suffix.startsWith("//")) {
+                    return value;
+                }
+                final Term term = terms.get(prefix);
+                if (term != null && !value.equals(term.id)) {
+                    return expand(term.id, true, depth + 1) + suffix;
+                }
+                return value;
+            }
+            if (vocab && this.vocab != null) {
+                return this.vocab + value;
+            }
+            return value;
+        }
+
+    }
+
+}
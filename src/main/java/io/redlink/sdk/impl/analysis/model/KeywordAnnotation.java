@@ -31,7 +31,7 @@ public class KeywordAnnotation extends Enhancement {
         super();
     }
     
-    public void setKeyword(String keyword, String lang) {
+    void setKeyword(String keyword, String lang) {
         this.keyword = keyword;
         this.keywordLang = lang;
     }
@@ -0,0 +1,64 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import org.openrdf.model.Model;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandler;
+
+/**
+ * RDF Structure parser indexing the statements by subject in a single pass, without loading them into a
+ * repository or evaluating any query. As a Rio {@link RDFHandler} it receives the triples directly from the
+ * RDF parser, so no {@link Model} is built; it can also index an already parsed {@link Model}. The annotations
+ * are assembled, and their <code>dct:relation</code> links resolved, from the index once the whole structure
+ * has been received, since the triples of an Enhancement Structure come in no particular order
+ */
+final class RDFModelParser extends AbstractRDFParser implements RDFHandler {
+
+    RDFModelParser() {
+    }
+
+    public RDFModelParser(Model model) {
+        // the filter() of the generic models scans the whole predicate indexes, so an own index is built instead
+        for (Statement st : model) {
+            index(st);
+        }
+    }
+
+    @Override
+    public void startRDF() {
+        clear();
+    }
+
+    @Override
+    public void endRDF() {
+        // annotations are assembled on demand from the index
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) {
+        // namespaces are not relevant for the enhancements
+    }
+
+    @Override
+    public void handleStatement(Statement st) {
+        index(st);
+    }
+
+    @Override
+    public void handleComment(String comment) {
+        // comments are not relevant for the enhancements
+    }
+
+}
@@ -38,10 +38,7 @@ import org.openrdf.repository.Repository;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 
-import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
@@ -145,7 +142,10 @@ final class RDFStructureParser extends EnhancementsParser {
                     Collection<String> relationsUris = relations.get(e);
                     Collection<Enhancement> relationsEnhans = Sets.newHashSet();
                     for (String uri : relationsUris) {
-                        relationsEnhans.add(enhancementsByUri.get(uri));
+                        Enhancement relation = enhancementsByUri.get(uri);
+                        if (relation != null) {
+                            relationsEnhans.add(relation);
+                        }
                     }
                     e.setRelations(relationsEnhans);
                 }
@@ -432,18 +432,7 @@ final class RDFStructureParser extends EnhancementsParser {
             if (result.hasBinding("entityType")) {
                 final String entityType = result.getBinding("entityType")
                         .getValue().stringValue();
-                Collection<String> types = entityAnnotation.getEntityTypes();
-                Optional<String> eType = Iterables.tryFind(types,
-                        new Predicate<String>() {
-
-                            @Override
-                            public boolean apply(String arg0) {
-                                return arg0.equals(entityType);
-                            }
-
-                        });
-                if (!eType.isPresent())
-                    types.add(entityType);
+                entityAnnotation.addEntityType(entityType);
             }
         }
 
@@ -470,7 +459,7 @@ final class RDFStructureParser extends EnhancementsParser {
             Collection<String> relationsUris = relations.get(e);
             Collection<Enhancement> nextRelEnhancements = Sets.newHashSet();
             for (String uri : relationsUris)
-                if (uri != null)
+                if (uri != null && allRelations.get(uri) != null)
                     nextRelEnhancements.add(allRelations.get(uri));
             e.setRelations(nextRelEnhancements);
         }
@@ -652,9 +641,7 @@ final class RDFStructureParser extends EnhancementsParser {
 
                     if (result.hasBinding("entityType")) {
                         String nextType = result.getBinding("entityType").getValue().stringValue();
-                        if (!enhancement.getEntityTypes().contains(nextType)){
-                            enhancement.getEntityTypes().add(nextType);
-                        }
+                        enhancement.addEntityType(nextType);
                     }
                 }
 
@@ -830,6 +817,10 @@ final class RDFStructureParser extends EnhancementsParser {
                 topicAnnotation.setTopicLabel(entityLabel.stringValue(), lang);
             }
 
+            if (result.hasBinding("site")) {
+                topicAnnotation.setOrigin(result.getBinding("site").getValue().stringValue());
+            }
+
             if (result.hasBinding("entityReference")) {
                 topicAnnotation.setTopicReference(parseEntity(conn, 
                     result.getBinding("entityReference").getValue().stringValue(),
@@ -840,10 +831,6 @@ final class RDFStructureParser extends EnhancementsParser {
                 String nextRelationUri = result.getBinding("relation").getValue().stringValue();
                 relations.put(topicAnnotation, nextRelationUri);
             }
-
-            if (result.hasBinding("site")) {
-                topicAnnotation.setOrigin(result.getBinding("site").getValue().stringValue());
-            }
         } else {
             if (result.hasBinding("relation")) {
                 final String nextRelationUri = result.getBinding("relation").getValue().stringValue();
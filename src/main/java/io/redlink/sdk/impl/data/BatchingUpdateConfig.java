@@ -0,0 +1,186 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thresholds of a {@link BatchingUpdateWriter}: the buffered operations are sent as soon as any of them is reached.
+ * Instances are immutable and must be created using a {@link BatchingUpdateConfigBuilder}
+ */
+public class BatchingUpdateConfig {
+
+    /**
+     * Default maximum number of operations of a batch
+     */
+    public static final int DEFAULT_MAX_OPERATIONS = 1000;
+
+    /**
+     * Default maximum size of a batch (characters)
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    /**
+     * Default maximum time an operation is buffered (milliseconds)
+     */
+    public static final long DEFAULT_MAX_DELAY = 1000;
+
+    private int maxOperations = DEFAULT_MAX_OPERATIONS;
+
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private long maxDelay = DEFAULT_MAX_DELAY;
+
+    private BatchingUpdateListener listener;
+
+    private BatchingUpdateConfig() {
+    }
+
+    private BatchingUpdateConfig(BatchingUpdateConfig other) {
+        this.maxOperations = other.maxOperations;
+        this.maxSize = other.maxSize;
+        this.maxDelay = other.maxDelay;
+        this.listener = other.listener;
+    }
+
+    /**
+     * Returns the configuration with the default settings
+     *
+     * @return default {@link BatchingUpdateConfig}
+     */
+    public static BatchingUpdateConfig defaultConfig() {
+        return new BatchingUpdateConfig();
+    }
+
+    /**
+     * Maximum number of operations sent in a single update
+     *
+     * @return max operations
+     */
+    public int getMaxOperations() {
+        return maxOperations;
+    }
+
+    /**
+     * Size of the buffered operations that triggers sending them
+     *
+     * @return max size in characters
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Maximum time an operation is buffered before being sent; a non positive value only sends the operations when
+     * the other thresholds are reached or on explicit flush
+     *
+     * @return max delay in milliseconds
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Listener notified of every batch sent
+     *
+     * @return listener, or null if none
+     */
+    public BatchingUpdateListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchingUpdateConfig[maxOperations=%d, maxSize=%d, maxDelay=%d]", maxOperations, maxSize, maxDelay);
+    }
+
+    /**
+     * Batching Update Configuration Builder. This class allows the user to easily generate {@link BatchingUpdateConfig} objects
+     */
+    public static class BatchingUpdateConfigBuilder {
+
+        private final BatchingUpdateConfig config = new BatchingUpdateConfig();
+
+        /**
+         * Set the maximum number of operations sent in a single update
+         *
+         * @param max max operations
+         * @return Current Config Builder
+         */
+        public BatchingUpdateConfigBuilder setMaxOperations(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max operations must be positive");
+            }
+            this.config.maxOperations = max;
+            return this;
+        }
+
+        /**
+         * Set the size of the buffered operations that triggers sending them
+         *
+         * @param max max size in characters
+         * @return Current Config Builder
+         */
+        public BatchingUpdateConfigBuilder setMaxSize(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max size must be positive");
+            }
+            this.config.maxSize = max;
+            return this;
+        }
+
+        /**
+         * Set the maximum time an operation is buffered before being sent
+         *
+         * @param delay max delay (non positive to disable it)
+         * @param unit  unit of the delay
+         * @return Current Config Builder
+         */
+        public BatchingUpdateConfigBuilder setMaxDelay(long delay, TimeUnit unit) {
+            this.config.maxDelay = unit.toMillis(delay);
+            return this;
+        }
+
+        /**
+         * Set the listener notified of every batch sent
+         *
+         * @param listener listener (null for none)
+         * @return Current Config Builder
+         */
+        public BatchingUpdateConfigBuilder setListener(BatchingUpdateListener listener) {
+            this.config.listener = listener;
+            return this;
+        }
+
+        /**
+         * Returns the batching configuration
+         *
+         * @return built {@link BatchingUpdateConfig} object
+         */
+        public BatchingUpdateConfig build() {
+            return new BatchingUpdateConfig(config);
+        }
+
+    }
+
+    /**
+     * Create a new Config Builder
+     *
+     * @return Created {@link BatchingUpdateConfigBuilder}
+     */
+    public static BatchingUpdateConfigBuilder builder() {
+        return new BatchingUpdateConfigBuilder();
+    }
+
+}
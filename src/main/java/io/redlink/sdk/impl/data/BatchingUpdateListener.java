@@ -0,0 +1,41 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import java.util.List;
+
+/**
+ * Listener of the batches sent by a {@link BatchingUpdateWriter}. It is notified in the thread sending the batch,
+ * so it must not block
+ */
+public interface BatchingUpdateListener {
+
+    /**
+     * Notifies a batch applied by the server
+     *
+     * @param operations number of update operations in the batch
+     * @param size       size of the combined update, in characters
+     * @param latency    time (milliseconds) taken by the request
+     */
+    void batchSent(int operations, int size, long latency);
+
+    /**
+     * Notifies a batch not applied by the server, whose operations are discarded
+     *
+     * @param operations update operations of the batch
+     * @param error      cause of the failure
+     */
+    void batchFailed(List<String> operations, Exception error);
+
+}
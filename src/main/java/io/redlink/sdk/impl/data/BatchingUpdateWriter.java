@@ -0,0 +1,367 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpStatus;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.rio.ntriples.NTriplesUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Write-behind buffer of <code>INSERT DATA</code> and <code>DELETE DATA</code> operations on a dataset, sent as a
+ * single combined SPARQL update once the {@link BatchingUpdateConfig thresholds} are reached, on {@link #flush()} or
+ * on {@link #close()}. Operations are applied in the order they are added. Batches rejected by the server as too
+ * large (<code>413 Request Entity Too Large</code>) are split in halves, and later batches are kept under the size
+ * rejected. Blank node labels are scoped to each operation, as SPARQL does not allow the same label in several
+ * operations of a request. Writers are thread-safe
+ */
+public final class BatchingUpdateWriter implements Flushable, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingUpdateWriter.class);
+
+    private static final Pattern DATA_OPERATION = Pattern.compile(
+            "^\\s*((PREFIX\\s+[^:\\s]*:\\s*<[^>]*>|BASE\\s+<[^>]*>)\\s*)*(INSERT|DELETE)\\s+DATA\\s*\\{.*\\}\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final String SEPARATOR = " ;\n";
+
+    private final RedLinkDataImpl data;
+
+    private final String dataset;
+
+    private final BatchingUpdateConfig config;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Size of the batches to send, lowered when the server rejects a batch as too large
+     */
+    private final AtomicInteger maxSize;
+
+    /**
+     * Operations buffered so far, for scoping their blank node labels
+     */
+    private final AtomicLong operations = new AtomicLong();
+
+    /**
+     * Held while sending, so batches are applied in order
+     */
+    private final Object sendLock = new Object();
+
+    private List<String> pending = new ArrayList<>();
+
+    private int pendingSize = 0;
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    private boolean closed = false;
+
+    BatchingUpdateWriter(RedLinkDataImpl data, String dataset, BatchingUpdateConfig config) {
+        this.data = data;
+        this.dataset = dataset;
+        this.config = config;
+        this.maxSize = new AtomicInteger(config.getMaxSize());
+        if (config.getMaxDelay() > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("redlink-update-writer-%d").setDaemon(true).build());
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * Buffers the insertion of the statements
+     *
+     * @param statements statements to insert
+     */
+    public void insert(Iterable<? extends Statement> statements) {
+        add("INSERT DATA", statements);
+    }
+
+    /**
+     * Buffers the deletion of the statements
+     *
+     * @param statements statements to delete
+     */
+    public void delete(Iterable<? extends Statement> statements) {
+        add("DELETE DATA", statements);
+    }
+
+    private void add(String operation, Iterable<? extends Statement> statements) {
+        final String scope = nextScope();
+        final StringBuilder update = new StringBuilder(operation).append(" {");
+        boolean empty = true;
+        for (Statement statement : statements) {
+            update.append(' ').append(toString(statement.getSubject(), scope))
+                    .append(' ').append(NTriplesUtil.toNTriplesString(statement.getPredicate()))
+                    .append(' ').append(toString(statement.getObject(), scope))
+                    .append(" .");
+            empty = false;
+        }
+        if (!empty) {
+            append(update.append(" }").toString());
+        }
+    }
+
+    private static String toString(Value value, String scope) {
+        if (value instanceof BNode) {
+            return "_:" + scope + ((BNode) value).getID();
+        }
+        return NTriplesUtil.toNTriplesString(value);
+    }
+
+    /**
+     * Prefix of the blank node labels of the next operation, so they do not clash with the labels of the rest of
+     * operations sent in the same request
+     */
+    private String nextScope() {
+        return "w" + operations.incrementAndGet() + "x";
+    }
+
+    /**
+     * Buffers an update operation
+     *
+     * @param operation <code>INSERT DATA</code> or <code>DELETE DATA</code> operation, optionally with its prologue
+     * @throws IllegalArgumentException if the operation is not an <code>INSERT DATA</code> or <code>DELETE DATA</code> one
+     */
+    public void add(String operation) {
+        if (!DATA_OPERATION.matcher(operation).matches()) {
+            throw new IllegalArgumentException("not an INSERT DATA or DELETE DATA operation: " + operation);
+        }
+        final String trimmed = operation.trim();
+        append(trimmed.contains("_:") ? scopeBlankNodes(trimmed, nextScope()) : trimmed);
+    }
+
+    /**
+     * Prefixes the blank node labels of the operation with the scope, leaving IRIs, strings and comments untouched
+     */
+    static String scopeBlankNodes(String operation, String scope) {
+        final StringBuilder scoped = new StringBuilder(operation.length() + 16);
+        final int length = operation.length();
+        int i = 0;
+        while (i < length) {
+            final char c = operation.charAt(i);
+            int end = i + 1;
+            if (c == '<') {
+                end = operation.indexOf('>', i);
+                end = end < 0 ? length : end + 1;
+            } else if (c == '#') {
+                end = operation.indexOf('\n', i);
+                end = end < 0 ? length : end + 1;
+            } else if (c == '"' || c == '\'') {
+                end = endOfString(operation, i);
+            } else if (c == '_' && operation.startsWith("_:", i) && (i == 0 || !isNameChar(operation.charAt(i - 1)))) {
+                end = i + 2;
+                scoped.append("_:").append(scope);
+                i = end;
+                continue;
+            }
+            scoped.append(operation, i, end);
+            i = end;
+        }
+        return scoped.toString();
+    }
+
+    private static int endOfString(String operation, int start) {
+        final char quote = operation.charAt(start);
+        final String triple = new String(new char[] { quote, quote, quote });
+        final String delimiter = operation.startsWith(triple, start) ? triple : String.valueOf(quote);
+        int i = start + delimiter.length();
+        while (i < operation.length()) {
+            if (operation.charAt(i) == '\\') {
+                i += 2;
+            } else if (operation.startsWith(delimiter, i)) {
+                return i + delimiter.length();
+            } else {
+                i++;
+            }
+        }
+        return operation.length();
+    }
+
+    /**
+     * Characters of prefixed names, so <code>ex_:name</code> is not taken as a blank node
+     */
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == ':';
+    }
+
+    private void append(String operation) {
+        final boolean full;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("update writer already closed");
+            }
+            pending.add(operation);
+            pendingSize += operation.length() + SEPARATOR.length();
+            full = pending.size() >= config.getMaxOperations() || pendingSize >= maxSize.get();
+            if (!full && scheduledFlush == null && scheduler != null) {
+                scheduledFlush = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            flush();
+                        } catch (RuntimeException e) {
+                            // already reported
+                        }
+                    }
+                }, config.getMaxDelay(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the buffered operations
+     *
+     * @throws RuntimeException if the server does not apply them; they are discarded anyway
+     */
+    @Override
+    public void flush() {
+        synchronized (sendLock) {
+            final List<String> batch;
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+                pendingSize = 0;
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+            }
+            if (!batch.isEmpty()) {
+                // the thresholds may have been lowered since the operations were buffered
+                int from = 0;
+                while (from < batch.size()) {
+                    final int to = nextBatchEnd(batch, from);
+                    try {
+                        send(batch.subList(from, to));
+                    } catch (RuntimeException e) {
+                        if (to < batch.size()) {
+                            failed(batch.subList(to, batch.size()), e);
+                        }
+                        throw e;
+                    }
+                    from = to;
+                }
+            }
+        }
+    }
+
+    private int nextBatchEnd(List<String> operations, int from) {
+        int size = operations.get(from).length();
+        int to = from + 1;
+        while (to < operations.size() && to - from < config.getMaxOperations()) {
+            size += SEPARATOR.length() + operations.get(to).length();
+            if (size > maxSize.get()) {
+                break;
+            }
+            to++;
+        }
+        return to;
+    }
+
+    private void send(List<String> operations) {
+        final StringBuilder builder = new StringBuilder(operations.get(0));
+        for (int i = 1; i < operations.size(); i++) {
+            builder.append(SEPARATOR).append(operations.get(i));
+        }
+        final String update = builder.toString();
+        final long start = System.currentTimeMillis();
+        final int status;
+        try {
+            status = data.sparqlUpdateStatus(update, dataset);
+        } catch (RuntimeException e) {
+            failed(operations, e);
+            throw e;
+        }
+        final long latency = System.currentTimeMillis() - start;
+        if (status == HttpStatus.SC_REQUEST_TOO_LONG && operations.size() > 1) {
+            lowerMaxSize(update.length() / 2);
+            log.debug("update of {} operations ({} characters) too large, splitting it", operations.size(), update.length());
+            final int half = operations.size() / 2;
+            try {
+                send(operations.subList(0, half));
+            } catch (RuntimeException e) {
+                failed(operations.subList(half, operations.size()), e);
+                throw e;
+            }
+            send(operations.subList(half, operations.size()));
+        } else if (status >= 200 && status < 300) {
+            log.debug("update of {} operations ({} characters) applied in {} ms", operations.size(), update.length(), latency);
+            if (config.getListener() != null) {
+                config.getListener().batchSent(operations.size(), update.length(), latency);
+            }
+        } else {
+            final RuntimeException e = new RuntimeException("Update failed: HTTP error code " + status);
+            failed(operations, e);
+            throw e;
+        }
+    }
+
+    private void lowerMaxSize(int size) {
+        int current;
+        while (size < (current = maxSize.get())) {
+            if (maxSize.compareAndSet(current, size)) {
+                return;
+            }
+        }
+    }
+
+    private void failed(List<String> operations, Exception e) {
+        log.error("update of {} operations on dataset {} failed: {}", operations.size(), dataset, e.getMessage());
+        if (config.getListener() != null) {
+            config.getListener().batchFailed(new ArrayList<>(operations), e);
+        }
+    }
+
+    /**
+     * Sends the buffered operations and releases the writer, which can not be used anymore
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            flush();
+        } finally {
+            if (scheduler != null) {
+                scheduler.shutdown();
+            }
+        }
+    }
+
+}
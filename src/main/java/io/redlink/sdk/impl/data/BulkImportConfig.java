@@ -0,0 +1,211 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import java.io.File;
+
+/**
+ * Settings of a bulk import of a file, split in partitions uploaded concurrently. Instances are immutable and must
+ * be created using a {@link BulkImportConfigBuilder}
+ */
+public class BulkImportConfig {
+
+    /**
+     * Default size (bytes) of the partitions
+     */
+    public static final long DEFAULT_PARTITION_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Default number of partitions uploaded at the same time
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Default number of times a failed partition is sent again
+     */
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private long partitionSize = DEFAULT_PARTITION_SIZE;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    private File checkpoint;
+
+    private BulkImportListener listener;
+
+    private BulkImportConfig() {
+    }
+
+    private BulkImportConfig(BulkImportConfig other) {
+        this.partitionSize = other.partitionSize;
+        this.parallelism = other.parallelism;
+        this.maxRetries = other.maxRetries;
+        this.checkpoint = other.checkpoint;
+        this.listener = other.listener;
+    }
+
+    /**
+     * Returns the configuration with the default settings
+     *
+     * @return default {@link BulkImportConfig}
+     */
+    public static BulkImportConfig defaultConfig() {
+        return new BulkImportConfig();
+    }
+
+    /**
+     * Size of the partitions, which are only cut once a statement ends
+     *
+     * @return partition size in bytes
+     */
+    public long getPartitionSize() {
+        return partitionSize;
+    }
+
+    /**
+     * Number of partitions uploaded at the same time; it is bounded by the connections per route of the client
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of times a partition is sent again after an I/O error or a server error
+     *
+     * @return max retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * File recording the partitions already imported, so an interrupted import resumes from where it stopped
+     *
+     * @return checkpoint file, or null if the import is not checkpointed
+     */
+    public File getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Listener notified of the progress of the import
+     *
+     * @return listener, or null if none
+     */
+    public BulkImportListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkImportConfig[partitionSize=%d, parallelism=%d, maxRetries=%d, checkpoint=%s]",
+                partitionSize, parallelism, maxRetries, checkpoint);
+    }
+
+    /**
+     * Bulk Import Configuration Builder. This class allows the user to easily generate {@link BulkImportConfig} objects
+     */
+    public static class BulkImportConfigBuilder {
+
+        private final BulkImportConfig config = new BulkImportConfig();
+
+        /**
+         * Set the size of the partitions
+         *
+         * @param size partition size in bytes
+         * @return Current Config Builder
+         */
+        public BulkImportConfigBuilder setPartitionSize(long size) {
+            if (size < 1) {
+                throw new IllegalArgumentException("partition size must be positive");
+            }
+            this.config.partitionSize = size;
+            return this;
+        }
+
+        /**
+         * Set the number of partitions uploaded at the same time
+         *
+         * @param parallelism parallelism
+         * @return Current Config Builder
+         */
+        public BulkImportConfigBuilder setParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.config.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Set the number of times a failed partition is sent again
+         *
+         * @param retries max retries
+         * @return Current Config Builder
+         */
+        public BulkImportConfigBuilder setMaxRetries(int retries) {
+            if (retries < 0) {
+                throw new IllegalArgumentException("max retries can not be negative");
+            }
+            this.config.maxRetries = retries;
+            return this;
+        }
+
+        /**
+         * Set the file recording the partitions already imported
+         *
+         * @param checkpoint checkpoint file (null for none)
+         * @return Current Config Builder
+         */
+        public BulkImportConfigBuilder setCheckpoint(File checkpoint) {
+            this.config.checkpoint = checkpoint;
+            return this;
+        }
+
+        /**
+         * Set the listener notified of the progress of the import
+         *
+         * @param listener listener (null for none)
+         * @return Current Config Builder
+         */
+        public BulkImportConfigBuilder setListener(BulkImportListener listener) {
+            this.config.listener = listener;
+            return this;
+        }
+
+        /**
+         * Returns the bulk import configuration
+         *
+         * @return built {@link BulkImportConfig} object
+         */
+        public BulkImportConfig build() {
+            return new BulkImportConfig(config);
+        }
+
+    }
+
+    /**
+     * Create a new Config Builder
+     *
+     * @return Created {@link BulkImportConfigBuilder}
+     */
+    public static BulkImportConfigBuilder builder() {
+        return new BulkImportConfigBuilder();
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+/**
+ * Listener of the progress of a bulk import. It is notified in the threads uploading the partitions, so it must be
+ * thread-safe and must not block
+ */
+public interface BulkImportListener {
+
+    /**
+     * Notifies a partition imported by the server
+     *
+     * @param partition  index of the partition
+     * @param partitions number of partitions of the file
+     * @param bytes      size of the partition sent
+     * @param latency    time (milliseconds) taken by the request
+     */
+    void partitionImported(int partition, int partitions, long bytes, long latency);
+
+    /**
+     * Notifies a partition not imported after all the retries
+     *
+     * @param partition  index of the partition
+     * @param partitions number of partitions of the file
+     * @param error      cause of the last failure
+     */
+    void partitionFailed(int partition, int partitions, Exception error);
+
+}
@@ -0,0 +1,241 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openrdf.rio.RDFFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports a file into a dataset as {@link RDFPartitioner partitions} uploaded concurrently over the pooled client.
+ * Partitions failing with an I/O error or a server error are retried; when a partition still fails the other ones
+ * are imported anyway, so they do not need to be sent again when resuming from the checkpoint.
+ * <p>
+ * The checkpoint file starts with a line identifying the file and the partitioning, followed by the index of each
+ * partition imported; it is only trusted if the first line matches the current import
+ */
+final class BulkLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkLoader.class);
+
+    /**
+     * Delay (milliseconds) before the first retry of a partition, doubled on each later retry
+     */
+    private static final long RETRY_DELAY = 500;
+
+    private final RedLinkDataImpl data;
+
+    private final File file;
+
+    private final RDFFormat format;
+
+    private final String dataset;
+
+    private final BulkImportConfig config;
+
+    private final int parallelism;
+
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private Writer checkpoint;
+
+    BulkLoader(RedLinkDataImpl data, File file, RDFFormat format, String dataset, BulkImportConfig config, int parallelism) {
+        this.data = data;
+        this.file = file;
+        this.format = format;
+        this.dataset = dataset;
+        this.config = config;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Imports the partitions not imported yet
+     *
+     * @return true if all the partitions of the file have been imported
+     * @throws IOException if the file or the checkpoint can not be read or written
+     */
+    boolean load() throws IOException {
+        final long start = System.currentTimeMillis();
+        final List<RDFPartitioner.Partition> partitions = RDFPartitioner.partition(file, format, config.getPartitionSize());
+        final String header = String.format("%s %d %d %d %s", file.getName(), file.length(), file.lastModified(),
+                config.getPartitionSize(), format.getDefaultMIMEType());
+        final Set<Integer> imported = openCheckpoint(header);
+        final List<RDFPartitioner.Partition> pending = new ArrayList<>();
+        for (RDFPartitioner.Partition partition : partitions) {
+            if (!imported.contains(partition.getIndex())) {
+                pending.add(partition);
+            }
+        }
+        log.debug("importing {} of {} partitions of {} with {} concurrent uploads", pending.size(), partitions.size(), file, parallelism);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, pending.size())),
+                new ThreadFactoryBuilder().setNameFormat("redlink-bulk-import-%d").setDaemon(true).build());
+        int failed = 0;
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (final RDFPartitioner.Partition partition : pending) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return upload(partition, partitions.size());
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                if (!result.get()) {
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("bulk import of " + file + " interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            closeCheckpoint();
+        }
+
+        final long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        log.info("imported {} of {} partitions of {} ({} MB) in {} s, {} MB/s", pending.size() - failed, pending.size(),
+                file.getName(), String.format("%.1f", bytesSent.get() / 1048576.0), String.format("%.1f", elapsed / 1000.0),
+                String.format("%.2f", bytesSent.get() / 1048576.0 / (elapsed / 1000.0)));
+        if (failed > 0) {
+            log.error("{} partitions of {} could not be imported into dataset {}", failed, file.getName(), dataset);
+            return false;
+        }
+        if (config.getCheckpoint() != null && !config.getCheckpoint().delete()) {
+            log.warn("checkpoint {} could not be deleted", config.getCheckpoint());
+        }
+        return true;
+    }
+
+    private boolean upload(RDFPartitioner.Partition partition, int partitions) throws IOException, InterruptedException {
+        final PartitionEntity entity = new PartitionEntity(file, partition, format);
+        Exception error = null;
+        for (int attempt = 0; attempt <= config.getMaxRetries(); attempt++) {
+            if (attempt > 0) {
+                log.debug("retrying partition {} of {}: {}", partition.getIndex(), file.getName(), error.getMessage());
+                Thread.sleep(RETRY_DELAY << (attempt - 1));
+            }
+            final long start = System.currentTimeMillis();
+            final int status;
+            try {
+                status = data.importStatus(entity, format, dataset);
+            } catch (IOException e) {
+                error = e;
+                continue;
+            }
+            if (status >= 200 && status < 300) {
+                final long latency = System.currentTimeMillis() - start;
+                bytesSent.addAndGet(partition.getSize());
+                checkpoint(partition.getIndex());
+                if (config.getListener() != null) {
+                    config.getListener().partitionImported(partition.getIndex(), partitions, partition.getSize(), latency);
+                }
+                return true;
+            }
+            error = new RuntimeException("Import failed: HTTP error code " + status);
+            if (status < 500) {
+                // the request will not succeed if repeated
+                break;
+            }
+        }
+        log.error("partition {} of {} failed: {}", partition.getIndex(), file.getName(), error.getMessage());
+        if (config.getListener() != null) {
+            config.getListener().partitionFailed(partition.getIndex(), partitions, error);
+        }
+        return false;
+    }
+
+    /**
+     * Reads the partitions already imported, and opens the checkpoint for recording the new ones
+     */
+    private Set<Integer> openCheckpoint(String header) throws IOException {
+        final Set<Integer> imported = new HashSet<>();
+        final File file = config.getCheckpoint();
+        if (file == null) {
+            return imported;
+        }
+        if (file.isFile()) {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
+            try {
+                if (header.equals(reader.readLine())) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        // a partial last line is left by an interrupted write
+                        try {
+                            imported.add(Integer.parseInt(line.trim()));
+                        } catch (NumberFormatException e) {
+                            log.debug("ignoring checkpoint line '{}'", line);
+                        }
+                    }
+                    log.info("resuming import of {}: {} partitions already imported", this.file.getName(), imported.size());
+                } else {
+                    log.warn("checkpoint {} does not match the import of {}, starting over", file, this.file.getName());
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        checkpoint = new OutputStreamWriter(new FileOutputStream(file, false), Charsets.UTF_8);
+        checkpoint.write(header);
+        checkpoint.write('\n');
+        for (Integer index : imported) {
+            checkpoint.write(index + "\n");
+        }
+        checkpoint.flush();
+        return imported;
+    }
+
+    private synchronized void checkpoint(int index) throws IOException {
+        if (checkpoint != null) {
+            checkpoint.write(index + "\n");
+            checkpoint.flush();
+        }
+    }
+
+    private synchronized void closeCheckpoint() throws IOException {
+        if (checkpoint != null) {
+            checkpoint.close();
+            checkpoint = null;
+        }
+    }
+
+}
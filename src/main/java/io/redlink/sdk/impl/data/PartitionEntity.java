@@ -0,0 +1,103 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * HTTP entity sending a {@link RDFPartitioner.Partition partition} of a file: its prologue followed by its region
+ * of the file, transferred straight from the file channel. The length is known beforehand, and the entity is
+ * repeatable so the partition can be sent again if the request fails
+ */
+class PartitionEntity extends AbstractHttpEntity {
+
+    private final File file;
+
+    private final RDFPartitioner.Partition partition;
+
+    PartitionEntity(File file, RDFPartitioner.Partition partition, RDFFormat format) {
+        this.file = file;
+        this.partition = partition;
+        if (format.hasCharset()) {
+            setContentType(ContentType.create(format.getDefaultMIMEType(), format.getCharset()).toString());
+        } else {
+            setContentType(format.getDefaultMIMEType());
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return partition.getSize();
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(partition.getPosition());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(partition.getPrologue()),
+                new BoundedInputStream(in, partition.getLength()));
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(partition.getPrologue());
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            final WritableByteChannel target = Channels.newChannel(out);
+            long position = partition.getPosition();
+            final long end = position + partition.getLength();
+            while (position < end) {
+                final long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("file " + file + " truncated while being sent");
+                }
+                position += transferred;
+            }
+        } finally {
+            in.close();
+        }
+        out.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+}
@@ -0,0 +1,306 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of SPARQL query results, keyed by the kind of query, the normalized query text, the dataset it is
+ * run against and the version of that dataset. Each dataset has a version counter, increased by every write the data
+ * clients using the cache perform on it, so the results read before the write are not used anymore (they are
+ * evicted in least-recently-used order once the maximum size is reached). Writes from other clients are only seen
+ * once the results expire. Identical queries run while the result is being read wait for that same result instead
+ * of sending another request. Only the settings of the cache are serialized, so deserialized clients get an empty
+ * cache, shared by those deserialized together. Instances are thread-safe and must be created using a
+ * {@link QueryCacheBuilder}
+ */
+public final class QueryCache implements Serializable {
+
+    private static final long serialVersionUID = -6127405731398265410L;
+
+    /**
+     * Default maximum number of cached results
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /**
+     * Default time a result is cached (milliseconds)
+     */
+    public static final long DEFAULT_EXPIRE_AFTER_WRITE = 10 * 60 * 1000;
+
+    /**
+     * Kinds of queries, whose results are cached separately
+     */
+    enum Kind { TUPLE, GRAPH }
+
+    /**
+     * Dataset of the queries run against all the datasets of the application
+     */
+    private static final String ANY_DATASET = "";
+
+    private final transient Cache<String, ListenableFuture<?>> cache;
+
+    private final transient ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final long maximumSize;
+
+    private final long expireAfterWrite;
+
+    private QueryCache(long maximumSize, long expireAfterWrite) {
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Normalizes the whitespace of the query outside of string literals: runs of whitespace are collapsed into a
+     * single space, or into a single line break if they contain any and the line may end with a comment (any '#'
+     * outside of string literals, which can also be part of an IRI), so comments still end at the same place
+     *
+     * @param query SPARQL query
+     * @return normalized query
+     */
+    static String normalize(String query) {
+        final StringBuilder normalized = new StringBuilder(query.length());
+        final int length = query.length();
+        int i = 0;
+        boolean comment = false;
+        while (i < length) {
+            final char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                boolean newLine = false;
+                while (i < length && Character.isWhitespace(query.charAt(i))) {
+                    newLine |= query.charAt(i) == '\n' || query.charAt(i) == '\r';
+                    i++;
+                }
+                if (normalized.length() > 0 && i < length) {
+                    normalized.append(newLine && comment ? '\n' : ' ');
+                }
+                comment &= !newLine;
+            } else if (c == '"' || c == '\'') {
+                final int end = Math.min(endOfString(query, i), length);
+                normalized.append(query, i, end);
+                i = end;
+            } else {
+                comment |= c == '#';
+                normalized.append(c);
+                i++;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Finds the end of the string literal starting at the given position, copied verbatim
+     */
+    private static int endOfString(String query, int start) {
+        final char quote = query.charAt(start);
+        final String triple = new String(new char[] { quote, quote, quote });
+        final String delimiter = query.startsWith(triple, start) ? triple : String.valueOf(quote);
+        int i = start + delimiter.length();
+        while (i < query.length()) {
+            if (query.charAt(i) == '\\') {
+                i += 2;
+            } else if (query.startsWith(delimiter, i)) {
+                return i + delimiter.length();
+            } else {
+                i++;
+            }
+        }
+        return query.length();
+    }
+
+    private AtomicLong version(String dataset) {
+        final String name = dataset != null ? dataset : ANY_DATASET;
+        AtomicLong version = versions.get(name);
+        if (version == null) {
+            final AtomicLong created = new AtomicLong();
+            version = versions.putIfAbsent(name, created);
+            if (version == null) {
+                version = created;
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Gets the result of the query, from the cache or from the loader. The result is shared by all the callers, so it
+     * must be copied before being returned to the user
+     *
+     * @param kind    kind of query
+     * @param dataset dataset queried, null for all of them
+     * @param query   SPARQL query
+     * @param loader  runs the query, when its result is not cached nor being read
+     * @return future result of the query
+     */
+    @SuppressWarnings("unchecked")
+    <T> ListenableFuture<T> get(Kind kind, String dataset, String query, Callable<ListenableFuture<T>> loader) {
+        final String key = kind.name() + ' ' + (dataset != null ? dataset : ANY_DATASET) + ' '
+                + version(dataset).get() + ' ' + normalize(query);
+        final SettableFuture<T> created = SettableFuture.create();
+        final ListenableFuture<?> cached;
+        try {
+            cached = cache.get(key, new Callable<ListenableFuture<?>>() {
+                @Override
+                public ListenableFuture<?> call() {
+                    return created;
+                }
+            });
+        } catch (ExecutionException e) {
+            // never thrown, the value is already computed
+            throw new IllegalStateException(e);
+        }
+        if (cached == created) {
+            try {
+                created.setFuture(loader.call());
+            } catch (Exception e) {
+                created.setException(e);
+            }
+            // failures are not cached
+            Futures.addCallback(created, new FutureCallback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    cache.asMap().remove(key, created);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        return (ListenableFuture<T>) cached;
+    }
+
+    /**
+     * Increases the version of the dataset, and of the queries run against all the datasets, so their results
+     * cached so far are not used anymore
+     *
+     * @param dataset dataset written
+     */
+    void invalidate(String dataset) {
+        version(dataset).incrementAndGet();
+        version(null).incrementAndGet();
+    }
+
+    /**
+     * Number of cached results, including those of older versions of the datasets not evicted yet
+     *
+     * @return approximate number of entries
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Hit, miss and eviction counters of the cache; queries waiting for the same query being run count as hits
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Discards all the cached results
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Replaces the deserialized settings by a new empty cache
+     */
+    private Object readResolve() {
+        return new QueryCache(maximumSize, expireAfterWrite);
+    }
+
+    /**
+     * Query Cache Builder. This class allows the user to easily generate {@link QueryCache} objects
+     */
+    public static class QueryCacheBuilder {
+
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        private long expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+
+        /**
+         * Set the maximum number of cached results
+         *
+         * @param maximumSize maximum size
+         * @return Current Cache Builder
+         */
+        public QueryCacheBuilder setMaximumSize(long maximumSize) {
+            if (maximumSize < 1) {
+                throw new IllegalArgumentException("maximum size must be positive");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Set how long a result is cached since it was read, which bounds how long writes from other clients go
+         * unnoticed
+         *
+         * @param duration time to live
+         * @param unit     unit of the time to live
+         * @return Current Cache Builder
+         */
+        public QueryCacheBuilder setExpireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 1) {
+                throw new IllegalArgumentException("time to live must be positive");
+            }
+            this.expireAfterWrite = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Returns the query cache
+         *
+         * @return built {@link QueryCache} object
+         */
+        public QueryCache build() {
+            return new QueryCache(maximumSize, expireAfterWrite);
+        }
+
+    }
+
+    /**
+     * Create a new Cache Builder
+     *
+     * @return Created {@link QueryCacheBuilder}
+     */
+    public static QueryCacheBuilder builder() {
+        return new QueryCacheBuilder();
+    }
+
+}
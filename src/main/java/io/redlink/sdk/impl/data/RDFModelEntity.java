@@ -0,0 +1,91 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.openrdf.model.Model;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.Rio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * HTTP entity serializing an RDF {@link Model} straight to the connection using chunked
+ * transfer encoding, so the serialized data is never buffered in memory. The entity is
+ * repeatable, since the model can be serialized again if the request needs to be retried
+ */
+public class RDFModelEntity extends AbstractHttpEntity {
+
+    private final Model model;
+
+    private final RDFFormat format;
+
+    public RDFModelEntity(Model model, RDFFormat format) {
+        this.model = model;
+        this.format = format;
+        setChunked(true);
+        if (format.hasCharset()) {
+            setContentType(ContentType.create(format.getDefaultMIMEType(), format.getCharset()).toString());
+        } else {
+            setContentType(format.getDefaultMIMEType());
+        }
+    }
+
+    public RDFFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Serializes the whole model in memory; only meant for debugging purposes,
+     * requests use {@link #writeTo(OutputStream)}
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try {
+            Rio.write(model, out, format);
+        } catch (RDFHandlerException e) {
+            throw new IOException("error serializing model as " + format.getName() + ": " + e.getMessage(), e);
+        }
+        out.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+}
@@ -0,0 +1,365 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.base.Charsets;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Splits RDF files into partitions of about the same size, aligned to statements so each of them can be parsed on
+ * its own. Line-based formats (N-Triples, N-Quads) are cut at line ends; Turtle is scanned to cut it only where a
+ * statement ends, and each partition is prefixed with the directives (prefixes and base) declared before it. The
+ * partitions of a file are always the same for the same size, so they can be referred to by their index.
+ * <p>
+ * Blank node labels are scoped to each partition, so files whose blank nodes are referred to from distant
+ * statements must not be partitioned
+ */
+final class RDFPartitioner {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Longest statement checked for being a directive; statements are only buffered up to this size
+     */
+    private static final int MAX_DIRECTIVE_LENGTH = 4096;
+
+    private RDFPartitioner() {
+    }
+
+    /**
+     * Checks whether files of the format can be partitioned
+     *
+     * @param format {@link RDFFormat} of the file
+     * @return true if it can be partitioned
+     */
+    static boolean isPartitionable(RDFFormat format) {
+        return RDFFormat.NTRIPLES.equals(format) || RDFFormat.NQUADS.equals(format) || RDFFormat.TURTLE.equals(format);
+    }
+
+    /**
+     * Splits the file
+     *
+     * @param file   RDF file
+     * @param format {@link RDFFormat} of the file
+     * @param size   size (bytes) of the partitions, which are only cut once a statement ends
+     * @return partitions of the file, in order
+     * @throws IOException if the file can not be read
+     */
+    static List<Partition> partition(File file, RDFFormat format, long size) throws IOException {
+        if (size < 1) {
+            throw new IllegalArgumentException("invalid partition size " + size);
+        }
+        if (RDFFormat.NTRIPLES.equals(format) || RDFFormat.NQUADS.equals(format)) {
+            return partitionLines(file, size);
+        } else if (RDFFormat.TURTLE.equals(format)) {
+            return partitionTurtle(file, size);
+        } else {
+            throw new IllegalArgumentException(format.getName() + " files can not be partitioned");
+        }
+    }
+
+    private static List<Partition> partitionLines(File file, long size) throws IOException {
+        final List<Partition> partitions = new ArrayList<>();
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final long length = raf.length();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long start = 0;
+            while (start < length) {
+                long end = Math.min(start + size, length);
+                // the partition goes on up to the end of the current line
+                raf.seek(end - 1);
+                scan:
+                while (end < length) {
+                    final int read = raf.read(buffer);
+                    if (read < 0) {
+                        break;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] == '\n') {
+                            end = raf.getFilePointer() - read + i + 1;
+                            break scan;
+                        }
+                    }
+                    end = raf.getFilePointer();
+                }
+                partitions.add(new Partition(partitions.size(), start, end - start, new byte[0]));
+                start = end;
+            }
+        } finally {
+            raf.close();
+        }
+        return Collections.unmodifiableList(partitions);
+    }
+
+    private static List<Partition> partitionTurtle(File file, long size) throws IOException {
+        final TurtleScanner scanner = new TurtleScanner();
+        final List<Partition> partitions = new ArrayList<>();
+        final InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            long start = 0;
+            byte[] prologue = new byte[0];
+            long offset = 0;
+            int b;
+            while ((b = in.read()) >= 0) {
+                offset++;
+                if (scanner.next((byte) b) && offset - start >= size) {
+                    partitions.add(new Partition(partitions.size(), start, offset - start, prologue));
+                    start = offset;
+                    prologue = scanner.prologue();
+                }
+            }
+            if (offset > start) {
+                partitions.add(new Partition(partitions.size(), start, offset - start, prologue));
+            }
+        } finally {
+            in.close();
+        }
+        return Collections.unmodifiableList(partitions);
+    }
+
+    /**
+     * Statement-aligned region of a file
+     */
+    static final class Partition {
+
+        private final int index;
+
+        private final long position;
+
+        private final long length;
+
+        private final byte[] prologue;
+
+        Partition(int index, long position, long length, byte[] prologue) {
+            this.index = index;
+            this.position = position;
+            this.length = length;
+            this.prologue = prologue;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        long getLength() {
+            return length;
+        }
+
+        /**
+         * Directives to send before the region, so it can be parsed on its own
+         */
+        byte[] getPrologue() {
+            return prologue;
+        }
+
+        /**
+         * Size of the partition once sent
+         */
+        long getSize() {
+            return prologue.length + length;
+        }
+
+    }
+
+    /**
+     * Finds the ends of the Turtle statements, keeping track of the directives found so far. Only the characters
+     * delimiting terms matter, and they are all ASCII, so the bytes do not need to be decoded
+     */
+    private static final class TurtleScanner {
+
+        private static final Pattern DIRECTIVE = Pattern.compile("^(@prefix|@base|(?i:prefix|base))\\s.*", Pattern.DOTALL);
+
+        private static final Pattern SPARQL_DIRECTIVE = Pattern.compile("^(?i:prefix|base)\\s.*", Pattern.DOTALL);
+
+        private enum State { DEFAULT, IRI, COMMENT, QUOTES, STRING, LONG_STRING }
+
+        private State state = State.DEFAULT;
+
+        /**
+         * Quote of the current string
+         */
+        private byte quote;
+
+        /**
+         * Consecutive quotes read, for detecting the delimiters of long strings
+         */
+        private int quotes;
+
+        private boolean escaped;
+
+        /**
+         * Nesting of blank node property lists and collections
+         */
+        private int depth;
+
+        /**
+         * Last significant byte of the current line
+         */
+        private byte last;
+
+        /**
+         * Beginning of the current statement, for detecting directives
+         */
+        private final ByteArrayOutputStream statement = new ByteArrayOutputStream();
+
+        private final ByteArrayOutputStream prologue = new ByteArrayOutputStream();
+
+        /**
+         * Scans the next byte
+         *
+         * @return true if a statement ended with this byte
+         */
+        boolean next(byte b) {
+            if (statement.size() > 0 && statement.size() < MAX_DIRECTIVE_LENGTH) {
+                statement.write(b);
+            }
+            return scan(b);
+        }
+
+        private boolean scan(byte b) {
+            switch (state) {
+                case IRI:
+                    if (b == '>') {
+                        state = State.DEFAULT;
+                    }
+                    return false;
+                case COMMENT:
+                    if (b == '\n') {
+                        state = State.DEFAULT;
+                        return endOfLine();
+                    }
+                    return false;
+                case QUOTES:
+                    if (b == quote) {
+                        if (++quotes == 3) {
+                            state = State.LONG_STRING;
+                            quotes = 0;
+                        }
+                        return false;
+                    }
+                    // a single quote opened a short string, two closed an empty one
+                    state = quotes == 1 ? State.STRING : State.DEFAULT;
+                    quotes = 0;
+                    return scan(b);
+                case STRING:
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == quote) {
+                        state = State.DEFAULT;
+                    }
+                    return false;
+                case LONG_STRING:
+                    if (escaped) {
+                        escaped = false;
+                    } else if (b == '\\') {
+                        escaped = true;
+                        quotes = 0;
+                    } else if (b == quote) {
+                        if (++quotes == 3) {
+                            state = State.DEFAULT;
+                            quotes = 0;
+                        }
+                    } else {
+                        quotes = 0;
+                    }
+                    return false;
+                default:
+                    return scanTerm(b);
+            }
+        }
+
+        private boolean scanTerm(byte b) {
+            switch (b) {
+                case '\n':
+                    return endOfLine();
+                case ' ':
+                case '\t':
+                case '\r':
+                    return false;
+                case '#':
+                    state = State.COMMENT;
+                    return false;
+                case '<':
+                    state = State.IRI;
+                    break;
+                case '"':
+                case '\'':
+                    state = State.QUOTES;
+                    quote = b;
+                    quotes = 1;
+                    break;
+                case '[':
+                case '(':
+                    depth++;
+                    break;
+                case ']':
+                case ')':
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+            if (statement.size() == 0) {
+                statement.write(b);
+            }
+            last = b;
+            return false;
+        }
+
+        private boolean endOfLine() {
+            final byte end = last;
+            last = 0;
+            if (statement.size() == 0 || depth > 0) {
+                return false;
+            }
+            final String text = new String(statement.toByteArray(), Charsets.UTF_8).trim();
+            // SPARQL style directives are not terminated by a dot
+            if (end != '.' && !SPARQL_DIRECTIVE.matcher(text).matches()) {
+                return false;
+            }
+            if (statement.size() < MAX_DIRECTIVE_LENGTH && DIRECTIVE.matcher(text).matches()) {
+                final byte[] directive = text.getBytes(Charsets.UTF_8);
+                prologue.write(directive, 0, directive.length);
+                prologue.write('\n');
+            }
+            statement.reset();
+            return true;
+        }
+
+        byte[] prologue() {
+            return prologue.toByteArray();
+        }
+
+    }
+
+}
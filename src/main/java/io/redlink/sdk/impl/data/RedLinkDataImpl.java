@@ -14,30 +14,45 @@
 package io.redlink.sdk.impl.data;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import io.redlink.sdk.Credentials;
 import io.redlink.sdk.RedLink;
 import io.redlink.sdk.impl.RedLinkAbstractImpl;
+import io.redlink.sdk.impl.RedLinkClientConfig;
 import io.redlink.sdk.impl.data.model.LDPathResult;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.redlink.sdk.util.UriBuilder;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.util.EntityUtils;
 import org.apache.marmotta.client.model.rdf.BNode;
 import org.apache.marmotta.client.model.rdf.Literal;
@@ -46,6 +61,7 @@ import org.apache.marmotta.client.model.rdf.URI;
 import org.apache.marmotta.client.model.sparql.SPARQLResult;
 import org.apache.marmotta.client.util.RDFJSONParser;
 import org.openrdf.model.Model;
+import org.openrdf.model.Statement;
 import org.openrdf.model.Value;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.LinkedHashModel;
@@ -54,24 +70,32 @@ import org.openrdf.query.Binding;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.QueryResultHandler;
 import org.openrdf.query.QueryResultHandlerException;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.TupleQueryResultHandler;
+import org.openrdf.query.TupleQueryResultHandlerBase;
 import org.openrdf.query.resultio.QueryResultIO;
 import org.openrdf.query.resultio.QueryResultParseException;
 import org.openrdf.query.resultio.QueryResultParser;
 import org.openrdf.query.resultio.TupleQueryResultFormat;
 import org.openrdf.query.resultio.UnsupportedQueryResultFormatException;
-import org.openrdf.query.resultio.helpers.QueryResultCollector;
 import org.openrdf.rio.ParserConfig;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
 import org.openrdf.rio.Rio;
 import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.StatementCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * RedLink's {@link Data} services implementation. To be instantiated, this implementation needs a valid {@link Credentials} object that
  * must contain a RedLink API key which will be used in each request to the server.
+ * <p>
+ * RDF is exchanged with the endpoint in Turtle unless other wire formats are passed to the constructor (e.g.
+ * {@link #BINARY_WIRE_FORMATS}), falling back to the next format when the endpoint does not support one.
  *
  * @author sergio.fernandez@redlink.co
  */
@@ -81,8 +105,226 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
 
     private static Logger log = LoggerFactory.getLogger(RedLinkDataImpl.class);
 
+    /**
+     * Tuple query result formats, fastest to decode first. CSV is left out, as it does not keep the type of the values
+     */
+    private static final TupleQueryResultFormat[] TUPLE_QUERY_FORMATS = {
+            TupleQueryResultFormat.BINARY, TupleQueryResultFormat.TSV, TupleQueryResultFormat.JSON
+    };
+
+    /**
+     * Index of the fastest tuple query result format accepted by the endpoint, moved forward each time it
+     * answers <code>406 Not Acceptable</code>
+     */
+    private final AtomicInteger tupleQueryFormat = new AtomicInteger();
+
+    /**
+     * RDF formats exchanged with the endpoint by default: Turtle, as understood by any endpoint
+     */
+    public static final List<RDFFormat> DEFAULT_WIRE_FORMATS = Collections.singletonList(RDFFormat.TURTLE);
+
+    /**
+     * RDF formats cheapest to serialize and parse first, for endpoints known to answer <code>415 Unsupported Media
+     * Type</code> and <code>406 Not Acceptable</code> (or to honour the Accept header) for the formats they do not support
+     */
+    public static final List<RDFFormat> BINARY_WIRE_FORMATS =
+            Collections.unmodifiableList(Arrays.asList(RDFFormat.BINARY, RDFFormat.NTRIPLES, RDFFormat.TURTLE));
+
+    /**
+     * Cached results are shared, so each caller gets its own copy
+     */
+    private static final Function<SPARQLResult, SPARQLResult> COPY_TUPLE_RESULT = new Function<SPARQLResult, SPARQLResult>() {
+        @Override
+        public SPARQLResult apply(SPARQLResult result) {
+            final SPARQLResult copy = new SPARQLResult(new LinkedHashSet<>(result.getFieldNames()));
+            for (Map<String, RDFNode> row : result) {
+                copy.add(new HashMap<>(row));
+            }
+            return copy;
+        }
+    };
+
+    private static final Function<Model, Model> COPY_GRAPH_RESULT = new Function<Model, Model>() {
+        @Override
+        public Model apply(Model model) {
+            return new LinkedHashModel(model);
+        }
+    };
+
+    /**
+     * MIME types of the RDF formats exchanged with the endpoint, in order of preference (the formats themselves
+     * are not serializable)
+     */
+    private final String[] wireFormats;
+
+    /**
+     * Index of the preferred wire format accepted by the endpoint for imports, moved forward each time it
+     * answers <code>415 Unsupported Media Type</code>
+     */
+    private final AtomicInteger wireFormat = new AtomicInteger();
+
+    /**
+     * Accept header asking for any of the wire formats, weighted by preference
+     */
+    private final String wireFormatsAccept;
+
+    /**
+     * Cache of the resources read, whose entries are discarded on every write performed by this client (serialized
+     * empty, keeping only its settings)
+     */
+    private final ResourceCache cache;
+
+    /**
+     * Cache of the query results, whose datasets are versioned on every write performed by this client (serialized
+     * empty, keeping only its settings)
+     */
+    private final QueryCache queryCache;
+
     public RedLinkDataImpl(Credentials credentials) {
-        super(credentials);
+        this(credentials, RedLinkClientConfig.defaultConfig());
+    }
+
+    public RedLinkDataImpl(Credentials credentials, RedLinkClientConfig config) {
+        this(credentials, config, DEFAULT_WIRE_FORMATS);
+    }
+
+    /**
+     * Data client exchanging RDF with the endpoint in the given formats: data is exported in the first of them the
+     * endpoint is able to write, and imported in the first one it accepts
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @param wireFormats {@link RDFFormat}s in order of preference
+     */
+    public RedLinkDataImpl(Credentials credentials, RedLinkClientConfig config, List<RDFFormat> wireFormats) {
+        this(credentials, config, wireFormats, null);
+    }
+
+    /**
+     * Data client exchanging RDF with the endpoint in the given formats, and keeping the resources read in the
+     * given cache
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @param wireFormats {@link RDFFormat}s in order of preference
+     * @param cache       cache of the resources read, which can be shared by several clients (null for none)
+     */
+    public RedLinkDataImpl(Credentials credentials, RedLinkClientConfig config, List<RDFFormat> wireFormats, ResourceCache cache) {
+        this(credentials, config, wireFormats, cache, null);
+    }
+
+    /**
+     * Data client exchanging RDF with the endpoint in the given formats, and keeping the resources read and the
+     * results of the queries run in the given caches
+     *
+     * @param credentials RedLink valid {@link Credentials}
+     * @param config      client transport settings
+     * @param wireFormats {@link RDFFormat}s in order of preference
+     * @param cache       cache of the resources read, which can be shared by several clients (null for none)
+     * @param queryCache  cache of the query results, which can be shared by several clients (null for none)
+     */
+    public RedLinkDataImpl(Credentials credentials, RedLinkClientConfig config, List<RDFFormat> wireFormats, ResourceCache cache, QueryCache queryCache) {
+        super(credentials, config);
+        this.cache = cache;
+        this.queryCache = queryCache;
+        try {
+            this.wireFormats = getMIMETypes(wireFormats);
+        } catch (IllegalArgumentException e) {
+            close();
+            throw e;
+        }
+        this.wireFormatsAccept = buildAccept(this.wireFormats);
+    }
+
+    /**
+     * Cache of the resources read by this client
+     *
+     * @return the cache, or null if resources are not cached
+     */
+    public ResourceCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Cache of the query results of this client
+     *
+     * @return the cache, or null if query results are not cached
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    private void invalidateDataset(String dataset) {
+        if (cache != null) {
+            cache.invalidateDataset(dataset);
+        }
+        if (queryCache != null) {
+            queryCache.invalidate(dataset);
+        }
+    }
+
+    private void invalidateResource(String resource, String dataset) {
+        if (cache != null) {
+            cache.invalidate(dataset, resource);
+        }
+        if (queryCache != null) {
+            queryCache.invalidate(dataset);
+        }
+    }
+
+    /**
+     * Invalidates the cached data of the dataset once the asynchronous write completes, before completing the
+     * returned future, so callers waiting for the write do not read data cached before it
+     */
+    private <T> ListenableFuture<T> invalidatingDataset(final ListenableFuture<T> future, final String dataset) {
+        if (cache == null && queryCache == null) {
+            return future;
+        }
+        final SettableFuture<T> result = SettableFuture.create();
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                invalidateDataset(dataset);
+                result.setFuture(future);
+            }
+        }, MoreExecutors.directExecutor());
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    private static String[] getMIMETypes(List<RDFFormat> formats) {
+        if (formats.isEmpty()) {
+            throw new IllegalArgumentException("no wire format");
+        }
+        final String[] mimeTypes = new String[formats.size()];
+        for (int i = 0; i < mimeTypes.length; i++) {
+            final RDFFormat format = formats.get(i);
+            if (Rio.getParserFormatForMIMEType(format.getDefaultMIMEType()) == null ||
+                    Rio.getWriterFormatForMIMEType(format.getDefaultMIMEType()) == null) {
+                throw new IllegalArgumentException("unsupported wire format " + format.getName());
+            }
+            mimeTypes[i] = format.getDefaultMIMEType();
+        }
+        return mimeTypes;
+    }
+
+    private static String buildAccept(String[] mimeTypes) {
+        final StringBuilder accept = new StringBuilder(mimeTypes[0]);
+        for (int i = 1; i < mimeTypes.length; i++) {
+            accept.append(", ").append(mimeTypes[i]).append(";q=").append(Math.max(1, 10 - i) / 10.0);
+        }
+        return accept.toString();
+    }
+
+    private RDFFormat getWireFormat(int index) {
+        return Rio.getParserFormatForMIMEType(wireFormats[index]);
     }
 
     @Override
@@ -92,10 +334,30 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
 
     @Override
     public boolean importDataset(Model data, String dataset, boolean cleanBefore) throws RDFHandlerException {
-        RDFFormat format = RDFFormat.TURTLE;
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        Rio.write(data, out, format);
-        return importDataset(new ByteArrayInputStream(out.toByteArray()), format, dataset, cleanBefore);
+        log.debug("Importing data into dataset {}", dataset);
+        try {
+            java.net.URI target = credentials.buildUrl(getDatasetUriBuilder(dataset));
+            return execImport(target, data, cleanBefore);
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
+            log.error("Error importing dataset: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            invalidateDataset(dataset);
+        }
+    }
+
+    @Override
+    public boolean importDataset(Model data, String dataset, boolean cleanBefore, RDFFormat format) {
+        log.debug("Importing {} data into dataset {}", format.getName(), dataset);
+        try {
+            java.net.URI target = credentials.buildUrl(getDatasetUriBuilder(dataset));
+            return execImport(target, new RDFModelEntity(data, format), format, cleanBefore);
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
+            log.error("Error importing dataset: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            invalidateDataset(dataset);
+        }
     }
 
     @Override
@@ -105,7 +367,115 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
 
     @Override
     public boolean importDataset(File file, String dataset, boolean cleanBefore) throws FileNotFoundException {
-        return importDataset(new FileInputStream(file), RDFFormat.forFileName(file.getAbsolutePath()), dataset, cleanBefore);
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getAbsolutePath());
+        }
+        final RDFFormat format = RDFFormat.forFileName(file.getAbsolutePath());
+        if (format == null) {
+            throw new IllegalArgumentException("unknown RDF format of file " + file.getName());
+        }
+        log.debug("Importing {} file {} into dataset {}", format.getName(), file, dataset);
+        final java.net.URI target;
+        try {
+            target = credentials.buildUrl(getDatasetUriBuilder(dataset));
+        } catch (IllegalArgumentException | URISyntaxException | MalformedURLException e) {
+            log.error("Error importing dataset: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+        final ResponseHandler<Boolean> handler = new ResponseHandler<Boolean>() {
+            @Override
+            public Boolean handleResponse(HttpResponse response) {
+                log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
+                return response.getStatusLine().getStatusCode() == 200;
+            }
+        };
+        // sent through the non-blocking transport, which transfers the file straight from its channel
+        try {
+            return await(cleanBefore ? client.putAsync(target, file, format, handler) : client.postAsync(target, file, format, handler));
+        } finally {
+            invalidateDataset(dataset);
+        }
+    }
+
+    @Override
+    public boolean importDataset(File file, String dataset, BulkImportConfig config) throws FileNotFoundException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getAbsolutePath());
+        }
+        final RDFFormat format = RDFFormat.forFileName(file.getAbsolutePath());
+        if (format == null || !RDFPartitioner.isPartitionable(format)) {
+            throw new IllegalArgumentException("file " + file.getName() + " can not be imported in partitions");
+        }
+        log.debug("Bulk importing {} file {} into dataset {}", format.getName(), file, dataset);
+        // more concurrent uploads than pooled connections would only wait for a connection
+        final int parallelism = Math.min(config.getParallelism(), client.getConfig().getMaxConnectionsPerRoute());
+        try {
+            return new BulkLoader(this, file, format, dataset, config, parallelism).load();
+        } catch (IOException e) {
+            log.error("Error importing dataset: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean importDataset(Iterator<? extends Statement> statements, String dataset) {
+        log.debug("Importing statements into dataset {}", dataset);
+        final StatementLoader loader = createStatementLoader(dataset);
+        try {
+            loader.load(statements);
+            return true;
+        } catch (RDFHandlerException e) {
+            log.error("Error importing dataset: {}", e.getMessage());
+            return false;
+        } finally {
+            loader.close();
+            invalidateDataset(dataset);
+        }
+    }
+
+    /**
+     * Imports the entity into the dataset, returning the status code of the response
+     */
+    int importStatus(HttpEntity entity, RDFFormat format, String dataset) throws IOException {
+        final java.net.URI target;
+        try {
+            target = credentials.buildUrl(getDatasetUriBuilder(dataset));
+        } catch (IllegalArgumentException | URISyntaxException | MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+        final CloseableHttpResponse response = client.post(target, entity, format);
+        try {
+            log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
+            return response.getStatusLine().getStatusCode();
+        } finally {
+            response.close();
+            invalidateDataset(dataset);
+        }
+    }
+
+    /**
+     * Imports the entity into the dataset without blocking, returning the future status code of the response
+     */
+    ListenableFuture<Integer> importStatusAsync(HttpEntity entity, RDFFormat format, String dataset) {
+        try {
+            java.net.URI target = credentials.buildUrl(getDatasetUriBuilder(dataset));
+            return invalidatingDataset(client.postAsync(target, entity, null, format.getDefaultMIMEType(), new ResponseHandler<Integer>() {
+                @Override
+                public Integer handleResponse(HttpResponse response) {
+                    log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
+                    return response.getStatusLine().getStatusCode();
+                }
+            }), dataset);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
+    /**
+     * Preferred wire format accepted by the endpoint for imports, as far as known
+     */
+    RDFFormat getImportFormat() {
+        return getWireFormat(wireFormat.get());
     }
 
     @Override
@@ -118,33 +488,29 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
         log.debug("Importing {} data into dataset {}", format.getName(), dataset);
         try {
             java.net.URI target = credentials.buildUrl(getDatasetUriBuilder(dataset));
-            CloseableHttpResponse response;
-            if (cleanBefore) {
-                response = client.put(target, in, format);
-            } else {
-                response = client.post(target, in, format);
-            }
-            try {
-                log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
-                return (response.getStatusLine().getStatusCode() == 200);
-            } finally {
-                response.close();
-            }
+            return execImport(target, new InputStreamEntity(in), format, cleanBefore);
         } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             log.error("Error importing dataset: {}", e.getMessage(), e);
             throw new RuntimeException(e);
+        } finally {
+            invalidateDataset(dataset);
         }
     }
 
     @Override
     public Model exportDataset(String dataset) {
-        RDFFormat format = RDFFormat.TURTLE;
+        final Model model = new LinkedHashModel();
+        exportDataset(dataset, new StatementCollector(model));
+        return model;
+    }
+
+    @Override
+    public void exportDataset(String dataset, RDFHandler handler) {
         try {
             final java.net.URI target = credentials.buildUrl(getDatasetUriBuilder(dataset));
-            log.debug("Exporting {} data from dataset {}", format.getName(), dataset);
-            final String entity = client.get(target, format.getDefaultMIMEType());
-            return Rio.parse(new StringReader(entity), target.toString(), format, new ParserConfig(), ValueFactoryImpl.getInstance(), new ParseErrorLogger());
-        } catch (IllegalArgumentException | URISyntaxException | RDFParseException | IOException e) {
+            log.debug("Exporting data from dataset {}", dataset);
+            client.get(target, wireFormatsAccept, new RDFResponseHandler(target, getWireFormat(0), handler));
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             throw new RuntimeException(e);
         }
     }
@@ -164,38 +530,139 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
             }
         } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            invalidateDataset(dataset);
         }
     }
 
     @Override
     public Model getResource(String resource) {
+        final Model model = new LinkedHashModel();
+        getResource(resource, new StatementCollector(model));
+        return model;
+    }
+
+    @Override
+    public Model getResource(String resource, String dataset) {
+        final Model model = new LinkedHashModel();
+        getResource(resource, dataset, new StatementCollector(model));
+        return model;
+    }
+
+    @Override
+    public void getResource(String resource, RDFHandler handler) {
         try {
-            return getResource(getResourceUriBuilder(resource));
+            getResource(null, resource, getResourceUriBuilder(resource), handler);
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
     }
 
     @Override
-    public Model getResource(String resource, String dataset) {
+    public void getResource(String resource, String dataset, RDFHandler handler) {
+        try {
+            getResource(dataset, resource, getResourceUriBuilder(dataset, resource), handler);
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ListenableFuture<Model> getResourceAsync(String resource) {
         try {
-            return getResource(getResourceUriBuilder(dataset, resource));
+            return getResourceAsync(null, resource, getResourceUriBuilder(resource));
         } catch (URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
+    @Override
+    public ListenableFuture<Model> getResourceAsync(String resource, String dataset) {
+        try {
+            return getResourceAsync(dataset, resource, getResourceUriBuilder(dataset, resource));
+        } catch (URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
+    private ListenableFuture<Model> getResourceAsync(final String dataset, final String resource, UriBuilder uriBuilder) {
+        final long version;
+        if (cache != null) {
+            final Model cached = cache.get(dataset, resource);
+            if (cached != null) {
+                return Futures.immediateFuture(cached);
+            }
+            version = cache.version();
+        } else {
+            version = 0;
+        }
+        final RDFFormat format = getWireFormat(0);
+        final java.net.URI target;
+        try {
+            target = credentials.buildUrl(uriBuilder);
+        } catch (IllegalArgumentException | URISyntaxException | MalformedURLException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+        log.debug("Exporting data from resource {}", target.toString());
+        return client.getAsync(target, wireFormatsAccept, new ResponseHandler<Model>() {
+            @Override
+            public Model handleResponse(HttpResponse response) throws IOException {
+                final int status = response.getStatusLine().getStatusCode();
+                final Model model = new LinkedHashModel();
+                if (status >= 200 && status < 300) {
+                    parseRDF(response, target, format, new StatementCollector(model));
+                } else if (status != 404) {
+                    throw new RuntimeException(new ClientProtocolException("Unexpected response status: " + status));
+                }
+                if (cache != null) {
+                    cache.put(dataset, resource, model, version);
+                }
+                return model;
+            }
+        });
+    }
+
+    /**
+     * Reads the resource through the cache, if any: cached resources are replayed to the handler, and the rest are
+     * read whole before being handled, so they can be cached
+     */
+    private void getResource(String dataset, String resource, UriBuilder uriBuilder, RDFHandler handler) {
+        if (cache == null) {
+            getResource(uriBuilder, handler);
+            return;
+        }
+        Model model = cache.get(dataset, resource);
+        if (model == null) {
+            final long version = cache.version();
+            model = new LinkedHashModel();
+            getResource(uriBuilder, new StatementCollector(model));
+            cache.put(dataset, resource, model, version);
+        }
+        try {
+            handler.startRDF();
+            for (Statement statement : model) {
+                handler.handleStatement(statement);
+            }
+            handler.endRDF();
+        } catch (RDFHandlerException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private Model getResource(UriBuilder uriBuilder) {
-        RDFFormat format = RDFFormat.TURTLE;
+    private void getResource(UriBuilder uriBuilder, RDFHandler handler) {
         try {
             java.net.URI target = credentials.buildUrl(uriBuilder);
-            log.debug("Exporting {} data from resource {}", format.getName(), target.toString());
-            String entity = client.get(target, format.getDefaultMIMEType());
-            return Rio.parse(new StringReader(entity), target.toString(), format, new ParserConfig(), ValueFactoryImpl.getInstance(), new ParseErrorLogger());
-        } catch (IllegalArgumentException | URISyntaxException | RDFParseException | IOException e) {
+            log.debug("Exporting data from resource {}", target.toString());
+            client.get(target, wireFormatsAccept, new RDFResponseHandler(target, getWireFormat(0), handler));
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             if (e instanceof ClientProtocolException && "Unexpected response status: 404".compareTo(e.getMessage())==0) {
                 //keeping old behavior, should not be silently fail (i.e. return empty model)?
-                return new LinkedHashModel();
+                try {
+                    handler.startRDF();
+                    handler.endRDF();
+                } catch (RDFHandlerException e1) {
+                    throw new RuntimeException(e1);
+                }
             } else {
                 throw new RuntimeException(e);
             }
@@ -209,28 +676,29 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
 
     @Override
     public boolean importResource(String resource, Model data, String dataset, boolean cleanBefore) {
-        RDFFormat format = RDFFormat.TURTLE;
+        log.debug("Importing data for resource {} in {}", resource, dataset);
+        try {
+            java.net.URI target = credentials.buildUrl(getResourceUriBuilder(dataset, resource));
+            return execImport(target, data, cleanBefore);
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
+            log.error("Error importing resource: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            invalidateResource(resource, dataset);
+        }
+    }
+
+    @Override
+    public boolean importResource(String resource, Model data, String dataset, boolean cleanBefore, RDFFormat format) {
         log.debug("Importing {} data for resource {} in {}", format.getName(), resource, dataset);
         try {
             java.net.URI target = credentials.buildUrl(getResourceUriBuilder(dataset, resource));
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            Rio.write(data, out, format);
-            InputStream in = new ByteArrayInputStream(out.toByteArray());
-            CloseableHttpResponse response;
-            if (cleanBefore) {
-                response = client.put(target, in, format);
-            } else {
-                response = client.post(target, in, format);
-            }
-            try {
-                log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
-                return (response.getStatusLine().getStatusCode() == 200);
-            } finally {
-                response.close();
-            }
-        } catch (IllegalArgumentException | URISyntaxException | RDFHandlerException | IOException e) {
+            return execImport(target, new RDFModelEntity(data, format), format, cleanBefore);
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             log.error("Error importing resource: {}", e.getMessage(), e);
             throw new RuntimeException(e);
+        } finally {
+            invalidateResource(resource, dataset);
         }
     }
 
@@ -249,6 +717,8 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
             }
         } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            invalidateResource(resource, dataset);
         }
     }
 
@@ -256,7 +726,7 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
     public SPARQLResult sparqlTupleQuery(String query) {
         try {
             java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder());
-            return execTupleQuery(target, query);
+            return execCachedTupleQuery(target, query, null);
         } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
             throw new RuntimeException(e);
         }
@@ -272,7 +742,7 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
     public SPARQLResult sparqlTupleQuery(String query, String dataset) {
         try {
             java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder(dataset));
-            return execTupleQuery(target, query);
+            return execCachedTupleQuery(target, query, dataset);
         } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
             throw new RuntimeException(e);
         }
@@ -284,11 +754,71 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
         return sparqlTupleQuery(query, dataset);
     }
 
+    @Override
+    public ListenableFuture<SPARQLResult> sparqlTupleQueryAsync(String query) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder());
+            return execCachedTupleQueryAsync(target, query, null);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
+    @Override
+    public ListenableFuture<SPARQLResult> sparqlTupleQueryAsync(String query, String dataset) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder(dataset));
+            return execCachedTupleQueryAsync(target, query, dataset);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
+    @Override
+    public void sparqlTupleQuery(String query, TupleQueryResultHandler handler) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder());
+            execTupleQuery(target, query, handler);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void sparqlTupleQuery(String query, String dataset, TupleQueryResultHandler handler) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder(dataset));
+            execTupleQuery(target, query, handler);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public TupleQueryResult sparqlTupleQueryCursor(String query) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder());
+            return execTupleQueryCursor(target, query);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public TupleQueryResult sparqlTupleQueryCursor(String query, String dataset) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder(dataset));
+            return execTupleQueryCursor(target, query);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public Model sparqlGraphQuery(String query) {
         try {
             java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder());
-            return execGraphQuery(target, query);
+            return execCachedGraphQuery(target, query, null);
         } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
             throw new RuntimeException(e);
         }
@@ -298,12 +828,52 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
     public Model sparqlGraphQuery(String query, String dataset) {
         try {
             java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder(dataset));
-            return execGraphQuery(target, query);
+            return execCachedGraphQuery(target, query, dataset);
         } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public void sparqlGraphQuery(String query, RDFHandler handler) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder());
+            execGraphQuery(target, query, handler);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void sparqlGraphQuery(String query, String dataset, RDFHandler handler) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder(dataset));
+            execGraphQuery(target, query, handler);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ListenableFuture<Model> sparqlGraphQueryAsync(String query) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder());
+            return execCachedGraphQueryAsync(target, query, null);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
+    @Override
+    public ListenableFuture<Model> sparqlGraphQueryAsync(String query, String dataset) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlSelectUriBuilder(dataset));
+            return execCachedGraphQueryAsync(target, query, dataset);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
     @Override
     public boolean sparqlUpdate(String query, String dataset) {
         try {
@@ -311,6 +881,65 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
             return execUpdate(target, query);
         } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
             throw new RuntimeException(e);
+        } finally {
+            invalidateDataset(dataset);
+        }
+    }
+
+    @Override
+    public ListenableFuture<Boolean> sparqlUpdateAsync(String query, String dataset) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlUpdateUriBuilder(dataset));
+            log.debug("Executing SPARQL update query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
+            return invalidatingDataset(client.postAsync(target, query, "application/json", "application/sparql-update", new ResponseHandler<Boolean>() {
+                @Override
+                public Boolean handleResponse(HttpResponse response) {
+                    return parseUpdateResponse(response);
+                }
+            }), dataset);
+        } catch (MalformedURLException | IllegalArgumentException | URISyntaxException e) {
+            return Futures.immediateFailedFuture(new RuntimeException(e));
+        }
+    }
+
+    @Override
+    public BatchingUpdateWriter createUpdateWriter(String dataset) {
+        return createUpdateWriter(dataset, BatchingUpdateConfig.defaultConfig());
+    }
+
+    @Override
+    public BatchingUpdateWriter createUpdateWriter(String dataset, BatchingUpdateConfig config) {
+        return new BatchingUpdateWriter(this, dataset, config);
+    }
+
+    @Override
+    public StatementLoader createStatementLoader(String dataset) {
+        return createStatementLoader(dataset, StatementLoaderConfig.defaultConfig());
+    }
+
+    @Override
+    public StatementLoader createStatementLoader(String dataset, StatementLoaderConfig config) {
+        return new StatementLoader(this, dataset, config);
+    }
+
+    /**
+     * Executes a SPARQL update, returning the status code of the response
+     */
+    int sparqlUpdateStatus(String query, String dataset) {
+        try {
+            java.net.URI target = credentials.buildUrl(getSparqlUpdateUriBuilder(dataset));
+            log.debug("Executing SPARQL update query: {} characters", query.length());
+            CloseableHttpResponse response = client.post(target, query, "application/json", "application/sparql-update");
+            try {
+                log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
+                return response.getStatusLine().getStatusCode();
+            } finally {
+                response.close();
+            }
+        } catch (IllegalArgumentException | URISyntaxException | IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            invalidateDataset(dataset);
         }
     }
 
@@ -349,6 +978,50 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
             }
         } catch (IllegalArgumentException | URISyntaxException | IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            invalidateDataset(dataset);
+        }
+    }
+
+    private boolean execImport(java.net.URI target, HttpEntity entity, RDFFormat format, boolean cleanBefore) throws IOException {
+        CloseableHttpResponse response;
+        if (cleanBefore) {
+            response = client.put(target, entity, format);
+        } else {
+            response = client.post(target, entity, format);
+        }
+        try {
+            log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
+            return (response.getStatusLine().getStatusCode() == 200);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Imports the model in the preferred wire format accepted by the endpoint, falling back to the next one (for
+     * this and every later import) while the endpoint answers <code>415 Unsupported Media Type</code>
+     */
+    private boolean execImport(java.net.URI target, Model data, boolean cleanBefore) throws IOException {
+        while (true) {
+            final int index = wireFormat.get();
+            final RDFFormat format = getWireFormat(index);
+            final RDFModelEntity entity = new RDFModelEntity(data, format);
+            final CloseableHttpResponse response = cleanBefore ? client.put(target, entity, format) : client.post(target, entity, format);
+            try {
+                final int status = response.getStatusLine().getStatusCode();
+                if (status == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE && index + 1 < wireFormats.length) {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    if (wireFormat.compareAndSet(index, index + 1)) {
+                        log.info("{} data not supported by the endpoint, falling back to {}", format.getName(), getWireFormat(index + 1).getName());
+                    }
+                    continue;
+                }
+                log.debug("Request resolved with {} status code: {}", status, response.getStatusLine().getReasonPhrase());
+                return status == 200;
+            } finally {
+                response.close();
+            }
         }
     }
 
@@ -388,90 +1061,268 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
         return initiateUriBuilding().path(PATH).path(dataset).path(RELEASE);
     }
 
+    /**
+     * Runs the tuple query through the query cache, if any
+     */
+    private SPARQLResult execCachedTupleQuery(final java.net.URI target, final String query, String dataset) {
+        if (queryCache == null) {
+            return execTupleQuery(target, query);
+        }
+        return COPY_TUPLE_RESULT.apply(await(queryCache.get(QueryCache.Kind.TUPLE, dataset, query, new Callable<ListenableFuture<SPARQLResult>>() {
+            @Override
+            public ListenableFuture<SPARQLResult> call() {
+                return Futures.immediateFuture(execTupleQuery(target, query));
+            }
+        })));
+    }
+
+    private ListenableFuture<SPARQLResult> execCachedTupleQueryAsync(final java.net.URI target, final String query, String dataset) {
+        if (queryCache == null) {
+            return execTupleQueryAsync(target, query);
+        }
+        final ListenableFuture<SPARQLResult> shared = queryCache.get(QueryCache.Kind.TUPLE, dataset, query, new Callable<ListenableFuture<SPARQLResult>>() {
+            @Override
+            public ListenableFuture<SPARQLResult> call() {
+                return execTupleQueryAsync(target, query);
+            }
+        });
+        // a caller cancelling its future must not cancel the query for the others
+        return Futures.transform(Futures.nonCancellationPropagating(shared), COPY_TUPLE_RESULT, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Runs the graph query through the query cache, if any
+     */
+    private Model execCachedGraphQuery(final java.net.URI target, final String query, String dataset) {
+        if (queryCache == null) {
+            final Model model = new LinkedHashModel();
+            execGraphQuery(target, query, new StatementCollector(model));
+            return model;
+        }
+        return COPY_GRAPH_RESULT.apply(await(queryCache.get(QueryCache.Kind.GRAPH, dataset, query, new Callable<ListenableFuture<Model>>() {
+            @Override
+            public ListenableFuture<Model> call() {
+                final Model model = new LinkedHashModel();
+                execGraphQuery(target, query, new StatementCollector(model));
+                return Futures.immediateFuture(model);
+            }
+        })));
+    }
+
+    private ListenableFuture<Model> execCachedGraphQueryAsync(final java.net.URI target, final String query, String dataset) {
+        if (queryCache == null) {
+            return execGraphQueryAsync(target, query);
+        }
+        final ListenableFuture<Model> shared = queryCache.get(QueryCache.Kind.GRAPH, dataset, query, new Callable<ListenableFuture<Model>>() {
+            @Override
+            public ListenableFuture<Model> call() {
+                return execGraphQueryAsync(target, query);
+            }
+        });
+        // a caller cancelling its future must not cancel the query for the others
+        return Futures.transform(Futures.nonCancellationPropagating(shared), COPY_GRAPH_RESULT, MoreExecutors.directExecutor());
+    }
+
     private SPARQLResult execTupleQuery(java.net.URI target, String query) {
-        try {
-            log.debug("Executing SPARQL tuple query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
-            TupleQueryResultFormat format = TupleQueryResultFormat.JSON;
-            CloseableHttpResponse response = client.post(target, query, format.getDefaultMIMEType());
-            final int status = response.getStatusLine().getStatusCode();
-            log.debug("Request resolved with {} status code: {}", status, response.getStatusLine().getReasonPhrase());
-            try {
-                if (status >= 200 && status < 300) {
-                    QueryResultCollector results = new QueryResultCollector();
-                    parse(EntityUtils.toString(response.getEntity()), format, results, ValueFactoryImpl.getInstance());
-                    if (!results.getHandledTuple() || results.getBindingSets().isEmpty()) {
-                        return new SPARQLResult(new LinkedHashSet<String>());
-                    } else {
-                        List<String> fieldNames = results.getBindingNames();
-
-                        //TODO: find sesame classes for removing this code
-                        SPARQLResult result = new SPARQLResult(new LinkedHashSet<String>(fieldNames));
-
-                        for (BindingSet nextRow : results.getBindingSets()) {
-                            Map<String, RDFNode> row = new HashMap<String, RDFNode>();
-
-                            for (String nextBindingName : fieldNames) {
-                                if (nextRow.hasBinding(nextBindingName)) {
-                                    Binding nextBinding = nextRow.getBinding(nextBindingName);
-                                    Value nodeDef = nextBinding.getValue();
-                                    RDFNode node = null;
-                                    if (nodeDef instanceof org.openrdf.model.URI) {
-                                        node = new URI(nodeDef.stringValue());
-                                    } else if (nodeDef instanceof org.openrdf.model.BNode) {
-                                        node = new BNode(((org.openrdf.model.BNode) nodeDef).getID());
-                                    } else if (nodeDef instanceof org.openrdf.model.Literal) {
-                                        org.openrdf.model.Literal nodeLiteral = (org.openrdf.model.Literal) nodeDef;
-                                        if (nodeLiteral.getLanguage() != null) {
-                                            node = new Literal(nodeLiteral.getLabel(), nodeLiteral.getLanguage());
-                                        } else if (nodeLiteral.getDatatype() != null) {
-                                            node = new Literal(nodeLiteral.getLabel(), new URI(nodeLiteral.getDatatype().stringValue()));
-                                        } else {
-                                            node = new Literal(nodeLiteral.getLabel());
-                                        }
-                                    }
-
-                                    if (node != null) {
-                                        row.put(nextBindingName, node);
-                                    }
-                                }
-                            }
-                            result.add(row);
-                        }
-                        return result;
-                    }
-                } else {
-                    // TODO: improve this feedback from the sdk (400, 500, etc)
-                    throw new RuntimeException("Query failed: HTTP error code " + status + ": " + response.getStatusLine().getReasonPhrase());
+        final SPARQLResultBuilder result = new SPARQLResultBuilder();
+        execTupleQuery(target, query, result);
+        return result.getResult();
+    }
+
+    private ListenableFuture<SPARQLResult> execTupleQueryAsync(java.net.URI target, String query) {
+        log.debug("Executing SPARQL tuple query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
+        return execTupleQueryAsync(target, query, tupleQueryFormat.get());
+    }
+
+    private ListenableFuture<SPARQLResult> execTupleQueryAsync(final java.net.URI target, final String query, final int index) {
+        final TupleQueryResultFormat format = TUPLE_QUERY_FORMATS[index];
+        final ListenableFuture<SPARQLResult> result = client.postAsync(target, query, format.getDefaultMIMEType(), null, new ResponseHandler<SPARQLResult>() {
+            @Override
+            public SPARQLResult handleResponse(HttpResponse response) throws IOException {
+                if (fallBack(response, index)) {
+                    throw new FormatNotAcceptableException(format);
                 }
+                final SPARQLResultBuilder result = new SPARQLResultBuilder();
+                parseTupleQueryResponse(response, format, result);
+                return result.getResult();
+            }
+        });
+        return Futures.catchingAsync(result, FormatNotAcceptableException.class, new AsyncFunction<FormatNotAcceptableException, SPARQLResult>() {
+            @Override
+            public ListenableFuture<SPARQLResult> apply(FormatNotAcceptableException e) {
+                return execTupleQueryAsync(target, query, tupleQueryFormat.get());
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Parses the tuple query results straight from the entity stream, pushing the solutions to the handler. The
+     * results are decoded in the format declared by the response, which is expected to be the requested one
+     */
+    private void parseTupleQueryResponse(HttpResponse response, TupleQueryResultFormat requested, TupleQueryResultHandler handler) throws IOException {
+        final int status = response.getStatusLine().getStatusCode();
+        log.debug("Request resolved with {} status code: {}", status, response.getStatusLine().getReasonPhrase());
+        if (status >= 200 && status < 300) {
+            final TupleQueryResultFormat format = getTupleQueryResultFormat(response.getEntity(), requested);
+            final InputStream in = response.getEntity().getContent();
+            try {
+                parse(in, format, handler, ValueFactoryImpl.getInstance());
             } catch (QueryResultParseException | QueryResultHandlerException e) {
                 log.error("Error parsing query results: {}", e.getMessage(), e);
                 throw new RuntimeException(e);
             } finally {
-                response.close();
+                in.close();
+            }
+        } else {
+            // TODO: improve this feedback from the sdk (400, 500, etc)
+            throw new RuntimeException("Query failed: HTTP error code " + status + ": " + response.getStatusLine().getReasonPhrase());
+        }
+    }
+
+    private static TupleQueryResultFormat getTupleQueryResultFormat(HttpEntity entity, TupleQueryResultFormat requested) {
+        final String mimeType = getMIMEType(entity);
+        return mimeType != null ? QueryResultIO.getParserFormatForMIMEType(mimeType, requested) : requested;
+    }
+
+    private static RDFFormat getRDFFormat(HttpEntity entity, RDFFormat requested) {
+        final String mimeType = getMIMEType(entity);
+        return mimeType != null ? Rio.getParserFormatForMIMEType(mimeType, requested) : requested;
+    }
+
+    private static String getMIMEType(HttpEntity entity) {
+        final Header contentType = entity.getContentType();
+        if (contentType != null) {
+            final HeaderElement[] elements = contentType.getElements();
+            if (elements.length > 0) {
+                return elements[0].getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the endpoint refused the tuple query result format at the given index while a slower one is
+     * still left, moving every later query of this client to the next format
+     *
+     * @return true if the query must be sent again
+     */
+    private boolean fallBack(HttpResponse response, int index) {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_ACCEPTABLE || index + 1 >= TUPLE_QUERY_FORMATS.length) {
+            return false;
+        }
+        EntityUtils.consumeQuietly(response.getEntity());
+        if (tupleQueryFormat.compareAndSet(index, index + 1)) {
+            log.info("{} query results not acceptable by the endpoint, falling back to {}",
+                    TUPLE_QUERY_FORMATS[index].getName(), TUPLE_QUERY_FORMATS[index + 1].getName());
+        }
+        return true;
+    }
+
+    private void execTupleQuery(java.net.URI target, String query, TupleQueryResultHandler handler) {
+        try {
+            log.debug("Executing SPARQL tuple query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
+            while (true) {
+                final int index = tupleQueryFormat.get();
+                final TupleQueryResultFormat format = TUPLE_QUERY_FORMATS[index];
+                CloseableHttpResponse response = client.post(target, query, format.getDefaultMIMEType());
+                try {
+                    if (!fallBack(response, index)) {
+                        parseTupleQueryResponse(response, format, handler);
+                        return;
+                    }
+                } finally {
+                    response.close();
+                }
             }
         } catch (IllegalArgumentException | IOException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private Model execGraphQuery(java.net.URI target, String query) {
+    private TupleQueryResult execTupleQueryCursor(java.net.URI target, String query) {
         try {
             log.debug("Executing SPARQL tuple query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
-            RDFFormat format = RDFFormat.TURTLE;
-            CloseableHttpResponse response = client.post(target, query, format.getDefaultMIMEType(),SPARQL_QUERY_MIME_TYPE);
-            final int status = response.getStatusLine().getStatusCode();
-            log.debug("Request resolved with {} status code: {}", status, response.getStatusLine().getReasonPhrase());
+            final CloseableHttpResponse response = client.post(target, query, TupleQueryResultFormat.JSON.getDefaultMIMEType());
             try {
-                if (status >= 200 && status < 300) {
-                    String entity = EntityUtils.toString(response.getEntity());
-                    return Rio.parse(new StringReader(entity), target.toString(), RDFFormat.TURTLE, new ParserConfig(), ValueFactoryImpl.getInstance(), new ParseErrorLogger());
-                } else {
+                final int status = response.getStatusLine().getStatusCode();
+                log.debug("Request resolved with {} status code: {}", status, response.getStatusLine().getReasonPhrase());
+                if (status < 200 || status >= 300) {
                     // TODO: improve this feedback from the sdk (400, 500, etc)
                     throw new RuntimeException("Query failed: HTTP error code " + status + ": " + response.getStatusLine().getReasonPhrase());
                 }
-            } catch (RDFParseException e) {
-                log.error("Error parsing query results: {}", e.getMessage(), e);
-                throw new RuntimeException(e);
+                // the cursor owns the response from now on
+                return new TupleQueryResultCursor(response.getEntity().getContent(), response);
+            } catch (IOException | RuntimeException e) {
+                response.close();
+                throw e;
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Handler building a {@link SPARQLResult} while the solutions are parsed, without collecting them first
+     */
+    private static class SPARQLResultBuilder extends TupleQueryResultHandlerBase {
+
+        private List<String> fieldNames = new ArrayList<>();
+
+        private SPARQLResult result;
+
+        @Override
+        public void startQueryResult(List<String> bindingNames) {
+            fieldNames = bindingNames;
+        }
+
+        @Override
+        public void handleSolution(BindingSet nextRow) {
+            //TODO: find sesame classes for removing this code
+            if (result == null) {
+                result = new SPARQLResult(new LinkedHashSet<String>(fieldNames));
+            }
+            Map<String, RDFNode> row = new HashMap<String, RDFNode>();
+
+            for (String nextBindingName : fieldNames) {
+                if (nextRow.hasBinding(nextBindingName)) {
+                    Binding nextBinding = nextRow.getBinding(nextBindingName);
+                    Value nodeDef = nextBinding.getValue();
+                    RDFNode node = null;
+                    if (nodeDef instanceof org.openrdf.model.URI) {
+                        node = new URI(nodeDef.stringValue());
+                    } else if (nodeDef instanceof org.openrdf.model.BNode) {
+                        node = new BNode(((org.openrdf.model.BNode) nodeDef).getID());
+                    } else if (nodeDef instanceof org.openrdf.model.Literal) {
+                        org.openrdf.model.Literal nodeLiteral = (org.openrdf.model.Literal) nodeDef;
+                        if (nodeLiteral.getLanguage() != null) {
+                            node = new Literal(nodeLiteral.getLabel(), nodeLiteral.getLanguage());
+                        } else if (nodeLiteral.getDatatype() != null) {
+                            node = new Literal(nodeLiteral.getLabel(), new URI(nodeLiteral.getDatatype().stringValue()));
+                        } else {
+                            node = new Literal(nodeLiteral.getLabel());
+                        }
+                    }
+
+                    if (node != null) {
+                        row.put(nextBindingName, node);
+                    }
+                }
+            }
+            result.add(row);
+        }
+
+        SPARQLResult getResult() {
+            return result != null ? result : new SPARQLResult(new LinkedHashSet<String>());
+        }
+
+    }
+
+    private void execGraphQuery(java.net.URI target, String query, RDFHandler handler) {
+        try {
+            log.debug("Executing SPARQL tuple query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
+            CloseableHttpResponse response = client.post(target, query, RDFFormat.TURTLE.getDefaultMIMEType(), SPARQL_QUERY_MIME_TYPE);
+            try {
+                parseGraphQueryResponse(target, response, handler);
             } finally {
                 response.close();
             }
@@ -480,14 +1331,84 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
         }
     }
 
+    private ListenableFuture<Model> execGraphQueryAsync(final java.net.URI target, String query) {
+        log.debug("Executing SPARQL tuple query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
+        return client.postAsync(target, query, RDFFormat.TURTLE.getDefaultMIMEType(), SPARQL_QUERY_MIME_TYPE, new ResponseHandler<Model>() {
+            @Override
+            public Model handleResponse(HttpResponse response) throws IOException {
+                final Model model = new LinkedHashModel();
+                parseGraphQueryResponse(target, response, new StatementCollector(model));
+                return model;
+            }
+        });
+    }
+
+    private void parseGraphQueryResponse(java.net.URI target, HttpResponse response, RDFHandler handler) throws IOException {
+        final int status = response.getStatusLine().getStatusCode();
+        log.debug("Request resolved with {} status code: {}", status, response.getStatusLine().getReasonPhrase());
+        if (status >= 200 && status < 300) {
+            parseRDF(response, target, RDFFormat.TURTLE, handler);
+        } else {
+            // TODO: improve this feedback from the sdk (400, 500, etc)
+            throw new RuntimeException("Query failed: HTTP error code " + status + ": " + response.getStatusLine().getReasonPhrase());
+        }
+    }
+
+    /**
+     * Parses the RDF response straight from the entity stream, pushing the statements to the handler. The statements
+     * are decoded in the format declared by the response, or the requested one if it declares none
+     */
+    private static void parseRDF(HttpResponse response, java.net.URI target, RDFFormat requested, RDFHandler handler) throws IOException {
+        final RDFFormat format = getRDFFormat(response.getEntity(), requested);
+        final RDFParser parser = Rio.createParser(format, ValueFactoryImpl.getInstance());
+        parser.setParserConfig(new ParserConfig());
+        parser.setParseErrorListener(new ParseErrorLogger());
+        parser.setRDFHandler(handler);
+        final InputStream in = response.getEntity().getContent();
+        try {
+            parser.parse(in, target.toString());
+        } catch (RDFParseException | RDFHandlerException e) {
+            log.error("Error parsing RDF response: {}", e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Handler streaming successful RDF responses to a {@link RDFHandler}
+     */
+    private static class RDFResponseHandler implements ResponseHandler<Void> {
+
+        private final java.net.URI target;
+        private final RDFFormat format;
+        private final RDFHandler handler;
+
+        RDFResponseHandler(java.net.URI target, RDFFormat format, RDFHandler handler) {
+            this.target = target;
+            this.format = format;
+            this.handler = handler;
+        }
+
+        @Override
+        public Void handleResponse(HttpResponse response) throws IOException {
+            final int status = response.getStatusLine().getStatusCode();
+            if (status >= 200 && status < 300) {
+                parseRDF(response, target, format, handler);
+                return null;
+            } else {
+                throw new ClientProtocolException("Unexpected response status: " + status);
+            }
+        }
+
+    }
+
     private boolean execUpdate(java.net.URI target, String query) {
         try {
             log.debug("Executing SPARQL update query: {}", query.replaceAll("\\s*[\\r\\n]+\\s*", " ").trim());
             CloseableHttpResponse response = client.post(target, query, "application/json", "application/sparql-update");
-            log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
             try {
-                final int status = response.getStatusLine().getStatusCode();
-                return (status >= 200 && status < 300);
+                return parseUpdateResponse(response);
             } finally {
                 response.close();
             }
@@ -496,6 +1417,12 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
         }
     }
 
+    private boolean parseUpdateResponse(HttpResponse response) {
+        log.debug("Request resolved with {} status code: {}", response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase());
+        final int status = response.getStatusLine().getStatusCode();
+        return (status >= 200 && status < 300);
+    }
+
     private LDPathResult execLDPath(java.net.URI target, String uri, String program) {
         try {
             log.debug("Executing LDpath program over resource {}", uri);
@@ -533,8 +1460,17 @@ public class RedLinkDataImpl extends RedLinkAbstractImpl implements RedLink.Data
         parser.parseQueryResult(in);
     }
 
-    private void parse(String str, TupleQueryResultFormat format, QueryResultHandler handler, ValueFactory valueFactory) throws IOException, QueryResultParseException, QueryResultHandlerException, UnsupportedQueryResultFormatException {
-        parse(new ByteArrayInputStream(str.getBytes("UTF-8")), format, handler, valueFactory);
+    /**
+     * Signals a tuple query result format refused by the endpoint
+     */
+    private static class FormatNotAcceptableException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        FormatNotAcceptableException(TupleQueryResultFormat format) {
+            super(format.getName() + " query results not acceptable");
+        }
+
     }
 
 }
@@ -0,0 +1,298 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import org.openrdf.model.Model;
+import org.openrdf.model.impl.LinkedHashModel;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of the resources read from the data endpoint, keyed by the resource and the dataset it was read
+ * from. Entries are weighted by their number of statements, evicted in least-recently-used order once the maximum
+ * weight is reached, and expire a fixed time after being written. Resources not found (empty ones) are cached too,
+ * for a shorter time. The data clients using the cache discard the affected entries on every write they perform;
+ * writes from other clients are only seen once the entries expire. Only the settings of the cache are serialized, so
+ * deserialized clients get an empty cache, shared by those deserialized together. Instances are thread-safe and must
+ * be created using a {@link ResourceCacheBuilder}
+ */
+public final class ResourceCache implements Serializable {
+
+    private static final long serialVersionUID = 3950281728764531209L;
+
+    /**
+     * Default maximum weight (statements) of the cached resources
+     */
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 100 * 1000;
+
+    /**
+     * Default time a resource is cached (milliseconds)
+     */
+    public static final long DEFAULT_EXPIRE_AFTER_WRITE = 5 * 60 * 1000;
+
+    /**
+     * Default time a resource not found is cached (milliseconds)
+     */
+    public static final long DEFAULT_EXPIRE_MISSING_AFTER_WRITE = 60 * 1000;
+
+    /**
+     * Dataset of the entries read from all the datasets of the application
+     */
+    private static final String ANY_DATASET = "";
+
+    private final transient Cache<String, Entry> cache;
+
+    private final long maximumWeight;
+
+    private final long expireAfterWrite;
+
+    private final long expireMissingAfterWrite;
+
+    /**
+     * Increased on every invalidation, so reads started before it are not cached
+     */
+    private final transient AtomicLong version = new AtomicLong();
+
+    private ResourceCache(long maximumWeight, long expireAfterWrite, long expireMissingAfterWrite) {
+        this.maximumWeight = maximumWeight;
+        this.expireAfterWrite = expireAfterWrite;
+        this.expireMissingAfterWrite = expireMissingAfterWrite;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(new Weigher<String, Entry>() {
+                    @Override
+                    public int weigh(String key, Entry value) {
+                        return 1 + value.model.size();
+                    }
+                })
+                .expireAfterWrite(expireAfterWrite, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    private static String key(String dataset, String resource) {
+        // dataset names can not contain spaces
+        return (dataset != null ? dataset : ANY_DATASET) + ' ' + resource;
+    }
+
+    /**
+     * Gets a copy of the cached resource
+     *
+     * @param dataset  dataset the resource was read from, null for all of them
+     * @param resource resource URI
+     * @return copy of the resource, or null if not cached
+     */
+    Model get(String dataset, String resource) {
+        final String key = key(dataset, resource);
+        final Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expires > 0 && System.currentTimeMillis() > entry.expires) {
+            cache.asMap().remove(key, entry);
+            return null;
+        }
+        return new LinkedHashModel(entry.model);
+    }
+
+    /**
+     * Current version of the cache, to be passed to {@link #put(String, String, Model, long)} once the resource is read
+     */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Caches a copy of the resource, unless any entry has been invalidated since the read started
+     *
+     * @param dataset  dataset the resource was read from, null for all of them
+     * @param resource resource URI
+     * @param model    resource read
+     * @param version  {@link #version()} before reading the resource
+     */
+    void put(String dataset, String resource, Model model, long version) {
+        if (model.isEmpty() && expireMissingAfterWrite <= 0) {
+            return;
+        }
+        final Entry entry = new Entry(new LinkedHashModel(model),
+                model.isEmpty() ? System.currentTimeMillis() + expireMissingAfterWrite : 0);
+        if (this.version.get() == version) {
+            cache.put(key(dataset, resource), entry);
+            // an invalidation may have happened meanwhile
+            if (this.version.get() != version) {
+                cache.invalidate(key(dataset, resource));
+            }
+        }
+    }
+
+    /**
+     * Discards the resource, as read from the dataset or from all the datasets
+     *
+     * @param dataset  dataset written
+     * @param resource resource URI
+     */
+    void invalidate(String dataset, String resource) {
+        version.incrementAndGet();
+        cache.invalidate(key(dataset, resource));
+        cache.invalidate(key(null, resource));
+    }
+
+    /**
+     * Discards all the resources read from the dataset or from all the datasets
+     *
+     * @param dataset dataset written
+     */
+    void invalidateDataset(String dataset) {
+        version.incrementAndGet();
+        final String prefix = key(dataset, "");
+        final String any = key(null, "");
+        final Iterator<String> keys = cache.asMap().keySet().iterator();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            if (key.startsWith(prefix) || key.startsWith(any)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Number of cached resources
+     *
+     * @return approximate number of entries
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Hit, miss and eviction counters of the cache
+     *
+     * @return cache statistics
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Discards all the cached resources
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Replaces the deserialized settings by a new empty cache
+     */
+    private Object readResolve() {
+        return new ResourceCache(maximumWeight, expireAfterWrite, expireMissingAfterWrite);
+    }
+
+    private static final class Entry {
+
+        private final Model model;
+
+        /**
+         * Expiration time of the entries of resources not found, 0 for the rest
+         */
+        private final long expires;
+
+        private Entry(Model model, long expires) {
+            this.model = model;
+            this.expires = expires;
+        }
+
+    }
+
+    /**
+     * Resource Cache Builder. This class allows the user to easily generate {@link ResourceCache} objects
+     */
+    public static class ResourceCacheBuilder {
+
+        private long maximumWeight = DEFAULT_MAXIMUM_WEIGHT;
+
+        private long expireAfterWrite = DEFAULT_EXPIRE_AFTER_WRITE;
+
+        private long expireMissingAfterWrite = DEFAULT_EXPIRE_MISSING_AFTER_WRITE;
+
+        /**
+         * Set the maximum total weight of the cached resources, where each resource weighs its number of statements
+         *
+         * @param maximumWeight maximum weight
+         * @return Current Cache Builder
+         */
+        public ResourceCacheBuilder setMaximumWeight(long maximumWeight) {
+            if (maximumWeight < 1) {
+                throw new IllegalArgumentException("maximum weight must be positive");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Set how long a resource is cached since it was read
+         *
+         * @param duration time to live
+         * @param unit     unit of the time to live
+         * @return Current Cache Builder
+         */
+        public ResourceCacheBuilder setExpireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 1) {
+                throw new IllegalArgumentException("time to live must be positive");
+            }
+            this.expireAfterWrite = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Set how long a resource not found is cached since it was read; it is never cached longer than the
+         * resources found
+         *
+         * @param duration time to live (non positive to not cache resources not found)
+         * @param unit     unit of the time to live
+         * @return Current Cache Builder
+         */
+        public ResourceCacheBuilder setExpireMissingAfterWrite(long duration, TimeUnit unit) {
+            this.expireMissingAfterWrite = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * Returns the resource cache
+         *
+         * @return built {@link ResourceCache} object
+         */
+        public ResourceCache build() {
+            return new ResourceCache(maximumWeight, expireAfterWrite, expireMissingAfterWrite);
+        }
+
+    }
+
+    /**
+     * Create a new Cache Builder
+     *
+     * @return Created {@link ResourceCacheBuilder}
+     */
+    public static ResourceCacheBuilder builder() {
+        return new ResourceCacheBuilder();
+    }
+
+}
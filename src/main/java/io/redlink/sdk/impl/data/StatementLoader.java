@@ -0,0 +1,266 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sink of statements imported into a dataset in chunks: the statements are serialized as they come in the preferred
+ * wire format accepted by the endpoint, and each chunk is sent without blocking once it reaches the
+ * {@link StatementLoaderConfig configured} number of statements or size. When the maximum number of chunks is in
+ * flight, adding statements blocks until one of them is imported, so the memory used does not depend on the
+ * number of statements loaded.
+ * <p>
+ * Statements can be pushed as an {@link RDFHandler} (e.g. from a parser or a query), or pulled from an
+ * {@link Iterator}. Once a chunk fails the loader stops accepting statements; chunks already sent are not rolled
+ * back. Contexts are only kept if the wire format supports them
+ */
+public final class StatementLoader implements RDFHandler, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementLoader.class);
+
+    private final RedLinkDataImpl data;
+
+    private final String dataset;
+
+    private final StatementLoaderConfig config;
+
+    private final RDFFormat format;
+
+    private final ContentType contentType;
+
+    /**
+     * Available slots for chunks in flight
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * Namespaces declared so far, written at the beginning of every chunk
+     */
+    private final Map<String, String> namespaces = new LinkedHashMap<>();
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private RDFWriter writer;
+
+    private int statements = 0;
+
+    private volatile Exception failure;
+
+    private boolean failureReported = false;
+
+    private boolean closed = false;
+
+    StatementLoader(RedLinkDataImpl data, String dataset, StatementLoaderConfig config) {
+        this.data = data;
+        this.dataset = dataset;
+        this.config = config;
+        this.format = data.getImportFormat();
+        this.contentType = format.hasCharset() ?
+                ContentType.create(format.getDefaultMIMEType(), format.getCharset()) : ContentType.create(format.getDefaultMIMEType());
+        this.inFlight = new Semaphore(config.getMaxInFlight());
+    }
+
+    /**
+     * Loads all the statements, and waits until they are imported
+     *
+     * @param statements statements to import
+     * @throws RDFHandlerException if any chunk has not been imported
+     */
+    public void load(Iterator<? extends Statement> statements) throws RDFHandlerException {
+        while (statements.hasNext()) {
+            handleStatement(statements.next());
+        }
+        endRDF();
+    }
+
+    @Override
+    public synchronized void startRDF() throws RDFHandlerException {
+        checkState();
+    }
+
+    @Override
+    public synchronized void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        checkState();
+        namespaces.put(prefix, uri);
+        if (writer != null) {
+            writer.handleNamespace(prefix, uri);
+        }
+    }
+
+    @Override
+    public synchronized void handleStatement(Statement statement) throws RDFHandlerException {
+        checkState();
+        if (writer == null) {
+            writer = Rio.createWriter(format, buffer);
+            writer.startRDF();
+            for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+                writer.handleNamespace(namespace.getKey(), namespace.getValue());
+            }
+        }
+        writer.handleStatement(statement);
+        statements++;
+        if (statements >= config.getMaxStatements() || buffer.size() >= config.getMaxSize()) {
+            send();
+        }
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+        // not sent
+    }
+
+    /**
+     * Sends the statements not sent yet, and waits until all the chunks are imported
+     *
+     * @throws RDFHandlerException if any chunk has not been imported
+     */
+    @Override
+    public synchronized void endRDF() throws RDFHandlerException {
+        checkState();
+        if (writer != null) {
+            send();
+        }
+        awaitInFlight();
+        checkFailure();
+    }
+
+    private void checkState() throws RDFHandlerException {
+        if (closed) {
+            throw new IllegalStateException("statement loader already closed");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws RDFHandlerException {
+        final Exception e = failure;
+        if (e != null) {
+            failureReported = true;
+            throw new RDFHandlerException("import into dataset " + dataset + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends the current chunk, once there is a free slot
+     */
+    private void send() throws RDFHandlerException {
+        writer.endRDF();
+        writer = null;
+        final int count = statements;
+        final NByteArrayEntity entity = new NByteArrayEntity(buffer.toByteArray(), contentType);
+        statements = 0;
+        buffer.reset();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RDFHandlerException("interrupted while waiting to send " + count + " statements", e);
+        }
+        final long start = System.currentTimeMillis();
+        Futures.addCallback(data.importStatusAsync(entity, format, dataset), new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer status) {
+                try {
+                    if (status >= 200 && status < 300) {
+                        final long latency = System.currentTimeMillis() - start;
+                        log.debug("{} statements ({} bytes) imported in {} ms", count, entity.getContentLength(), latency);
+                        if (config.getListener() != null) {
+                            config.getListener().chunkImported(count, entity.getContentLength(), latency);
+                        }
+                    } else {
+                        failed(count, new RuntimeException("Import failed: HTTP error code " + status));
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                try {
+                    failed(count, t instanceof Exception ? (Exception) t : new RuntimeException(t));
+                } finally {
+                    inFlight.release();
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private void failed(int count, Exception e) {
+        log.error("import of {} statements into dataset {} failed: {}", count, dataset, e.getMessage());
+        if (failure == null) {
+            failure = e;
+        }
+        if (config.getListener() != null) {
+            config.getListener().chunkFailed(count, e);
+        }
+    }
+
+    private void awaitInFlight() throws RDFHandlerException {
+        try {
+            inFlight.acquire(config.getMaxInFlight());
+            inFlight.release(config.getMaxInFlight());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RDFHandlerException("interrupted while waiting for the statements to be imported", e);
+        }
+    }
+
+    /**
+     * Sends the statements not sent yet, waits until all the chunks are imported, and releases the loader, which can
+     * not be used anymore
+     *
+     * @throws RuntimeException if any chunk has not been imported, and that was not reported yet
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            if (writer != null && failure == null) {
+                send();
+            }
+            awaitInFlight();
+        } catch (RDFHandlerException e) {
+            throw new RuntimeException(e);
+        } finally {
+            closed = true;
+        }
+        if (failure != null && !failureReported) {
+            failureReported = true;
+            throw new RuntimeException("import into dataset " + dataset + " failed: " + failure.getMessage(), failure);
+        }
+    }
+
+}
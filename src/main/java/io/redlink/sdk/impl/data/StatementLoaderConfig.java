@@ -0,0 +1,188 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+/**
+ * Settings of a {@link StatementLoader}: the size of the chunks the statements are serialized to, and how many of
+ * them can be sent at the same time. At most {@link #getMaxInFlight()} chunks and the one being filled are held in
+ * memory. Instances are immutable and must be created using a {@link StatementLoaderConfigBuilder}
+ */
+public class StatementLoaderConfig {
+
+    /**
+     * Default maximum number of statements of a chunk
+     */
+    public static final int DEFAULT_MAX_STATEMENTS = 10000;
+
+    /**
+     * Default maximum size (bytes) of a chunk
+     */
+    public static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Default maximum number of chunks being sent at the same time
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private int maxStatements = DEFAULT_MAX_STATEMENTS;
+
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+    private StatementLoaderListener listener;
+
+    private StatementLoaderConfig() {
+    }
+
+    private StatementLoaderConfig(StatementLoaderConfig other) {
+        this.maxStatements = other.maxStatements;
+        this.maxSize = other.maxSize;
+        this.maxInFlight = other.maxInFlight;
+        this.listener = other.listener;
+    }
+
+    /**
+     * Returns the configuration with the default settings
+     *
+     * @return default {@link StatementLoaderConfig}
+     */
+    public static StatementLoaderConfig defaultConfig() {
+        return new StatementLoaderConfig();
+    }
+
+    /**
+     * Maximum number of statements sent in a single chunk
+     *
+     * @return max statements
+     */
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    /**
+     * Size of the serialized statements that triggers sending them. It is checked as the serializer outputs them,
+     * so chunks can exceed it by the buffer of the serializer
+     *
+     * @return max size in bytes
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Maximum number of chunks being sent at the same time; once reached, adding statements blocks until a chunk
+     * is imported
+     *
+     * @return max chunks in flight
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Listener notified of every chunk sent
+     *
+     * @return listener, or null if none
+     */
+    public StatementLoaderListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StatementLoaderConfig[maxStatements=%d, maxSize=%d, maxInFlight=%d]", maxStatements, maxSize, maxInFlight);
+    }
+
+    /**
+     * Statement Loader Configuration Builder. This class allows the user to easily generate {@link StatementLoaderConfig} objects
+     */
+    public static class StatementLoaderConfigBuilder {
+
+        private final StatementLoaderConfig config = new StatementLoaderConfig();
+
+        /**
+         * Set the maximum number of statements sent in a single chunk
+         *
+         * @param max max statements
+         * @return Current Config Builder
+         */
+        public StatementLoaderConfigBuilder setMaxStatements(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max statements must be positive");
+            }
+            this.config.maxStatements = max;
+            return this;
+        }
+
+        /**
+         * Set the size of the serialized statements that triggers sending them
+         *
+         * @param max max size in bytes
+         * @return Current Config Builder
+         */
+        public StatementLoaderConfigBuilder setMaxSize(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max size must be positive");
+            }
+            this.config.maxSize = max;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of chunks being sent at the same time
+         *
+         * @param max max chunks in flight
+         * @return Current Config Builder
+         */
+        public StatementLoaderConfigBuilder setMaxInFlight(int max) {
+            if (max < 1) {
+                throw new IllegalArgumentException("max chunks in flight must be positive");
+            }
+            this.config.maxInFlight = max;
+            return this;
+        }
+
+        /**
+         * Set the listener notified of every chunk sent
+         *
+         * @param listener listener (null for none)
+         * @return Current Config Builder
+         */
+        public StatementLoaderConfigBuilder setListener(StatementLoaderListener listener) {
+            this.config.listener = listener;
+            return this;
+        }
+
+        /**
+         * Returns the loader configuration
+         *
+         * @return built {@link StatementLoaderConfig} object
+         */
+        public StatementLoaderConfig build() {
+            return new StatementLoaderConfig(config);
+        }
+
+    }
+
+    /**
+     * Create a new Config Builder
+     *
+     * @return Created {@link StatementLoaderConfigBuilder}
+     */
+    public static StatementLoaderConfigBuilder builder() {
+        return new StatementLoaderConfigBuilder();
+    }
+
+}
@@ -0,0 +1,39 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+/**
+ * Listener of the chunks sent by a {@link StatementLoader}. It is notified in the threads handling the responses,
+ * so it must be thread-safe and must not block
+ */
+public interface StatementLoaderListener {
+
+    /**
+     * Notifies a chunk imported by the server
+     *
+     * @param statements number of statements in the chunk
+     * @param bytes      size of the serialized chunk
+     * @param latency    time (milliseconds) taken by the request
+     */
+    void chunkImported(int statements, long bytes, long latency);
+
+    /**
+     * Notifies a chunk not imported by the server
+     *
+     * @param statements number of statements in the chunk
+     * @param error      cause of the failure
+     */
+    void chunkFailed(int statements, Exception error);
+
+}
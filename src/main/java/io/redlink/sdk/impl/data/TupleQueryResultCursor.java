@@ -0,0 +1,230 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import info.aduna.iteration.LookAheadIteration;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.impl.MapBindingSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tuple query result lazily parsed from a SPARQL JSON results stream: each {@link BindingSet} is only read from the
+ * stream when requested, so results of any size are iterated in constant memory. The cursor must be closed if not
+ * fully iterated; closing it early aborts the connection instead of reading the rest of the response
+ */
+final class TupleQueryResultCursor extends LookAheadIteration<BindingSet, QueryEvaluationException> implements TupleQueryResult {
+
+    private static final Logger log = LoggerFactory.getLogger(TupleQueryResultCursor.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+
+    private final Closeable connection;
+
+    private final ValueFactory valueFactory = ValueFactoryImpl.getInstance();
+
+    private List<String> bindingNames = Collections.emptyList();
+
+    /**
+     * Whether the whole bindings array has been read
+     */
+    private boolean done;
+
+    /**
+     * Opens the cursor, reading the stream up to the first solution
+     *
+     * @param in         SPARQL JSON results stream
+     * @param connection connection of the stream, aborted when the cursor is closed before being fully iterated
+     * @throws IOException if the results header can not be read
+     */
+    TupleQueryResultCursor(InputStream in, Closeable connection) throws IOException {
+        this.parser = JSON_FACTORY.createParser(in);
+        this.connection = connection;
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("invalid SPARQL JSON results: object expected");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("head".equals(field)) {
+                readHead();
+            } else if ("results".equals(field)) {
+                if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("invalid SPARQL JSON results: results object expected");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("bindings".equals(name)) {
+                        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+                            throw new IOException("invalid SPARQL JSON results: bindings array expected");
+                        }
+                        // positioned at the first solution
+                        return;
+                    }
+                    parser.skipChildren();
+                }
+            } else if ("boolean".equals(field)) {
+                throw new IOException("boolean query result found where a tuple result was expected");
+            } else {
+                parser.skipChildren();
+            }
+        }
+        done = true;
+    }
+
+    private void readHead() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("vars".equals(field)) {
+                final List<String> vars = new ArrayList<>();
+                while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                    vars.add(parser.getText());
+                }
+                bindingNames = Collections.unmodifiableList(vars);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    @Override
+    public List<String> getBindingNames() {
+        return bindingNames;
+    }
+
+    @Override
+    protected BindingSet getNextElement() throws QueryEvaluationException {
+        if (done) {
+            return null;
+        }
+        try {
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                done = true;
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new QueryEvaluationException("invalid SPARQL JSON results: solution object expected");
+            }
+            final MapBindingSet solution = new MapBindingSet(bindingNames.size());
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                parser.nextToken();
+                solution.addBinding(name, readValue());
+            }
+            return solution;
+        } catch (IOException e) {
+            throw new QueryEvaluationException(e);
+        }
+    }
+
+    private Value readValue() throws IOException {
+        String type = null, value = null, lang = null, datatype = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("type".equals(field)) {
+                type = parser.getText();
+            } else if ("value".equals(field)) {
+                value = parser.getText();
+            } else if ("xml:lang".equals(field) || "lang".equals(field)) {
+                lang = parser.getText();
+            } else if ("datatype".equals(field)) {
+                datatype = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (type == null || value == null) {
+            throw new IOException("invalid SPARQL JSON results: binding without type or value");
+        }
+        switch (type) {
+            case "uri":
+                return valueFactory.createURI(value);
+            case "bnode":
+                return valueFactory.createBNode(value);
+            case "literal":
+            case "typed-literal":
+                if (lang != null) {
+                    return valueFactory.createLiteral(value, lang);
+                } else if (datatype != null) {
+                    return valueFactory.createLiteral(value, valueFactory.createURI(datatype));
+                } else {
+                    return valueFactory.createLiteral(value);
+                }
+            default:
+                throw new IOException("invalid SPARQL JSON results: unknown binding type " + type);
+        }
+    }
+
+    @Override
+    protected void handleClose() throws QueryEvaluationException {
+        if (done) {
+            // just the end of the document is left, so the connection can be reused
+            try {
+                parser.close();
+                connection.close();
+            } catch (IOException e) {
+                throw new QueryEvaluationException(e);
+            }
+        } else {
+            abort();
+        }
+    }
+
+    /**
+     * Closes the connection first, so the unread results are not consumed
+     */
+    private void abort() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            log.debug("error closing connection: {}", e.getMessage());
+        }
+        try {
+            parser.close();
+        } catch (IOException e) {
+            log.trace("error closing aborted stream: {}", e.getMessage());
+        }
+    }
+
+}
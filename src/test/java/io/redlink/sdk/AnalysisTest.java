@@ -15,9 +15,11 @@ package io.redlink.sdk;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import io.redlink.sdk.impl.RedLinkClient;
 import io.redlink.sdk.impl.analysis.AnalysisRequest;
 import io.redlink.sdk.impl.analysis.AnalysisRequest.AnalysisRequestBuilder;
 import io.redlink.sdk.impl.analysis.AnalysisRequest.OutputFormat;
+import io.redlink.sdk.impl.analysis.EnhancementResult;
 import io.redlink.sdk.impl.analysis.model.*;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -38,9 +40,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 public class AnalysisTest extends GenericTest {
 
@@ -225,6 +231,61 @@ public class AnalysisTest extends GenericTest {
         }
     }
 
+    /**
+     * <p>Tests the asynchronous analysis gets the same results than the synchronous one</p>
+     */
+    @Test
+    public void testEnhanceAsync() throws Exception {
+        AnalysisRequest request = AnalysisRequest.builder()
+                .setAnalysis(TEST_ANALYSIS)
+                .setContent(STANBOL_TEXT_TO_ENHANCE)
+                .setOutputFormat(OutputFormat.TURTLE).build();
+        Enhancements enhancements = redlink.enhanceAsync(request).get(RedLinkClient.REQUEST_TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertNotNull(enhancements);
+        Assert.assertFalse(enhancements.getTextAnnotations().isEmpty());
+        Assert.assertEquals(redlink.enhance(request).getEntityAnnotations().size(), enhancements.getEntityAnnotations().size());
+    }
+
+    /**
+     * <p>Tests the batch analysis returns one result per request, in the same order</p>
+     */
+    @Test
+    public void testEnhanceAll() throws Exception {
+        List<AnalysisRequest> requests = new ArrayList<>();
+        for (String content : new String[] { STANBOL_TEXT_TO_ENHANCE, PARIS_TEXT_TO_ENHANCE, DEREFERENCING_TEXT }) {
+            requests.add(AnalysisRequest.builder()
+                    .setAnalysis(TEST_ANALYSIS)
+                    .setContent(content)
+                    .setOutputFormat(OutputFormat.TURTLE).build());
+        }
+        Iterator<EnhancementResult> results = redlink.enhanceAll(requests);
+        for (int i = 0; i < requests.size(); i++) {
+            Assert.assertTrue(results.hasNext());
+            EnhancementResult result = results.next();
+            Assert.assertEquals(i, result.getIndex());
+            Assert.assertTrue(result.isSuccess());
+            Assert.assertFalse(result.getEnhancements().getTextAnnotations().isEmpty());
+        }
+        Assert.assertFalse(results.hasNext());
+    }
+
+    /**
+     * <p>Tests the chunked analysis maps the selections back to the offsets in the whole content</p>
+     */
+    @Test
+    public void testEnhanceChunked() throws Exception {
+        String content = STANBOL_TEXT_TO_ENHANCE + " " + PARIS_TEXT_TO_ENHANCE + ".";
+        AnalysisRequest request = AnalysisRequest.builder()
+                .setAnalysis(TEST_ANALYSIS)
+                .setContent(content)
+                .setOutputFormat(OutputFormat.TURTLE).build();
+        Enhancements enhancements = redlink.enhanceChunked(request, 120);
+        Assert.assertFalse(enhancements.getTextAnnotations().isEmpty());
+        for (TextAnnotation ta : enhancements.getTextAnnotations()) {
+            Assert.assertEquals(ta.getSelectedText(), content.substring(ta.getStarts(), ta.getEnds()));
+        }
+    }
+
     /**
      * <p>Tests the {@code TextAnnotation} properties</p>
      *
@@ -13,6 +13,7 @@
  */
 package io.redlink.sdk;
 
+import io.redlink.sdk.impl.RedLinkClient;
 import io.redlink.sdk.impl.Status;
 import io.redlink.sdk.impl.data.model.LDPathResult;
 
@@ -22,17 +23,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.marmotta.client.model.sparql.SPARQLResult;
 import org.junit.*;
 import org.openrdf.model.Model;
 import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
 import org.openrdf.model.impl.LinkedHashModel;
 import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.TupleQueryResult;
+import org.openrdf.query.TupleQueryResultHandlerBase;
 import org.openrdf.rio.RDFFormat;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
 import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerBase;
 
 import com.jayway.restassured.RestAssured;
 
@@ -197,6 +205,19 @@ public class DataTest extends GenericTest {
         Assert.assertEquals(size, model.size());
     }
 
+    @Test
+    public void testExportHandler() {
+        final int size = getCurrentSize(TEST_DATASET);
+        final AtomicInteger count = new AtomicInteger();
+        redlink.exportDataset(TEST_DATASET, new RDFHandlerBase() {
+            @Override
+            public void handleStatement(Statement st) {
+                count.incrementAndGet();
+            }
+        });
+        Assert.assertEquals(size, count.get());
+    }
+
     @Test
     public void testImportExport() {
         final int size = getCurrentSize(TEST_DATASET);
@@ -289,6 +310,43 @@ public class DataTest extends GenericTest {
         Assert.assertTrue(result.isEmpty());
     }
 
+    @Test
+    public void testDatasetSelectAsync() throws Exception {
+        Assume.assumeTrue(redlink.sparqlUpdateAsync(QUERY_CLEAN, TEST_DATASET).get(RedLinkClient.REQUEST_TIMEOUT, TimeUnit.SECONDS));
+        final SPARQLResult result = redlink.sparqlTupleQueryAsync(QUERY_SELECT, TEST_DATASET).get(RedLinkClient.REQUEST_TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertNotNull(result);
+        Assert.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testDatasetSelectCursor() throws Exception {
+        Assume.assumeTrue(redlink.sparqlUpdate(QUERY_CLEAN, TEST_DATASET));
+        Assert.assertTrue(redlink.sparqlUpdate(QUERY_UPDATE, TEST_DATASET));
+        final TupleQueryResult result = redlink.sparqlTupleQueryCursor(QUERY_SELECT, TEST_DATASET);
+        try {
+            Assert.assertTrue(result.getBindingNames().contains("s"));
+            Assert.assertTrue(result.hasNext());
+            Assert.assertEquals("http://example.org/test", result.next().getValue("s").stringValue());
+            Assert.assertFalse(result.hasNext());
+        } finally {
+            result.close();
+        }
+    }
+
+    @Test
+    public void testDatasetSelectHandler() {
+        Assume.assumeTrue(redlink.sparqlUpdate(QUERY_CLEAN, TEST_DATASET));
+        Assert.assertTrue(redlink.sparqlUpdate(QUERY_UPDATE, TEST_DATASET));
+        final AtomicInteger solutions = new AtomicInteger();
+        redlink.sparqlTupleQuery(QUERY_SELECT, TEST_DATASET, new TupleQueryResultHandlerBase() {
+            @Override
+            public void handleSolution(BindingSet bindingSet) {
+                solutions.incrementAndGet();
+            }
+        });
+        Assert.assertEquals(1, solutions.get());
+    }
+
     @Test
     public void testDatasetCleanImportSelect() {
         Assume.assumeTrue(redlink.sparqlUpdate(QUERY_CLEAN, TEST_DATASET));
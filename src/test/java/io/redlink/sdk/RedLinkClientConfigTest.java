@@ -0,0 +1,71 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk;
+
+import io.redlink.sdk.impl.RedLinkClient;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client configuration unit tests
+ */
+public class RedLinkClientConfigTest {
+
+    @Test
+    public void testDefaults() {
+        final RedLinkClientConfig config = RedLinkClientConfig.defaultConfig();
+        Assert.assertEquals(RedLinkClient.REQUEST_TIMEOUT * 1000, config.getSocketTimeout());
+        Assert.assertEquals(RedLinkClientConfig.DEFAULT_MAX_CONNECTIONS_TOTAL, config.getMaxConnectionsTotal());
+        Assert.assertTrue(config.getMaxConnectionsPerRoute() > 2);
+        Assert.assertTrue(config.getMaxConnectionsPerRoute() <= config.getMaxConnectionsTotal());
+    }
+
+    @Test
+    public void testBuilder() {
+        final RedLinkClientConfig.RedLinkClientConfigBuilder builder = RedLinkClientConfig.builder()
+                .setConnectTimeout(5, TimeUnit.SECONDS)
+                .setSocketTimeout(2, TimeUnit.MINUTES)
+                .setConnectionRequestTimeout(500, TimeUnit.MILLISECONDS)
+                .setMaxConnectionsPerRoute(20)
+                .setMaxConnectionsTotal(40)
+                .setKeepAlive(10, TimeUnit.SECONDS)
+                .setValidateAfterInactivity(1, TimeUnit.SECONDS)
+                .setMaxIdleTime(0, TimeUnit.SECONDS);
+        final RedLinkClientConfig config = builder.build();
+        Assert.assertEquals(5000, config.getConnectTimeout());
+        Assert.assertEquals(120000, config.getSocketTimeout());
+        Assert.assertEquals(500, config.getConnectionRequestTimeout());
+        Assert.assertEquals(20, config.getMaxConnectionsPerRoute());
+        Assert.assertEquals(40, config.getMaxConnectionsTotal());
+        Assert.assertEquals(10000, config.getKeepAlive());
+        Assert.assertEquals(1000, config.getValidateAfterInactivity());
+        Assert.assertEquals(0, config.getMaxIdleTime());
+
+        // built configurations are not affected by further changes in the builder
+        builder.setMaxConnectionsPerRoute(30);
+        Assert.assertEquals(20, config.getMaxConnectionsPerRoute());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPerRouteExceedsTotal() {
+        RedLinkClientConfig.builder()
+                .setMaxConnectionsPerRoute(200)
+                .setMaxConnectionsTotal(100)
+                .build();
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl;
+
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.Credentials;
+import io.redlink.sdk.util.UriBuilder;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Credentials of local fake services, always accessible and signing no request
+ */
+public class LocalCredentials implements Credentials {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String endpoint;
+
+    public LocalCredentials(HttpServer server) {
+        this.endpoint = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public String getVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public String getApiKey() {
+        return "test";
+    }
+
+    @Override
+    public String getDataHub() {
+        return endpoint;
+    }
+
+    @Override
+    public boolean verify() {
+        return true;
+    }
+
+    @Override
+    public Status getStatus() {
+        return new Status() {
+            @Override
+            public boolean isAccessible() {
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public URI buildUrl(UriBuilder builder) throws URISyntaxException {
+        return builder.build();
+    }
+
+}
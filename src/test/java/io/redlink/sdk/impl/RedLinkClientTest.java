@@ -0,0 +1,158 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * File uploads unit tests, run against local servers
+ */
+public class RedLinkClientTest {
+
+    private static final long FILE_SIZE = 4 * RedLinkClient.EXPECT_CONTINUE_THRESHOLD;
+
+    private static final ResponseHandler<Integer> STATUS = new ResponseHandler<Integer>() {
+        @Override
+        public Integer handleResponse(HttpResponse response) {
+            return response.getStatusLine().getStatusCode();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFileUpload() throws Exception {
+        final AtomicReference<String> contentLength = new AtomicReference<>();
+        final AtomicReference<String> contentType = new AtomicReference<>();
+        final AtomicLong received = new AtomicLong();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                contentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+                contentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+                received.set(IOUtils.skip(exchange.getRequestBody(), Long.MAX_VALUE));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        final RedLinkClient client = new RedLinkClient();
+        try {
+            final URI target = URI.create("http://localhost:" + server.getAddress().getPort() + "/dataset");
+            Assert.assertEquals(200, (int) client.putAsync(target, file(), RDFFormat.NTRIPLES, STATUS).get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(String.valueOf(FILE_SIZE), contentLength.get());
+            Assert.assertEquals(RDFFormat.NTRIPLES.getDefaultMIMEType(), contentType.get());
+            Assert.assertEquals(FILE_SIZE, received.get());
+        } finally {
+            client.close();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testRejectedBeforeUpload() throws Exception {
+        final ServerSocket server = new ServerSocket(0);
+        final AtomicReference<String> expect = new AtomicReference<>();
+        final AtomicLong received = new AtomicLong(-1);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Socket socket = server.accept();
+                    try {
+                        final InputStream in = socket.getInputStream();
+                        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, Charsets.US_ASCII), 1);
+                        String line;
+                        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                            if (line.toLowerCase().startsWith("expect:")) {
+                                expect.set(line.substring(7).trim());
+                            }
+                        }
+                        final OutputStream out = socket.getOutputStream();
+                        out.write("HTTP/1.1 403 Forbidden\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(Charsets.US_ASCII));
+                        out.flush();
+                        // whatever arrives afterwards is the body the client should not have sent
+                        socket.setSoTimeout(500);
+                        long count = 0;
+                        try {
+                            while (in.read() >= 0) {
+                                count++;
+                            }
+                        } catch (SocketTimeoutException e) {
+                            // nothing else sent
+                        }
+                        received.set(count);
+                    } finally {
+                        socket.close();
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        thread.start();
+        final RedLinkClient client = new RedLinkClient();
+        try {
+            final URI target = URI.create("http://localhost:" + server.getLocalPort() + "/dataset");
+            Assert.assertEquals(403, (int) client.postAsync(target, file(), RDFFormat.NTRIPLES, STATUS).get(10, TimeUnit.SECONDS));
+            thread.join(5000);
+            Assert.assertEquals("100-continue", expect.get());
+            Assert.assertTrue("body sent: " + received.get() + " bytes", received.get() < FILE_SIZE / 4);
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    private File file() throws IOException {
+        final File file = folder.newFile("dataset.nt");
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(FILE_SIZE);
+        } finally {
+            raf.close();
+        }
+        return file;
+    }
+
+}
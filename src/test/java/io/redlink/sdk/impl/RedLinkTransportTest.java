@@ -0,0 +1,190 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.data.RedLinkDataImpl;
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared transport unit tests
+ */
+public class RedLinkTransportTest {
+
+    @Test
+    public void testSharedTransport() {
+        final RedLinkClientConfig config = RedLinkClientConfig.builder().setMaxConnectionsTotal(77).build();
+        final int before = RedLinkTransport.getActiveTransports();
+
+        final RedLinkClient client1 = new RedLinkClient(config);
+        final RedLinkClient client2 = new RedLinkClient(RedLinkClientConfig.builder().setMaxConnectionsTotal(77).build());
+        Assert.assertEquals(before + 1, RedLinkTransport.getActiveTransports());
+
+        final RedLinkClient client3 = new RedLinkClient(RedLinkClientConfig.builder()
+                .setMaxConnectionsTotal(77)
+                .setSocketTimeout(5, TimeUnit.MINUTES)
+                .build());
+        Assert.assertEquals(before + 2, RedLinkTransport.getActiveTransports());
+
+        client1.close();
+        client1.close(); // closing twice must not release the transport twice
+        Assert.assertEquals(before + 2, RedLinkTransport.getActiveTransports());
+        client2.close();
+        Assert.assertEquals(before + 1, RedLinkTransport.getActiveTransports());
+        client3.close();
+        Assert.assertEquals(before, RedLinkTransport.getActiveTransports());
+    }
+
+    @Test
+    public void testDeserializedClientAttachesOnce() throws Exception {
+        final RedLinkClient original = new RedLinkClient(RedLinkClientConfig.builder().setMaxConnectionsTotal(79).build());
+        final byte[] serialized = SerializationUtils.serialize(original);
+        original.close();
+        final int before = RedLinkTransport.getActiveTransports();
+
+        final RedLinkClient client = (RedLinkClient) SerializationUtils.deserialize(serialized);
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<RedLinkTransport>> transports = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                transports.add(executor.submit(new Callable<RedLinkTransport>() {
+                    @Override
+                    public RedLinkTransport call() throws Exception {
+                        start.await();
+                        return client.getTransport();
+                    }
+                }));
+            }
+            start.countDown();
+            final RedLinkTransport transport = transports.get(0).get();
+            for (Future<RedLinkTransport> future : transports) {
+                Assert.assertSame(transport, future.get());
+            }
+            Assert.assertEquals(before + 1, RedLinkTransport.getActiveTransports());
+        } finally {
+            executor.shutdownNow();
+            client.close();
+        }
+        Assert.assertEquals(before, RedLinkTransport.getActiveTransports());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedClient() throws Exception {
+        final RedLinkClient client = new RedLinkClient(RedLinkClientConfig.builder().setMaxConnectionsTotal(78).build());
+        client.close();
+        client.get(new URI("http://localhost/"));
+    }
+
+    @Test
+    public void testReleasedTransport() throws Exception {
+        final RedLinkTransport transport = RedLinkTransport.acquire(RedLinkClientConfig.builder().setMaxConnectionsTotal(80).build());
+        final CloseableHttpAsyncClient asyncClient = transport.getAsyncClient();
+        Assert.assertTrue(asyncClient.isRunning());
+        transport.release();
+        Assert.assertFalse(asyncClient.isRunning());
+        try {
+            transport.getAsyncClient();
+            Assert.fail("released transport started a new async client");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // neither when the async client was never started
+        final RedLinkTransport unused = RedLinkTransport.acquire(RedLinkClientConfig.builder().setMaxConnectionsTotal(81).build());
+        unused.release();
+        try {
+            unused.getAsyncClient();
+            Assert.fail("released transport started a new async client");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStatusCheckUsesClientTransport() throws Exception {
+        final AtomicInteger checks = new AtomicInteger();
+        final AtomicInteger delay = new AtomicInteger(2000);
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                checks.incrementAndGet();
+                try {
+                    Thread.sleep(delay.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                final byte[] response = "{\"accessible\":true}".getBytes(Charsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+        try {
+            final CustomCredentials credentials = new CustomCredentials("http://localhost:" + server.getAddress().getPort() + "/");
+            final RedLinkClientConfig config = RedLinkClientConfig.builder()
+                    .setMaxConnectionsTotal(81)
+                    .setSocketTimeout(200, TimeUnit.MILLISECONDS)
+                    .build();
+            final int before = RedLinkTransport.getActiveTransports();
+            // the status is checked with the settings of the client
+            try {
+                new RedLinkDataImpl(credentials, config);
+                Assert.fail("socket timeout of the client not used for checking the status");
+            } catch (RuntimeException e) {
+                // expected
+            }
+            Assert.assertEquals(before, RedLinkTransport.getActiveTransports());
+
+            delay.set(0);
+            final RedLinkDataImpl data = new RedLinkDataImpl(credentials, config);
+            // only the transport of the client is acquired for checking the status
+            Assert.assertEquals(before + 1, RedLinkTransport.getActiveTransports());
+            Assert.assertEquals(2, checks.get());
+            data.close();
+            Assert.assertEquals(before, RedLinkTransport.getActiveTransports());
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Repeatable analysis content unit tests
+ */
+public class AnalysisContentTest {
+
+    private static final String TEXT = "Paris is the capital of France";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRepeatable() throws Exception {
+        final AnalysisContent content = AnalysisContent.of(TEXT, Charsets.UTF_8);
+        Assert.assertEquals(TEXT.length(), content.length());
+        Assert.assertEquals(TEXT, read(content.openStream()));
+        Assert.assertEquals(TEXT, read(content.openStream()));
+        Assert.assertEquals(TEXT, new String(content.toByteArray(), Charsets.UTF_8));
+    }
+
+    @Test
+    public void testByteBuffer() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put(bytes("--" + TEXT + "--"));
+        buffer.flip();
+        buffer.position(2).limit(2 + TEXT.length());
+
+        final AnalysisContent content = AnalysisContent.of(buffer);
+        Assert.assertEquals(2, buffer.position());
+        Assert.assertEquals(TEXT.length(), content.length());
+        Assert.assertEquals(TEXT, read(content.openStream()));
+        Assert.assertTrue(content.asByteBuffer().isReadOnly());
+    }
+
+    @Test
+    public void testFileRegion() throws Exception {
+        final File file = folder.newFile();
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(bytes("--" + TEXT + "--"));
+        out.close();
+
+        Assert.assertEquals("--" + TEXT + "--", read(AnalysisContent.of(file).openStream()));
+        final AnalysisContent region = AnalysisContent.of(file, 2, TEXT.length());
+        Assert.assertEquals(TEXT.length(), region.length());
+        Assert.assertEquals(TEXT, read(region.openStream()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFileRegion() throws Exception {
+        AnalysisContent.of(folder.newFile(), 0, 10);
+    }
+
+    @Test
+    public void testEntity() throws Exception {
+        final HttpEntity entity = AnalysisContent.of(ByteBuffer.wrap(bytes(TEXT)).asReadOnlyBuffer()).toEntity("text/plain");
+        Assert.assertTrue(entity.isRepeatable());
+        Assert.assertFalse(entity.isChunked());
+        Assert.assertEquals(TEXT.length(), entity.getContentLength());
+        Assert.assertEquals("text/plain", entity.getContentType().getValue());
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            Assert.assertEquals(TEXT, new String(out.toByteArray(), Charsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testReplayableRequests() throws Exception {
+        final AnalysisRequest stream = AnalysisRequest.builder()
+                .setContent(new ByteArrayInputStream(bytes(TEXT))).build();
+        Assert.assertSame(stream.getContentSource(), stream.getContentSource());
+        Assert.assertEquals(TEXT, read(stream.getContent()));
+        Assert.assertEquals(TEXT, read(stream.getContent()));
+
+        final AnalysisRequest string = AnalysisRequest.builder().setContent(TEXT, "UTF-8").build();
+        Assert.assertEquals(TEXT, read(string.getContent()));
+        Assert.assertEquals(TEXT, read(string.getContent()));
+        Assert.assertEquals(TEXT.length(), string.getContentSource().length());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testConsumedStream() {
+        final AnalysisRequest request = AnalysisRequest.builder()
+                .setContent(new ByteArrayInputStream(bytes(TEXT))).build();
+        request.getContent();
+        request.getContentSource();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(Charsets.UTF_8);
+    }
+
+    private static String read(InputStream in) throws Exception {
+        try {
+            return IOUtils.toString(in, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+}
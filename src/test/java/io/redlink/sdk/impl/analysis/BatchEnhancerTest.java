@@ -0,0 +1,191 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.redlink.sdk.RedLink;
+import io.redlink.sdk.impl.analysis.model.Enhancements;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory.ParserType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.impl.LinkedHashModel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch analysis unit tests, run against a fake analysis service
+ */
+public class BatchEnhancerTest {
+
+    private static final int REQUESTS = 20;
+
+    private ListeningScheduledExecutorService executor;
+
+    private FakeAnalysis analysis;
+
+    private List<AnalysisRequest> requests;
+
+    @Before
+    public void setUp() {
+        executor = MoreExecutors.listeningDecorator(Executors.newScheduledThreadPool(REQUESTS));
+        analysis = new FakeAnalysis();
+        requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            requests.add(AnalysisRequest.builder().setAnalysis(String.valueOf(i)).setContent("content " + i).build());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testOrderedResults() {
+        final Iterator<EnhancementResult> results = new BatchEnhancer(analysis, requests.iterator(), 4, true);
+        int expected = 0;
+        while (results.hasNext()) {
+            final EnhancementResult result = results.next();
+            Assert.assertEquals(expected, result.getIndex());
+            Assert.assertSame(requests.get(expected), result.getRequest());
+            assertOutcome(result);
+            expected++;
+        }
+        Assert.assertEquals(REQUESTS, expected);
+        Assert.assertTrue(analysis.maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void testUnorderedResults() {
+        final Iterator<EnhancementResult> results = new BatchEnhancer(analysis, requests.iterator(), REQUESTS, false);
+        final Set<Integer> indexes = new HashSet<>();
+        final List<Integer> order = new ArrayList<>();
+        while (results.hasNext()) {
+            final EnhancementResult result = results.next();
+            assertOutcome(result);
+            Assert.assertTrue(indexes.add(result.getIndex()));
+            order.add(result.getIndex());
+        }
+        Assert.assertEquals(REQUESTS, indexes.size());
+        // later requests are answered sooner by the fake service
+        Assert.assertEquals(REQUESTS - 1, order.get(0).intValue());
+    }
+
+    @Test
+    public void testBoundedParallelism() {
+        final Iterator<EnhancementResult> results = new BatchEnhancer(analysis, requests.iterator(), 3, false);
+        int count = 0;
+        while (results.hasNext()) {
+            results.next();
+            count++;
+        }
+        Assert.assertEquals(REQUESTS, count);
+        Assert.assertTrue(analysis.maxInFlight.get() <= 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        new BatchEnhancer(analysis, requests.iterator(), 0, true);
+    }
+
+    private static void assertOutcome(EnhancementResult result) {
+        if (result.getIndex() % 3 == 0) {
+            Assert.assertFalse(result.isSuccess());
+            Assert.assertNull(result.getEnhancements());
+            Assert.assertTrue(result.getError() instanceof IllegalStateException);
+        } else {
+            Assert.assertTrue(result.isSuccess());
+            Assert.assertNotNull(result.getEnhancements());
+            Assert.assertNull(result.getError());
+        }
+    }
+
+    /**
+     * Answers later requests sooner, and fails every third one
+     */
+    private class FakeAnalysis implements RedLink.Analysis {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public ListenableFuture<Enhancements> enhanceAsync(AnalysisRequest request) {
+            final int index = Integer.parseInt(request.getAnalysis());
+            final int current = inFlight.incrementAndGet();
+            while (true) {
+                final int max = maxInFlight.get();
+                if (current <= max || maxInFlight.compareAndSet(max, current)) {
+                    break;
+                }
+            }
+            return executor.schedule(new Callable<Enhancements>() {
+                @Override
+                public Enhancements call() throws Exception {
+                    inFlight.decrementAndGet();
+                    if (index % 3 == 0) {
+                        throw new IllegalStateException("analysis " + index + " failed");
+                    }
+                    return EnhancementsParserFactory.createParser(new LinkedHashModel(), ParserType.MODEL).createEnhancements();
+                }
+            }, (REQUESTS - index) * 5, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public Enhancements enhance(AnalysisRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T enhance(AnalysisRequest request, Class<T> responseType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Enhancements enhanceChunked(AnalysisRequest request, int chunkSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<EnhancementResult> enhanceAll(Iterable<AnalysisRequest> requests) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<EnhancementResult> enhanceAll(Iterable<AnalysisRequest> requests, int parallelism, boolean ordered) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
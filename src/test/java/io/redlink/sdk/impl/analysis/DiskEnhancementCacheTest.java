@@ -0,0 +1,218 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.redlink.sdk.impl.analysis.model.Enhancements;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory.ParserType;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Disk-backed enhancement cache unit tests
+ */
+public class DiskEnhancementCacheTest {
+
+    private static final String TEST_FILE = "/enhancements.ttl";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPersistence() throws Exception {
+        final File directory = folder.newFolder();
+        DiskEnhancementCache cache = DiskEnhancementCache.builder(directory).build();
+        try {
+            cache.put(key("a"), "text/turtle", bytes("first"));
+            cache.put(key("b"), null, bytes("second"));
+            cache.put(key("a"), "text/turtle", bytes("third"));
+            Assert.assertEquals("third", string(cache.get(key("a"))));
+            Assert.assertNull(cache.get(key("c")));
+        } finally {
+            cache.close();
+        }
+
+        cache = DiskEnhancementCache.builder(directory).build();
+        try {
+            Assert.assertEquals(2, cache.size());
+            final DiskEnhancementCache.Entry entry = cache.get(key("a"));
+            Assert.assertEquals("third", string(entry));
+            Assert.assertEquals("text/turtle", entry.contentType);
+            Assert.assertNull(cache.get(key("b")).contentType);
+            Assert.assertEquals(2, cache.getHitCount());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws Exception {
+        final File directory = folder.newFolder();
+        DiskEnhancementCache cache = DiskEnhancementCache.builder(directory).build();
+        cache.put(key("a"), "text/turtle", bytes("first"));
+        cache.put(key("b"), "text/turtle", bytes("second"));
+        final long size = cache.getSizeInBytes();
+        cache.close();
+
+        final RandomAccessFile file = new RandomAccessFile(new File(directory, "segment-00000000.log"), "rw");
+        try {
+            file.setLength(size - 3);
+        } finally {
+            file.close();
+        }
+
+        cache = DiskEnhancementCache.builder(directory).build();
+        try {
+            Assert.assertEquals(1, cache.size());
+            Assert.assertEquals("first", string(cache.get(key("a"))));
+            Assert.assertNull(cache.get(key("b")));
+            cache.put(key("b"), "text/turtle", bytes("again"));
+            Assert.assertEquals("again", string(cache.get(key("b"))));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        final File directory = folder.newFolder();
+        final DiskEnhancementCache cache = DiskEnhancementCache.builder(directory).setSegmentSize(256).build();
+        try {
+            for (int i = 0; i < 50; i++) {
+                cache.put(key("a"), "text/turtle", bytes("value " + i));
+                cache.put(key("b"), "text/turtle", bytes("other " + i));
+            }
+            cache.compact();
+            Assert.assertEquals(2, cache.size());
+            Assert.assertEquals("value 49", string(cache.get(key("a"))));
+            Assert.assertEquals("other 49", string(cache.get(key("b"))));
+            Assert.assertTrue(directory.listFiles().length <= 2);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testMaximumSize() throws Exception {
+        final File directory = folder.newFolder();
+        final DiskEnhancementCache cache = DiskEnhancementCache.builder(directory)
+                .setSegmentSize(512).setMaximumSize(2048).build();
+        try {
+            for (int i = 0; i < 100; i++) {
+                cache.put(key(String.valueOf(i)), "text/turtle", bytes("value " + i));
+            }
+            Assert.assertTrue(cache.getSizeInBytes() <= 2048);
+            Assert.assertTrue(cache.size() < 100);
+            Assert.assertEquals("value 99", string(cache.get(key("99"))));
+            Assert.assertNull(cache.get(key("0")));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testDiskTier() throws Exception {
+        final byte[] response;
+        final InputStream in = this.getClass().getResourceAsStream(TEST_FILE);
+        try {
+            response = IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+        final File directory = folder.newFolder();
+        final HashCode key = key("enhancements");
+
+        DiskEnhancementCache disk = DiskEnhancementCache.builder(directory).build();
+        final EnhancementCache cache = EnhancementCache.builder().setDiskCache(disk).build();
+        Assert.assertTrue(cache.isPersistent());
+        final Enhancements parsed = EnhancementsParserFactory.createParser(new LinkedHashModel(), ParserType.MODEL).createEnhancements();
+        cache.put(key, parsed, RDFFormat.TURTLE.getDefaultMIMEType(), response);
+        Assert.assertSame(parsed, cache.get(key));
+        disk.close();
+
+        // as after a restart, with an empty memory tier
+        disk = DiskEnhancementCache.builder(directory).build();
+        try {
+            final Enhancements enhancements = EnhancementCache.builder().setDiskCache(disk).build().get(key);
+            Assert.assertNotNull(enhancements);
+            Assert.assertEquals(2, enhancements.getTextAnnotations().size());
+            Assert.assertEquals(2, enhancements.getEntityAnnotations().size());
+        } finally {
+            disk.close();
+        }
+    }
+
+    @Test
+    public void testExpiredDiskTier() throws Exception {
+        final File directory = folder.newFolder();
+        final HashCode key = key("enhancements");
+        final DiskEnhancementCache disk = DiskEnhancementCache.builder(directory).build();
+        try {
+            final EnhancementCache cache = EnhancementCache.builder()
+                    .setExpireAfterWrite(100, TimeUnit.MILLISECONDS)
+                    .setDiskCache(disk)
+                    .build();
+            final Enhancements parsed = EnhancementsParserFactory.createParser(new LinkedHashModel(), ParserType.MODEL).createEnhancements();
+            cache.put(key, parsed, RDFFormat.TURTLE.getDefaultMIMEType(), bytes(""));
+            Thread.sleep(200);
+
+            // expired in memory, the response is not read again from disk even if it does not expire there
+            Assert.assertNull(cache.get(key));
+            Assert.assertNotNull(EnhancementCache.builder().setDiskCache(disk).build().get(key));
+        } finally {
+            disk.close();
+        }
+    }
+
+    @Test
+    public void testIgnoresOtherFiles() throws Exception {
+        final File directory = folder.newFolder();
+        final FileOutputStream out = new FileOutputStream(new File(directory, "README"));
+        out.write(bytes("not a segment"));
+        out.close();
+        final DiskEnhancementCache cache = DiskEnhancementCache.builder(directory).build();
+        try {
+            Assert.assertEquals(0, cache.size());
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static HashCode key(String name) {
+        return Hashing.sha256().hashString(name, Charsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(Charsets.UTF_8);
+    }
+
+    private static String string(DiskEnhancementCache.Entry entry) {
+        return new String(entry.content, Charsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import io.redlink.sdk.impl.analysis.model.EnhancementParserException;
+import io.redlink.sdk.impl.analysis.model.Enhancements;
+import io.redlink.sdk.impl.analysis.model.EntityAnnotation;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory.ParserType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+
+import java.io.InputStream;
+import java.util.Collection;
+
+/**
+ * Enhancement results cache unit tests
+ */
+public class EnhancementCacheTest {
+
+    private static final byte[] CONTENT = "Paris is the capital of France".getBytes(Charsets.UTF_8);
+
+    @Test
+    public void testKey() {
+        final HashCode key = EnhancementCache.key(request("test", 0.8), CONTENT);
+        Assert.assertEquals(256, key.bits());
+        Assert.assertEquals(key, EnhancementCache.key(request("test", 0.8), CONTENT));
+        Assert.assertNotEquals(key, EnhancementCache.key(request("test", 0.9), CONTENT));
+        Assert.assertNotEquals(key, EnhancementCache.key(request("other", 0.8), CONTENT));
+        Assert.assertNotEquals(key, EnhancementCache.key(request("test", 0.8), "Paris".getBytes(Charsets.UTF_8)));
+
+        final AnalysisRequest dereferencing = AnalysisRequest.builder().setAnalysis("test").setConfidence(0.8)
+                .addDereferencingField("rdfs:label").build();
+        Assert.assertNotEquals(key, EnhancementCache.key(dereferencing, CONTENT));
+    }
+
+    @Test
+    public void testStats() throws EnhancementParserException {
+        final EnhancementCache cache = EnhancementCache.builder().build();
+        final HashCode key = EnhancementCache.key(request("test", 0.8), CONTENT);
+        Assert.assertNull(cache.get(key));
+        final Enhancements enhancements = empty();
+        cache.put(key, enhancements);
+        Assert.assertSame(enhancements, cache.get(key));
+        Assert.assertEquals(1, cache.stats().hitCount());
+        Assert.assertEquals(1, cache.stats().missCount());
+
+        cache.invalidateAll();
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testWeightEviction() throws EnhancementParserException {
+        final EnhancementCache cache = EnhancementCache.builder().setMaximumWeight(2).build();
+        for (int i = 0; i < 10; i++) {
+            cache.put(EnhancementCache.key(request("test", 0.8), String.valueOf(i).getBytes(Charsets.UTF_8)), empty());
+        }
+        Assert.assertTrue(cache.size() <= 2);
+        Assert.assertTrue(cache.stats().evictionCount() >= 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWeight() {
+        EnhancementCache.builder().setMaximumWeight(0);
+    }
+
+    @Test
+    public void testImmutableEntries() throws Exception {
+        final Model model;
+        final InputStream in = this.getClass().getResourceAsStream("/enhancements.ttl");
+        try {
+            model = Rio.parse(in, "urn:enhancement:", RDFFormat.TURTLE);
+        } finally {
+            in.close();
+        }
+        final EnhancementCache cache = EnhancementCache.builder().build();
+        final HashCode key = EnhancementCache.key(request("test", 0.8), CONTENT);
+        cache.put(key, EnhancementsParserFactory.createParser(model, ParserType.SPARQL).createEnhancements());
+
+        // every hit shares the same instance, so none of its parts can be modified
+        final Enhancements cached = cache.get(key);
+        assertUnmodifiable(cached.getEnhancements());
+        assertUnmodifiable(cached.getTextAnnotations());
+        assertUnmodifiable(cached.getEntityAnnotations());
+        assertUnmodifiable(cached.getTopicAnnotations());
+        assertUnmodifiable(cached.getKeywordAnnotations());
+        assertUnmodifiable(cached.getEntities());
+        assertUnmodifiable(cached.getLanguages());
+        assertUnmodifiable(cached.getBestAnnotations().values());
+        final EntityAnnotation paris = cached.getEntityAnnotation("http://dbpedia.org/resource/Paris");
+        assertUnmodifiable(paris.getRelations());
+        assertUnmodifiable(paris.getEntityTypes());
+        assertUnmodifiable(paris.getEntityReference().getProperties());
+        assertUnmodifiable(paris.getEntityReference().getValues("http://www.w3.org/2000/01/rdf-schema#label"));
+        assertUnmodifiable(cached.getEntityAnnotations(cached.getTextAnnotations().iterator().next()));
+    }
+
+    private static void assertUnmodifiable(Collection<?> collection) {
+        Assert.assertFalse(collection.isEmpty());
+        try {
+            collection.clear();
+            Assert.fail("modifiable collection");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    private static AnalysisRequest request(String analysis, double confidence) {
+        return AnalysisRequest.builder().setAnalysis(analysis).setConfidence(confidence).build();
+    }
+
+    private static Enhancements empty() throws EnhancementParserException {
+        return EnhancementsParserFactory.createParser(new LinkedHashModel(), ParserType.MODEL).createEnhancements();
+    }
+
+}
@@ -0,0 +1,337 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.LocalCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import io.redlink.sdk.impl.analysis.AnalysisRequest.OutputFormat;
+import io.redlink.sdk.impl.analysis.model.Enhancements;
+import io.redlink.sdk.impl.analysis.model.TextAnnotation;
+import io.redlink.sdk.util.UriBuilder;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analysis client unit tests, run against a local fake analysis service
+ */
+public class RedLinkAnalysisImplTest {
+
+    private static final String TEST_FILE = "/enhancements.ttl";
+
+    private HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * Holds the responses until released, so concurrent requests overlap
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private byte[] response;
+
+    /**
+     * Query of the last request received
+     */
+    private volatile String query;
+
+    @Before
+    public void setUp() throws IOException {
+        final InputStream in = this.getClass().getResourceAsStream(TEST_FILE);
+        try {
+            response = IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                query = exchange.getRequestURI().getQuery();
+                IOUtils.toByteArray(exchange.getRequestBody());
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.getResponseHeaders().set("Content-Type", RDFFormat.TURTLE.getDefaultMIMEType());
+                exchange.sendResponseHeaders(200, response.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testConcurrentRequestsCoalesced() throws Exception {
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<ListenableFuture<Enhancements>> async = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                async.add(analysis.enhanceAsync(request("Paris is the capital of France")));
+            }
+            final List<Future<Enhancements>> sync = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                sync.add(executor.submit(new Callable<Enhancements>() {
+                    @Override
+                    public Enhancements call() {
+                        return analysis.enhance(request("Paris is the capital of France"));
+                    }
+                }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            final Enhancements enhancements = async.get(0).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(2, enhancements.getTextAnnotations().size());
+            for (Future<Enhancements> future : async) {
+                Assert.assertSame(enhancements, future.get(10, TimeUnit.SECONDS));
+            }
+            for (Future<Enhancements> future : sync) {
+                Assert.assertSame(enhancements, future.get(10, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, requests.get());
+
+            // once completed, the same content is analyzed again
+            Assert.assertNotSame(enhancements, analysis.enhance(request("Paris is the capital of France")));
+            Assert.assertEquals(2, requests.get());
+        } finally {
+            executor.shutdownNow();
+            analysis.close();
+        }
+    }
+
+    @Test
+    public void testCancellationNotShared() throws Exception {
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            final ListenableFuture<Enhancements> first = analysis.enhanceAsync(request("Paris is the capital of France"));
+            final ListenableFuture<Enhancements> second = analysis.enhanceAsync(request("Paris is the capital of France"));
+            first.cancel(true);
+            release.countDown();
+            Assert.assertEquals(2, second.get(10, TimeUnit.SECONDS).getTextAnnotations().size());
+            Assert.assertEquals(1, requests.get());
+        } finally {
+            analysis.close();
+        }
+    }
+
+    @Test
+    public void testErrorNotShared() throws Exception {
+        release.countDown();
+        final AtomicBoolean fail = new AtomicBoolean(true);
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server) {
+            @Override
+            public URI buildUrl(UriBuilder builder) throws URISyntaxException {
+                if (fail.get()) {
+                    throw new AssertionError("test error");
+                }
+                return super.buildUrl(builder);
+            }
+        }, RedLinkClientConfig.defaultConfig());
+        try {
+            try {
+                analysis.enhanceAsync(request("Paris is the capital of France")).get(10, TimeUnit.SECONDS);
+                Assert.fail("error not reported");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof AssertionError);
+            }
+            try {
+                analysis.enhance(request("Paris is the capital of France"));
+                Assert.fail("error not reported");
+            } catch (AssertionError e) {
+                Assert.assertEquals("test error", e.getMessage());
+            }
+
+            // the failed analyses are not in-flight anymore
+            fail.set(false);
+            Assert.assertEquals(2, analysis.enhanceAsync(request("Paris is the capital of France")).get(10, TimeUnit.SECONDS).getTextAnnotations().size());
+            Assert.assertEquals(1, requests.get());
+        } finally {
+            analysis.close();
+        }
+    }
+
+    @Test
+    public void testSerializedInFlight() throws Exception {
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        RedLinkAnalysisImpl deserialized = null;
+        try {
+            final ListenableFuture<Enhancements> pending = analysis.enhanceAsync(request("Paris is the capital of France"));
+            deserialized = (RedLinkAnalysisImpl) SerializationUtils.deserialize(SerializationUtils.serialize(analysis));
+            release.countDown();
+            Assert.assertEquals(2, pending.get(10, TimeUnit.SECONDS).getTextAnnotations().size());
+
+            // analyses in-flight are not serialized, so the deserialized client analyzes on its own
+            Assert.assertEquals(2, deserialized.enhance(request("Paris is the capital of France")).getTextAnnotations().size());
+            Assert.assertEquals(2, requests.get());
+        } finally {
+            analysis.close();
+            if (deserialized != null) {
+                deserialized.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCachedResults() throws Exception {
+        release.countDown();
+        final EnhancementCache cache = EnhancementCache.builder().build();
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(), cache);
+        try {
+            final Enhancements enhancements = analysis.enhance(request("Paris is the capital of France"));
+            Assert.assertSame(enhancements, analysis.enhance(request("Paris is the capital of France")));
+            Assert.assertSame(enhancements, analysis.enhanceAsync(request("Paris is the capital of France")).get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(1, requests.get());
+            Assert.assertEquals(2, cache.stats().hitCount());
+
+            analysis.enhance(request("London is the capital of the United Kingdom"));
+            Assert.assertEquals(2, requests.get());
+        } finally {
+            analysis.close();
+        }
+    }
+
+    @Test
+    public void testCoalescedChunks() throws Exception {
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Enhancements> merged = executor.submit(new Callable<Enhancements>() {
+                @Override
+                public Enhancements call() {
+                    return analysis.enhanceChunked(request("Paris is nice. Paris is nice. "), 15);
+                }
+            });
+            Thread.sleep(200);
+            release.countDown();
+            // both chunks share the same analysis, still placed at their own offsets
+            Assert.assertEquals(Arrays.asList(0, 15, 48, 63), starts(merged.get(10, TimeUnit.SECONDS)));
+            Assert.assertEquals(1, requests.get());
+        } finally {
+            executor.shutdownNow();
+            analysis.close();
+        }
+    }
+
+    @Test
+    public void testCachedChunks() throws Exception {
+        release.countDown();
+        final EnhancementCache cache = EnhancementCache.builder().build();
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(), cache);
+        try {
+            final Enhancements cached = analysis.enhance(request("London is big. "));
+            Assert.assertEquals(Arrays.asList(0, 48), starts(cached));
+
+            final Enhancements merged = analysis.enhanceChunked(request("Paris is nice. London is big. "), 15);
+            Assert.assertEquals(Arrays.asList(0, 15, 48, 63), starts(merged));
+            Assert.assertEquals(1, cache.stats().hitCount());
+
+            // the cached entry is not modified by the merge
+            Assert.assertEquals(Arrays.asList(0, 48), starts(cached));
+            Assert.assertSame(cached, analysis.enhance(request("London is big. ")));
+        } finally {
+            analysis.close();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableResults() throws Exception {
+        release.countDown();
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            analysis.enhance(request("Paris is the capital of France")).getLanguages().add("de");
+        } finally {
+            analysis.close();
+        }
+    }
+
+    @Test
+    public void testParsedJSONRequest() throws Exception {
+        release.countDown();
+        final RedLinkAnalysisImpl analysis = new RedLinkAnalysisImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            final AnalysisRequest request = AnalysisRequest.builder()
+                    .setAnalysis("test")
+                    .setContent("Paris is the capital of France")
+                    .setOutputFormat(OutputFormat.JSON)
+                    .setLDpathProgram("label = rdfs:label;")
+                    .addDereferencingField("rdfs:comment")
+                    .build();
+            Assert.assertEquals(2, analysis.enhance(request, Enhancements.class).getTextAnnotations().size());
+            // the rest of parameters are kept when asking for a parseable format
+            Assert.assertTrue(query, query.contains("out=RDFJSON"));
+            Assert.assertTrue(query, query.contains("enhancer.engines.dereference.ldpath=label"));
+            Assert.assertTrue(query, query.contains("enhancer.engines.dereference.fields=rdfs:comment"));
+        } finally {
+            analysis.close();
+        }
+    }
+
+    private static List<Integer> starts(Enhancements enhancements) {
+        final List<Integer> starts = new ArrayList<>();
+        for (TextAnnotation ta : enhancements.getTextAnnotations()) {
+            starts.add(ta.getStarts());
+        }
+        Collections.sort(starts);
+        return starts;
+    }
+
+    private static AnalysisRequest request(String content) {
+        return AnalysisRequest.builder()
+                .setAnalysis("test")
+                .setContent(content)
+                .setOutputFormat(OutputFormat.TURTLE).build();
+    }
+
+}
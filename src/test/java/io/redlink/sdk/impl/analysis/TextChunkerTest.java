@@ -0,0 +1,65 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis;
+
+import io.redlink.sdk.impl.analysis.TextChunker.Chunk;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Text chunking unit tests
+ */
+public class TextChunkerTest {
+
+    private static final String TEXT = "Paris is the capital of France. London is the capital of the United Kingdom. "
+            + "Berlin is the capital of Germany.\n\nRome is the capital of Italy.";
+
+    @Test
+    public void testSentenceBoundaries() {
+        final List<Chunk> chunks = TextChunker.split(TEXT, 80);
+        Assert.assertTrue(chunks.size() > 1);
+        final StringBuilder joined = new StringBuilder();
+        for (Chunk chunk : chunks) {
+            Assert.assertEquals(joined.length(), chunk.getOffset());
+            Assert.assertTrue(chunk.getText().length() <= 80);
+            Assert.assertTrue(chunk.getText().trim().endsWith("."));
+            joined.append(chunk.getText());
+        }
+        Assert.assertEquals(TEXT, joined.toString());
+        Assert.assertEquals(TEXT.indexOf("Berlin"), chunks.get(1).getOffset());
+    }
+
+    @Test
+    public void testSingleChunk() {
+        final List<Chunk> chunks = TextChunker.split(TEXT, TEXT.length());
+        Assert.assertEquals(1, chunks.size());
+        Assert.assertEquals(0, chunks.get(0).getOffset());
+        Assert.assertEquals(TEXT, chunks.get(0).getText());
+    }
+
+    @Test
+    public void testLongSentence() {
+        final List<Chunk> chunks = TextChunker.split(TEXT, 10);
+        Assert.assertEquals(4, chunks.size());
+        Assert.assertTrue(chunks.get(0).getText().startsWith("Paris is the capital of France."));
+    }
+
+    @Test
+    public void testEmptyText() {
+        Assert.assertTrue(TextChunker.split("", 10).isEmpty());
+    }
+
+}
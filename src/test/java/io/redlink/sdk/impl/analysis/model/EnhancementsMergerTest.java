@@ -0,0 +1,163 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chunked enhancements merging unit tests
+ */
+public class EnhancementsMergerTest {
+
+    private static final String PARIS = "http://dbpedia.org/resource/Paris";
+
+    @Test
+    public void testMerge() {
+        final TextAnnotation first = textAnnotation("Paris", 0, 5);
+        final EntityAnnotation firstParis = entityAnnotation(PARIS, 0.8, first);
+        final Enhancements chunk1 = enhancements(first, firstParis, keyword("capital", 1), topic("http://example.org/Geography", 0.6));
+        chunk1.addLanguage("en");
+        chunk1.setDocumentSentiment(1.0);
+
+        final TextAnnotation second = textAnnotation("Paris", 10, 15);
+        final EntityAnnotation secondParis = entityAnnotation(PARIS, 0.9, second);
+        final Enhancements chunk2 = enhancements(second, secondParis, keyword("capital", 2), topic("http://example.org/Geography", 0.7));
+        chunk2.addLanguage("en");
+        chunk2.setDocumentSentiment(0.0);
+
+        final Enhancements merged = new EnhancementsMerger().add(chunk1, 0, 100).add(chunk2, 100, 300).merge();
+
+        Assert.assertEquals(2, merged.getTextAnnotations().size());
+        final TextAnnotation shifted = find(merged.getTextAnnotations(), 110);
+        Assert.assertEquals(115, shifted.getEnds());
+        Assert.assertEquals("Paris", shifted.getSelectedText());
+        final EntityAnnotation shiftedParis = merged.getEntityAnnotations(shifted).iterator().next();
+        Assert.assertEquals(0.9, shiftedParis.getConfidence(), 0.0);
+        Assert.assertTrue(shiftedParis.getRelations().contains(shifted));
+
+        Assert.assertEquals(2, merged.getEntityAnnotations().size());
+        final EntityAnnotation firstMerged = merged.getEntityAnnotations(find(merged.getTextAnnotations(), 0)).iterator().next();
+        Assert.assertSame(firstMerged.getEntityReference(), shiftedParis.getEntityReference());
+        Assert.assertSame(firstMerged, merged.getEntityAnnotation(PARIS));
+
+        // the chunks are not modified
+        Assert.assertEquals(10, second.getStarts());
+        Assert.assertEquals(15, second.getEnds());
+        Assert.assertEquals(1, secondParis.getRelations().size());
+        Assert.assertSame(second, secondParis.getRelations().iterator().next());
+        Assert.assertNotSame(firstParis.getEntityReference(), secondParis.getEntityReference());
+        Assert.assertEquals(2, chunk2.getKeywordAnnotations().iterator().next().getCount());
+        Assert.assertEquals(0.6, chunk1.getTopicAnnotations().iterator().next().getConfidence(), 0.0);
+
+        Assert.assertEquals(1, merged.getKeywordAnnotations().size());
+        Assert.assertEquals(3, merged.getKeywordAnnotations().iterator().next().getCount());
+        Assert.assertEquals(1, merged.getTopicAnnotations().size());
+        Assert.assertEquals(0.7, merged.getTopicAnnotations().iterator().next().getConfidence(), 0.0);
+
+        Assert.assertEquals(Collections.singleton("en"), merged.getLanguages());
+        Assert.assertEquals(0.25, merged.getDocumentSentiment(), 0.0);
+    }
+
+    @Test
+    public void testIdenticalChunks() {
+        // coalesced or cached chunks share the same instance
+        final TextAnnotation paris = textAnnotation("Paris", 0, 5);
+        final Enhancements chunk = enhancements(paris, entityAnnotation(PARIS, 0.8, paris), sentiment(0, 14));
+
+        final Enhancements merged = new EnhancementsMerger().add(chunk, 0, 15).add(chunk, 15, 15).merge();
+
+        Assert.assertEquals(2, merged.getTextAnnotations().size());
+        for (int start : new int[] { 0, 15 }) {
+            final TextAnnotation ta = find(merged.getTextAnnotations(), start);
+            Assert.assertEquals(start + 5, ta.getEnds());
+            Assert.assertEquals(1, merged.getEntityAnnotations(ta).size());
+        }
+        final List<Integer> sentiments = new ArrayList<>();
+        for (SentimentAnnotation sa : merged.getSentimentAnnotations()) {
+            sentiments.add(sa.getStarts());
+        }
+        Collections.sort(sentiments);
+        Assert.assertEquals(Arrays.asList(0, 15), sentiments);
+
+        Assert.assertEquals(0, paris.getStarts());
+        Assert.assertEquals(5, paris.getEnds());
+        Assert.assertEquals(0, chunk.getSentimentAnnotations().iterator().next().getStarts());
+    }
+
+    private static TextAnnotation find(Collection<TextAnnotation> tas, int start) {
+        for (TextAnnotation ta : tas) {
+            if (ta.getStarts() == start) {
+                return ta;
+            }
+        }
+        throw new AssertionError("no text annotation starting at " + start);
+    }
+
+    private static Enhancements enhancements(Enhancement... annotations) {
+        final Enhancements enhancements = new Enhancements();
+        enhancements.setEnhancements(Arrays.asList(annotations));
+        enhancements.buildIndexes();
+        return enhancements;
+    }
+
+    private static TextAnnotation textAnnotation(String text, int start, int end) {
+        final TextAnnotation ta = new TextAnnotation();
+        ta.setSelectedText(text, "en");
+        ta.setStarts(start);
+        ta.setEnds(end);
+        ta.setConfidence(1.0);
+        return ta;
+    }
+
+    private static EntityAnnotation entityAnnotation(String uri, double confidence, TextAnnotation ta) {
+        final EntityAnnotation ea = new EntityAnnotation();
+        ea.setEntityReference(new Entity(uri, "dbpedia"));
+        ea.setConfidence(confidence);
+        ea.setRelations(Collections.<Enhancement>singleton(ta));
+        return ea;
+    }
+
+    private static SentimentAnnotation sentiment(int start, int end) {
+        final SentimentAnnotation sa = new SentimentAnnotation();
+        sa.setSentiment(0.5);
+        sa.setStarts(start);
+        sa.setEnds(end);
+        sa.setConfidence(1.0);
+        return sa;
+    }
+
+    private static KeywordAnnotation keyword(String keyword, int count) {
+        final KeywordAnnotation ka = new KeywordAnnotation();
+        ka.setKeyword(keyword, "en");
+        ka.setCount(count);
+        ka.setMetric(0.5);
+        ka.setConfidence(1.0);
+        return ka;
+    }
+
+    private static TopicAnnotation topic(String uri, double confidence) {
+        final TopicAnnotation ta = new TopicAnnotation();
+        ta.setTopicReference(new Entity(uri, "topics"));
+        ta.setConfidence(confidence);
+        return ta;
+    }
+
+}
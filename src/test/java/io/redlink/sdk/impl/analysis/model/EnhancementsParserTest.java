@@ -0,0 +1,256 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import io.redlink.sdk.impl.analysis.AnalysisRequest.OutputFormat;
+import io.redlink.sdk.impl.analysis.model.EnhancementsParserFactory.ParserType;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.util.ModelUtil;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Enhancement Structure parsers unit tests
+ */
+public class EnhancementsParserTest {
+
+    private static final String TEST_FILE = "/enhancements.ttl";
+
+    private static final String JSONLD_FILE = "/enhancements.jsonld";
+
+    private static Model model;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final InputStream in = EnhancementsParserTest.class.getResourceAsStream(TEST_FILE);
+        Assert.assertNotNull(in);
+        try {
+            model = Rio.parse(in, "urn:enhancement:", RDFFormat.TURTLE);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testModelParser() throws EnhancementParserException {
+        final Enhancements enhancements = EnhancementsParserFactory.createParser(model, ParserType.MODEL).createEnhancements();
+
+        Assert.assertEquals(Collections.singleton("en"), new TreeSet<>(enhancements.getLanguages()));
+        Assert.assertEquals(0.25, enhancements.getDocumentSentiment(), 0.0);
+        Assert.assertEquals(2, enhancements.getTextAnnotations().size());
+        Assert.assertEquals(2, enhancements.getEntityAnnotations().size());
+        Assert.assertEquals(1, enhancements.getSentimentAnnotations().size());
+        Assert.assertEquals(1, enhancements.getKeywordAnnotations().size());
+
+        final EntityAnnotation paris = enhancements.getEntityAnnotation("http://dbpedia.org/resource/Paris");
+        Assert.assertNotNull(paris);
+        Assert.assertEquals("dbpedia", paris.getDataset());
+        Assert.assertEquals(2, paris.getEntityTypes().size());
+        Assert.assertEquals("París", paris.getEntityReference().getValue("http://www.w3.org/2000/01/rdf-schema#label", "es"));
+        Assert.assertEquals(1, paris.getRelations().size());
+        Assert.assertEquals("Paris", ((TextAnnotation) paris.getRelations().iterator().next()).getSelectedText());
+
+        final TopicAnnotation topic = enhancements.getTopicAnnotations().iterator().next();
+        Assert.assertEquals("topics", topic.getOrigin());
+        Assert.assertEquals("topics", topic.getTopicReference().getDataset());
+    }
+
+    @Test
+    public void testParsersEquivalence() throws EnhancementParserException {
+        final Enhancements expected = EnhancementsParserFactory.createParser(model, ParserType.SPARQL).createEnhancements();
+        assertEquivalent(expected, EnhancementsParserFactory.createParser(model, ParserType.MODEL).createEnhancements());
+    }
+
+    @Test
+    public void testParsersEquivalenceJSONLD() throws Exception {
+        final Model parsed = new LinkedHashModel();
+        final InputStream in = this.getClass().getResourceAsStream(JSONLD_FILE);
+        try {
+            new JSONStructureReader(new StatementCollector(parsed), "urn:enhancement:").readJSONLD(in);
+        } finally {
+            in.close();
+        }
+        assertEquivalent(EnhancementsParserFactory.createParser(parsed, ParserType.SPARQL).createEnhancements(),
+                EnhancementsParserFactory.createParser(parsed, ParserType.MODEL).createEnhancements());
+    }
+
+    @Test
+    public void testDefaultResponse() throws Exception {
+        final EnhancementsParser parser = EnhancementsParserFactory.createParser(turtleResponse());
+        Assert.assertTrue(parser instanceof RDFStructureParser);
+        assertEquivalent(parser.createEnhancements(),
+                EnhancementsParserFactory.createParser(turtleResponse(), ParserType.MODEL).createEnhancements());
+    }
+
+    @Test
+    public void testModelResponse() throws Exception {
+        final Enhancements expected = EnhancementsParserFactory.createParser(model, ParserType.SPARQL).createEnhancements();
+        final EnhancementsParser parser = EnhancementsParserFactory.createParser(turtleResponse(), ParserType.MODEL);
+        Assert.assertTrue(parser instanceof RDFModelParser);
+        assertEquivalent(expected, parser.createEnhancements());
+    }
+
+    @Test
+    public void testJSONLDReader() throws Exception {
+        final Model parsed = new LinkedHashModel();
+        final InputStream in = this.getClass().getResourceAsStream(JSONLD_FILE);
+        try {
+            new JSONStructureReader(new StatementCollector(parsed), "urn:enhancement:").readJSONLD(in);
+        } finally {
+            in.close();
+        }
+        Assert.assertTrue(ModelUtil.equals(model, parsed));
+    }
+
+    @Test
+    public void testRDFJSONReader() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Rio.write(model, out, RDFFormat.RDFJSON);
+        final Model parsed = new LinkedHashModel();
+        new JSONStructureReader(new StatementCollector(parsed), "urn:enhancement:")
+                .readRDFJSON(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertTrue(ModelUtil.equals(model, parsed));
+    }
+
+    @Test
+    public void testJsonResponses() throws Exception {
+        final Enhancements expected = EnhancementsParserFactory.createParser(model, ParserType.SPARQL).createEnhancements();
+
+        final HttpResponse jsonld = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        jsonld.setEntity(new InputStreamEntity(this.getClass().getResourceAsStream(JSONLD_FILE),
+                ContentType.create(OutputFormat.JSONLD.value().toString())));
+        assertEquivalent(expected, EnhancementsParserFactory.createParser(jsonld).createEnhancements());
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Rio.write(model, out, RDFFormat.RDFJSON);
+        final HttpResponse rdfjson = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        rdfjson.setEntity(new ByteArrayEntity(out.toByteArray(), ContentType.create(OutputFormat.RDFJSON.value().toString())));
+        assertEquivalent(expected, EnhancementsParserFactory.createParser(rdfjson).createEnhancements());
+    }
+
+    private HttpResponse turtleResponse() {
+        final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+        response.setHeader("X-Redlink-Instance", "urn:enhancement:");
+        response.setEntity(new InputStreamEntity(this.getClass().getResourceAsStream(TEST_FILE),
+                ContentType.create(RDFFormat.TURTLE.getDefaultMIMEType(), "UTF-8")));
+        return response;
+    }
+
+    private static void assertEquivalent(Enhancements expected, Enhancements actual) {
+        Assert.assertEquals(new TreeSet<>(expected.getLanguages()), new TreeSet<>(actual.getLanguages()));
+        Assert.assertEquals(expected.getDocumentSentiment(), actual.getDocumentSentiment());
+        Assert.assertEquals(describe(expected.getEnhancements()), describe(actual.getEnhancements()));
+    }
+
+    private static List<String> describe(Collection<Enhancement> enhancements) {
+        final List<String> descriptions = new ArrayList<>();
+        for (Enhancement enhancement : enhancements) {
+            final StringBuilder sb = new StringBuilder(describeShort(enhancement));
+            sb.append(" confidence=").append(enhancement.getConfidence());
+            if (enhancement instanceof TextAnnotation) {
+                final TextAnnotation ta = (TextAnnotation) enhancement;
+                sb.append(" context=").append(ta.getSelectionContext())
+                        .append(" prefix=").append(ta.getSelectionPrefix())
+                        .append(" suffix=").append(ta.getSelectionSuffix())
+                        .append(" type=").append(ta.getType());
+            } else if (enhancement instanceof EntityAnnotation) {
+                final EntityAnnotation ea = (EntityAnnotation) enhancement;
+                sb.append(" dataset=").append(ea.getDataset())
+                        .append(" types=").append(new TreeSet<>(ea.getEntityTypes()))
+                        .append(" entity=").append(describe(ea.getEntityReference()));
+            } else if (enhancement instanceof TopicAnnotation) {
+                final TopicAnnotation ta = (TopicAnnotation) enhancement;
+                sb.append(" origin=").append(ta.getOrigin())
+                        .append(" entity=").append(describe(ta.getTopicReference()));
+            } else if (enhancement instanceof SentimentAnnotation) {
+                final SentimentAnnotation sa = (SentimentAnnotation) enhancement;
+                sb.append(" sentiment=").append(sa.getSentiment())
+                        .append(" start=").append(sa.getStarts())
+                        .append(" end=").append(sa.getEnds());
+            } else if (enhancement instanceof KeywordAnnotation) {
+                final KeywordAnnotation ka = (KeywordAnnotation) enhancement;
+                sb.append(" metric=").append(ka.getMetric())
+                        .append(" count=").append(ka.getCount());
+            }
+            if (enhancement.getRelations() != null) {
+                final TreeSet<String> relations = new TreeSet<>();
+                for (Enhancement relation : enhancement.getRelations()) {
+                    relations.add(describeShort(relation));
+                }
+                sb.append(" relations=").append(relations);
+            }
+            descriptions.add(sb.toString());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private static String describeShort(Enhancement enhancement) {
+        final StringBuilder sb = new StringBuilder(enhancement.getClass().getSimpleName());
+        if (enhancement instanceof TextAnnotation) {
+            final TextAnnotation ta = (TextAnnotation) enhancement;
+            sb.append('[').append(ta.getSelectedText()).append('@').append(ta.getSelectedTextLang())
+                    .append(' ').append(ta.getStarts()).append('-').append(ta.getEnds()).append(']');
+        } else if (enhancement instanceof EntityAnnotation) {
+            final EntityAnnotation ea = (EntityAnnotation) enhancement;
+            sb.append('[').append(ea.getEntityLabel()).append('@').append(ea.getEntityLabelLang()).append(']');
+        } else if (enhancement instanceof TopicAnnotation) {
+            final TopicAnnotation ta = (TopicAnnotation) enhancement;
+            sb.append('[').append(ta.getTopicLabel()).append('@').append(ta.getTopicLabelLang()).append(']');
+        } else if (enhancement instanceof KeywordAnnotation) {
+            final KeywordAnnotation ka = (KeywordAnnotation) enhancement;
+            sb.append('[').append(ka.getKeyword()).append('@').append(ka.getKeywordLang()).append(']');
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Entity entity) {
+        if (entity == null) {
+            return null;
+        }
+        final TreeSet<String> values = new TreeSet<>();
+        for (String property : entity.getProperties()) {
+            for (String value : entity.getValues(property)) {
+                values.add(property + "=" + value);
+            }
+            for (Map.Entry<String, String> value : entity.getValuesByLanguage(property).entries()) {
+                values.add(property + "=" + value.getValue() + "@" + value.getKey());
+            }
+        }
+        return entity.getUri() + " " + entity.getDataset() + " " + values;
+    }
+
+}
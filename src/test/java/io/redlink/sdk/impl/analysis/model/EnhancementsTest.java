@@ -0,0 +1,121 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.analysis.model;
+
+import com.google.common.collect.Multimap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+/**
+ * Enhancements indexed accessors unit tests
+ */
+public class EnhancementsTest {
+
+    private Enhancements enhancements;
+
+    private TextAnnotation paris, london;
+
+    private EntityAnnotation parisCity, parisHilton, parisTexas, londonCity;
+
+    @Before
+    public void setUp() {
+        paris = textAnnotation("Paris", 10, 15);
+        london = textAnnotation("London", 20, 26);
+        parisCity = entityAnnotation("http://dbpedia.org/resource/Paris", 0.9, paris);
+        parisTexas = entityAnnotation("http://dbpedia.org/resource/Paris,_Texas", 0.4, paris);
+        parisHilton = entityAnnotation("http://dbpedia.org/resource/Paris_Hilton", 0.9, paris);
+        londonCity = entityAnnotation("http://dbpedia.org/resource/London", 0.8, london);
+
+        enhancements = new Enhancements();
+        enhancements.setEnhancements(Arrays.<Enhancement>asList(paris, london, parisTexas, parisCity, londonCity, parisHilton));
+        enhancements.buildIndexes();
+    }
+
+    @Test
+    public void testEntityAnnotationsByTextAnnotation() {
+        Assert.assertEquals(Arrays.asList(parisCity, parisHilton, parisTexas), new ArrayList<>(enhancements.getEntityAnnotations(paris)));
+        Assert.assertEquals(Collections.singletonList(londonCity), new ArrayList<>(enhancements.getEntityAnnotations(london)));
+        Assert.assertTrue(enhancements.getEntityAnnotations(textAnnotation("Berlin", 30, 36)).isEmpty());
+        Assert.assertEquals(4, enhancements.getEntityAnnotationsByTextAnnotation().size());
+    }
+
+    @Test
+    public void testBestAnnotations() {
+        final Multimap<TextAnnotation, EntityAnnotation> best = enhancements.getBestAnnotations();
+        Assert.assertEquals(Arrays.asList(parisCity, parisHilton), new ArrayList<>(best.get(paris)));
+        Assert.assertEquals(Collections.singletonList(londonCity), new ArrayList<>(best.get(london)));
+        Assert.assertSame(best, enhancements.getBestAnnotations());
+    }
+
+    @Test
+    public void testEntityAnnotationByUri() {
+        Assert.assertSame(parisTexas, enhancements.getEntityAnnotation("http://dbpedia.org/resource/Paris,_Texas"));
+        try {
+            enhancements.getEntityAnnotation("http://dbpedia.org/resource/Berlin");
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDuplicatedRelations() {
+        // the SPARQL parser can parse the same relation twice
+        enhancements.addEnhancement(entityAnnotation("http://dbpedia.org/resource/London", 0.8, london));
+        Assert.assertEquals(Collections.singleton(londonCity), enhancements.getEntityAnnotations(london));
+        Assert.assertEquals(Collections.singleton(londonCity), enhancements.getBestAnnotations().get(london));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableViews() {
+        enhancements.getBestAnnotations().put(london, parisCity);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableCategories() {
+        enhancements.getCategories().clear();
+    }
+
+    @Test
+    public void testIndexesRebuiltOnChange() {
+        final EntityAnnotation londonOntario = entityAnnotation("http://dbpedia.org/resource/London,_Ontario", 0.95, london);
+        enhancements.addEnhancement(londonOntario);
+        Assert.assertEquals(Collections.singleton(londonOntario), enhancements.getBestAnnotations().get(london));
+        Assert.assertSame(londonOntario, enhancements.getEntityAnnotation("http://dbpedia.org/resource/London,_Ontario"));
+    }
+
+    private static TextAnnotation textAnnotation(String text, int start, int end) {
+        final TextAnnotation ta = new TextAnnotation();
+        ta.setSelectedText(text, "en");
+        ta.setStarts(start);
+        ta.setEnds(end);
+        ta.setConfidence(1.0);
+        return ta;
+    }
+
+    private static EntityAnnotation entityAnnotation(String uri, double confidence, TextAnnotation ta) {
+        final EntityAnnotation ea = new EntityAnnotation();
+        ea.setEntityReference(new Entity(uri, "dbpedia"));
+        ea.setConfidence(confidence);
+        ea.setRelations(Collections.<Enhancement>singleton(ta));
+        return ea;
+    }
+
+}
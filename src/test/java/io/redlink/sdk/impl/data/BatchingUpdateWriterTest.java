@@ -0,0 +1,295 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.LocalCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDFS;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batching update writer unit tests, run against a local fake SPARQL update endpoint
+ */
+public class BatchingUpdateWriterTest {
+
+    private static final String DATASET = "test";
+
+    private HttpServer server;
+
+    /**
+     * Updates applied by the endpoint
+     */
+    private final List<String> updates = new CopyOnWriteArrayList<>();
+
+    /**
+     * Number of updates rejected by the endpoint as too large
+     */
+    private volatile int rejected = 0;
+
+    /**
+     * Size (characters) of the largest update accepted by the endpoint
+     */
+    private volatile int maxUpdateSize = Integer.MAX_VALUE;
+
+    private volatile int status = 200;
+
+    private RedLinkDataImpl data;
+
+    private final Recorder recorder = new Recorder();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/1.0/data/" + DATASET + "/sparql/update", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String update = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+                if (update.length() > maxUpdateSize) {
+                    rejected++;
+                    exchange.sendResponseHeaders(413, -1);
+                } else {
+                    if (status == 200) {
+                        updates.add(update);
+                    }
+                    exchange.sendResponseHeaders(status, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+    }
+
+    @After
+    public void tearDown() {
+        data.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testBatchedByOperations() {
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().setMaxOperations(10).build());
+        final List<String> operations = operations(25);
+        for (String operation : operations) {
+            writer.add(operation);
+        }
+        Assert.assertEquals(2, updates.size());
+        writer.close();
+        Assert.assertEquals(3, updates.size());
+        Assert.assertEquals(Arrays.asList(10, 10, 5), recorder.sent);
+        Assert.assertEquals(operations, applied());
+    }
+
+    @Test
+    public void testBatchedBySize() {
+        final List<String> operations = operations(10);
+        final int size = operations.get(0).length() * 4;
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().setMaxSize(size).build());
+        for (String operation : operations) {
+            writer.add(operation);
+        }
+        writer.close();
+        Assert.assertTrue(updates.size() >= 3);
+        for (String update : updates) {
+            Assert.assertTrue(update.length() <= size);
+        }
+        Assert.assertEquals(operations, applied());
+    }
+
+    @Test
+    public void testFlushedAfterDelay() throws Exception {
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().setMaxDelay(50, TimeUnit.MILLISECONDS).build());
+        try {
+            final List<String> operations = operations(3);
+            for (String operation : operations) {
+                writer.add(operation);
+            }
+            Assert.assertTrue(updates.isEmpty());
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (updates.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, updates.size());
+            Assert.assertEquals(operations, applied());
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testSplitWhenTooLarge() {
+        final List<String> operations = operations(16);
+        maxUpdateSize = operations.get(0).length() * 3 + 10;
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().build());
+        for (String operation : operations) {
+            writer.add(operation);
+        }
+        writer.flush();
+        Assert.assertTrue(rejected > 0);
+        Assert.assertEquals(operations, applied());
+        int sent = 0;
+        for (int count : recorder.sent) {
+            sent += count;
+        }
+        Assert.assertEquals(16, sent);
+
+        // later batches are kept under the rejected size
+        rejected = 0;
+        updates.clear();
+        for (String operation : operations) {
+            writer.add(operation);
+        }
+        writer.close();
+        Assert.assertEquals(0, rejected);
+        Assert.assertEquals(operations, applied());
+    }
+
+    @Test
+    public void testFailure() {
+        status = 500;
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().build());
+        final List<String> operations = operations(5);
+        for (String operation : operations) {
+            writer.add(operation);
+        }
+        try {
+            writer.flush();
+            Assert.fail("failed update not reported");
+        } catch (RuntimeException e) {
+            Assert.assertEquals(operations, recorder.failed);
+        }
+        // the failed operations are not sent again
+        status = 200;
+        writer.close();
+        Assert.assertTrue(updates.isEmpty());
+    }
+
+    @Test
+    public void testStatements() {
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+        final Model model = new LinkedHashModel();
+        model.add(vf.createURI("http://example.org/paris"), RDFS.LABEL, vf.createLiteral("\"Paris\"", "fr"));
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().build());
+        writer.insert(model);
+        writer.delete(model);
+        writer.close();
+        Assert.assertEquals(Arrays.asList(
+                "INSERT DATA { <http://example.org/paris> <http://www.w3.org/2000/01/rdf-schema#label> \"\\\"Paris\\\"\"@fr . } ;\n"
+                        + "DELETE DATA { <http://example.org/paris> <http://www.w3.org/2000/01/rdf-schema#label> \"\\\"Paris\\\"\"@fr . }"),
+                updates);
+    }
+
+    @Test
+    public void testBlankNodesScoped() {
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+        final Model model = new LinkedHashModel();
+        model.add(vf.createBNode("b0"), RDFS.LABEL, vf.createLiteral("Paris"));
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().build());
+        writer.insert(model);
+        writer.insert(model);
+        writer.add("INSERT DATA { _:b0 <http://www.w3.org/2000/01/rdf-schema#label> \"_:b0\" }");
+        writer.close();
+        Assert.assertEquals(Arrays.asList(
+                "INSERT DATA { _:w1xb0 <http://www.w3.org/2000/01/rdf-schema#label> \"Paris\" . } ;\n"
+                        + "INSERT DATA { _:w2xb0 <http://www.w3.org/2000/01/rdf-schema#label> \"Paris\" . } ;\n"
+                        + "INSERT DATA { _:w3xb0 <http://www.w3.org/2000/01/rdf-schema#label> \"_:b0\" }"),
+                updates);
+    }
+
+    @Test
+    public void testScopeBlankNodes() {
+        Assert.assertEquals("PREFIX ex_: <http://example.org/_:a> INSERT DATA { _:sb1 ex_:p [ ex_:q _:sb2 ] ; ex_:r '''_:b3''' } # _:b4\n",
+                BatchingUpdateWriter.scopeBlankNodes(
+                        "PREFIX ex_: <http://example.org/_:a> INSERT DATA { _:b1 ex_:p [ ex_:q _:b2 ] ; ex_:r '''_:b3''' } # _:b4\n", "s"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOperation() {
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().build());
+        try {
+            writer.add("DELETE WHERE { ?s ?p ?o }");
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() {
+        final BatchingUpdateWriter writer = data.createUpdateWriter(DATASET, config().build());
+        writer.close();
+        writer.add(operations(1).get(0));
+    }
+
+    private BatchingUpdateConfig.BatchingUpdateConfigBuilder config() {
+        return BatchingUpdateConfig.builder().setMaxDelay(0, TimeUnit.MILLISECONDS).setListener(recorder);
+    }
+
+    private static List<String> operations(int count) {
+        final List<String> operations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            operations.add(String.format("PREFIX ex: <http://example.org/> INSERT DATA { ex:r%03d ex:value %d }", i, i));
+        }
+        return operations;
+    }
+
+    /**
+     * Operations applied by the endpoint, in order
+     */
+    private List<String> applied() {
+        final List<String> operations = new ArrayList<>();
+        for (String update : updates) {
+            operations.addAll(Arrays.asList(update.split(" ;\n")));
+        }
+        return operations;
+    }
+
+    private static class Recorder implements BatchingUpdateListener {
+
+        private final List<Integer> sent = new CopyOnWriteArrayList<>();
+
+        private final List<String> failed = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void batchSent(int operations, int size, long latency) {
+            Assert.assertTrue(latency >= 0);
+            sent.add(operations);
+        }
+
+        @Override
+        public void batchFailed(List<String> operations, Exception error) {
+            failed.addAll(operations);
+        }
+
+    }
+
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.LocalCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.Model;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.util.ModelUtil;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Partitioned bulk import unit tests, run against a local fake data endpoint
+ */
+public class BulkLoaderTest {
+
+    private static final String DATASET = "test";
+
+    private static final String TURTLE = "@prefix ex: <http://example.org/> .\n"
+            + "# a comment with a dot at the end.\n"
+            + "ex:a ex:label \"a . b\" ;\n"
+            + "    ex:next ex:b .\n"
+            + "PREFIX dc: <http://purl.org/dc/elements/1.1/>\n"
+            + "ex:b dc:title '''a long\n"
+            + "string ending a line with a dot.\n"
+            + "'''@en ; ex:part [\n"
+            + "    ex:label \"in a blank node.\"\n"
+            + "] .\n"
+            + "@base <http://example.org/base/> .\n"
+            + "<c> ex:list ( <d>\n"
+            + "    <e> ) .\n"
+            + "<f> ex:escaped \"quote \\\" and dot.\"; ex:empty \"\" .\n"
+            + "<g> ex:iri <http://example.org/#fragment.> .\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * Bodies of the imports applied by the endpoint
+     */
+    private final List<byte[]> imports = new CopyOnWriteArrayList<>();
+
+    /**
+     * Status answered to the imports containing a given text, only the given number of times
+     */
+    private final ConcurrentMap<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+
+    private volatile int failureStatus = 503;
+
+    /**
+     * Whether the first attempt of each import fails
+     */
+    private volatile boolean failFirstAttempts = false;
+
+    private final Set<String> attempted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private RedLinkDataImpl data;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/1.0/data/" + DATASET, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final byte[] content = IOUtils.toByteArray(exchange.getRequestBody());
+                final String text = new String(content, Charsets.UTF_8);
+                if (attempted.add(text) && failFirstAttempts) {
+                    exchange.sendResponseHeaders(failureStatus, -1);
+                    exchange.close();
+                    return;
+                }
+                for (String failing : failures.keySet()) {
+                    if (text.contains(failing) && failures.get(failing).getAndDecrement() > 0) {
+                        exchange.sendResponseHeaders(failureStatus, -1);
+                        exchange.close();
+                        return;
+                    }
+                }
+                imports.add(content);
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.start();
+        data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+    }
+
+    @After
+    public void tearDown() {
+        data.close();
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testLinePartitions() throws Exception {
+        final File file = nTriples(100);
+        final List<RDFPartitioner.Partition> partitions = RDFPartitioner.partition(file, RDFFormat.NTRIPLES, 500);
+        Assert.assertTrue(partitions.size() > 10);
+        final byte[] content = Files.toByteArray(file);
+        long position = 0;
+        int statements = 0;
+        for (RDFPartitioner.Partition partition : partitions) {
+            Assert.assertEquals(position, partition.getPosition());
+            Assert.assertTrue(partition.getLength() >= 500 || partition == partitions.get(partitions.size() - 1));
+            Assert.assertEquals('\n', content[(int) (partition.getPosition() + partition.getLength() - 1)]);
+            statements += parse(file, partition, RDFFormat.NTRIPLES).size();
+            position += partition.getLength();
+        }
+        Assert.assertEquals(file.length(), position);
+        Assert.assertEquals(100, statements);
+    }
+
+    @Test
+    public void testTurtlePartitions() throws Exception {
+        final File file = folder.newFile("data.ttl");
+        Files.write(TURTLE, file, Charsets.UTF_8);
+        final Model expected = Rio.parse(new ByteArrayInputStream(TURTLE.getBytes(Charsets.UTF_8)), "", RDFFormat.TURTLE);
+
+        // every statement in its own partition
+        final List<RDFPartitioner.Partition> partitions = RDFPartitioner.partition(file, RDFFormat.TURTLE, 1);
+        Assert.assertEquals(8, partitions.size());
+        final Model model = new LinkedHashModel();
+        for (RDFPartitioner.Partition partition : partitions) {
+            model.addAll(parse(file, partition, RDFFormat.TURTLE));
+        }
+        Assert.assertTrue(ModelUtil.equals(expected, model));
+    }
+
+    @Test
+    public void testImport() throws Exception {
+        final File file = nTriples(1000);
+        failFirstAttempts = true;
+        final Recorder recorder = new Recorder();
+        final BulkImportConfig config = BulkImportConfig.builder()
+                .setPartitionSize(file.length() / 10)
+                .setParallelism(4)
+                .setListener(recorder)
+                .build();
+        Assert.assertTrue(data.importDataset(file, DATASET, config));
+        Assert.assertEquals(1000, importedStatements());
+        Assert.assertEquals(recorder.imported.size(), imports.size());
+        Assert.assertTrue(recorder.failed.isEmpty());
+        Assert.assertEquals(imports.size(), attempted.size());
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        final File file = nTriples(100);
+        final File checkpoint = new File(folder.getRoot(), "data.checkpoint");
+        final Recorder recorder = new Recorder();
+        final BulkImportConfig config = BulkImportConfig.builder()
+                .setPartitionSize(500)
+                .setCheckpoint(checkpoint)
+                .setListener(recorder)
+                .build();
+        failureStatus = 400;
+        failures.put("/r042>", new AtomicInteger(1));
+        Assert.assertFalse(data.importDataset(file, DATASET, config));
+        Assert.assertEquals(1, recorder.failed.size());
+        Assert.assertTrue(checkpoint.isFile());
+        final int first = imports.size();
+        Assert.assertTrue(importedStatements() < 100);
+
+        // only the failed partition is sent again
+        Assert.assertTrue(data.importDataset(file, DATASET, config));
+        Assert.assertEquals(first + 1, imports.size());
+        Assert.assertEquals(100, importedStatements());
+        Assert.assertFalse(checkpoint.exists());
+    }
+
+    @Test
+    public void testStaleCheckpoint() throws Exception {
+        final File file = nTriples(50);
+        final File checkpoint = folder.newFile("data.checkpoint");
+        Files.write("other.nt 1 2 3 text/plain\n0\n1\n", checkpoint, Charsets.UTF_8);
+        final BulkImportConfig config = BulkImportConfig.builder().setPartitionSize(500).setCheckpoint(checkpoint).build();
+        Assert.assertTrue(data.importDataset(file, DATASET, config));
+        Assert.assertEquals(50, importedStatements());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotPartitionable() throws Exception {
+        final File file = folder.newFile("data.rdf");
+        data.importDataset(file, DATASET, BulkImportConfig.defaultConfig());
+    }
+
+    private File nTriples(int statements) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            builder.append(String.format("<http://example.org/r%03d> <http://example.org/value> \"%d\" .\n", i, i));
+        }
+        final File file = folder.newFile("data.nt");
+        Files.write(builder, file, Charsets.UTF_8);
+        return file;
+    }
+
+    private static Model parse(File file, RDFPartitioner.Partition partition, RDFFormat format) throws Exception {
+        return Rio.parse(new PartitionEntity(file, partition, format).getContent(), "http://example.org/", format);
+    }
+
+    private int importedStatements() throws Exception {
+        int statements = 0;
+        for (byte[] content : imports) {
+            statements += Rio.parse(new ByteArrayInputStream(content), "", RDFFormat.NTRIPLES).size();
+        }
+        return statements;
+    }
+
+    private static class Recorder implements BulkImportListener {
+
+        private final List<Integer> imported = new CopyOnWriteArrayList<>();
+
+        private final List<Integer> failed = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void partitionImported(int partition, int partitions, long bytes, long latency) {
+            Assert.assertTrue(partition < partitions);
+            Assert.assertTrue(latency >= 0);
+            imported.add(partition);
+        }
+
+        @Override
+        public void partitionFailed(int partition, int partitions, Exception error) {
+            failed.add(partition);
+        }
+
+    }
+
+}
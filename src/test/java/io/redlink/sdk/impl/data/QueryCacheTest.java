@@ -0,0 +1,252 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.LocalCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.marmotta.client.model.sparql.SPARQLResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Query cache unit tests, run against a local fake SPARQL endpoint
+ */
+public class QueryCacheTest {
+
+    private static final String DATASET = "test";
+
+    private static final String SELECT = "SELECT ?s WHERE { ?s ?p ?o }";
+
+    private static final String CONSTRUCT = "CONSTRUCT { ?s ?p ?o } WHERE { ?s ?p ?o }";
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    /**
+     * Released to let the endpoint answer
+     */
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private volatile int status = 200;
+
+    private RedLinkDataImpl data;
+
+    private QueryCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/1.0/data/" + DATASET + "/sparql", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                IOUtils.toByteArray(exchange.getRequestBody());
+                if (exchange.getRequestURI().getPath().endsWith("/update")) {
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                    return;
+                }
+                final int count = queries.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (status != 200) {
+                    exchange.sendResponseHeaders(status, -1);
+                    exchange.close();
+                    return;
+                }
+                final String accept = exchange.getRequestHeaders().getFirst("Accept");
+                final String contentType;
+                final byte[] response;
+                if (accept.startsWith(RDFFormat.TURTLE.getDefaultMIMEType())) {
+                    contentType = RDFFormat.TURTLE.getDefaultMIMEType();
+                    response = String.format("<http://example.org/r%d> <http://example.org/p> \"o\" .\n", count).getBytes(Charsets.UTF_8);
+                } else {
+                    contentType = "application/sparql-results+json";
+                    response = String.format("{\"head\":{\"vars\":[\"s\"]},\"results\":{\"bindings\":["
+                            + "{\"s\":{\"type\":\"uri\",\"value\":\"http://example.org/r%d\"}}]}}", count).getBytes(Charsets.UTF_8);
+                }
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                exchange.sendResponseHeaders(200, response.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+        cache = QueryCache.builder().build();
+        data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(),
+                RedLinkDataImpl.DEFAULT_WIRE_FORMATS, null, cache);
+    }
+
+    @After
+    public void tearDown() {
+        data.close();
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testTupleQueryCached() throws Exception {
+        final SPARQLResult result = data.sparqlTupleQuery(SELECT, DATASET);
+        Assert.assertEquals(1, result.size());
+        // changes to the returned result are not cached
+        result.clear();
+        Assert.assertEquals(1, data.sparqlTupleQuery("SELECT ?s\n  WHERE {  ?s ?p ?o }", DATASET).size());
+        Assert.assertEquals(1, data.sparqlTupleQueryAsync(SELECT, DATASET).get(10, TimeUnit.SECONDS).size());
+        Assert.assertEquals(1, queries.get());
+        Assert.assertEquals(2, cache.stats().hitCount());
+    }
+
+    @Test
+    public void testGraphQueryCached() throws Exception {
+        final Model model = data.sparqlGraphQuery(CONSTRUCT, DATASET);
+        Assert.assertEquals(1, model.size());
+        model.clear();
+        Assert.assertEquals(1, data.sparqlGraphQuery(CONSTRUCT, DATASET).size());
+        Assert.assertEquals(1, data.sparqlGraphQueryAsync(CONSTRUCT, DATASET).get(10, TimeUnit.SECONDS).size());
+        Assert.assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void testVersionedByWrites() throws Exception {
+        data.sparqlTupleQuery(SELECT, DATASET);
+        data.sparqlUpdate("INSERT DATA { <http://example.org/a> <http://example.org/p> \"o\" }", DATASET);
+        final SPARQLResult result = data.sparqlTupleQuery(SELECT, DATASET);
+        Assert.assertEquals(2, queries.get());
+        Assert.assertEquals("http://example.org/r2", result.get(0).get("s").toString());
+
+        // writes to other datasets do not affect it
+        data.cleanDataset("other");
+        data.sparqlTupleQuery(SELECT, DATASET);
+        Assert.assertEquals(2, queries.get());
+
+        data.release(DATASET);
+        data.sparqlTupleQuery(SELECT, DATASET);
+        Assert.assertEquals(3, queries.get());
+    }
+
+    @Test
+    public void testCoalesced() throws Exception {
+        release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<SPARQLResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(new Callable<SPARQLResult>() {
+                    @Override
+                    public SPARQLResult call() {
+                        return data.sparqlTupleQuery(SELECT, DATASET);
+                    }
+                }));
+            }
+            final ListenableFuture<SPARQLResult> async = data.sparqlTupleQueryAsync(SELECT, DATASET);
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<SPARQLResult> result : results) {
+                Assert.assertEquals(1, result.get(10, TimeUnit.SECONDS).size());
+            }
+            Assert.assertEquals(1, async.get(10, TimeUnit.SECONDS).size());
+            Assert.assertEquals(1, queries.get());
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    public void testSerialized() {
+        data.sparqlTupleQuery(SELECT, DATASET);
+        final RedLinkDataImpl deserialized = (RedLinkDataImpl) SerializationUtils.deserialize(SerializationUtils.serialize(data));
+        try {
+            Assert.assertNotNull(deserialized.getQueryCache());
+            Assert.assertNotSame(cache, deserialized.getQueryCache());
+            // cached results are not serialized, but the cache is kept
+            Assert.assertEquals(1, deserialized.sparqlTupleQuery(SELECT, DATASET).size());
+            Assert.assertEquals(1, deserialized.sparqlTupleQuery(SELECT, DATASET).size());
+            Assert.assertEquals(2, queries.get());
+            Assert.assertEquals(1, deserialized.getQueryCache().stats().hitCount());
+        } finally {
+            deserialized.close();
+        }
+    }
+
+    @Test
+    public void testCancellationNotShared() throws Exception {
+        release = new CountDownLatch(1);
+        final ListenableFuture<SPARQLResult> first = data.sparqlTupleQueryAsync(SELECT, DATASET);
+        final ListenableFuture<SPARQLResult> second = data.sparqlTupleQueryAsync(SELECT, DATASET);
+        final ListenableFuture<Model> graph = data.sparqlGraphQueryAsync(CONSTRUCT, DATASET);
+        final ListenableFuture<Model> other = data.sparqlGraphQueryAsync(CONSTRUCT, DATASET);
+        first.cancel(true);
+        graph.cancel(true);
+        release.countDown();
+        Assert.assertEquals(1, second.get(10, TimeUnit.SECONDS).size());
+        Assert.assertEquals(1, other.get(10, TimeUnit.SECONDS).size());
+        Assert.assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testFailureNotCached() {
+        status = 500;
+        try {
+            data.sparqlTupleQuery(SELECT, DATASET);
+            Assert.fail("failed query not reported");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        status = 200;
+        Assert.assertEquals(1, data.sparqlTupleQuery(SELECT, DATASET).size());
+        Assert.assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals("SELECT * WHERE { ?s ?p ?o }", QueryCache.normalize("  SELECT *   WHERE {\t?s ?p ?o }  "));
+        Assert.assertEquals("SELECT * # comment\nWHERE { }", QueryCache.normalize("SELECT * # comment\n  WHERE { }"));
+        Assert.assertEquals("ASK { ?s ?p \"a  b\" }", QueryCache.normalize("ASK {  ?s ?p \"a  b\" }"));
+        Assert.assertEquals("ASK { ?s ?p '''a \\''' \n b''' }", QueryCache.normalize("ASK {  ?s ?p '''a \\''' \n b'''   }"));
+        Assert.assertEquals("SELECT * WHERE { ?s a <http://example.org/ns#T>\n}", QueryCache.normalize("SELECT *\nWHERE {\n  ?s a <http://example.org/ns#T>\n}"));
+    }
+
+}
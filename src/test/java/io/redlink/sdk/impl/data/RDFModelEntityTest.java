@@ -0,0 +1,61 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * Streaming model entity unit tests
+ */
+public class RDFModelEntityTest {
+
+    private static final String TEST_FILE = "/test.rdf";
+
+    @Test
+    public void testWriteTo() throws Exception {
+        final Model model = parse(this.getClass().getResourceAsStream(TEST_FILE), RDFFormat.RDFXML);
+        for (RDFFormat format : new RDFFormat[] { RDFFormat.TURTLE, RDFFormat.NTRIPLES }) {
+            final RDFModelEntity entity = new RDFModelEntity(model, format);
+            Assert.assertTrue(entity.isChunked());
+            Assert.assertTrue(entity.isRepeatable());
+            Assert.assertEquals(-1, entity.getContentLength());
+            Assert.assertTrue(entity.getContentType().getValue().startsWith(format.getDefaultMIMEType()));
+
+            // repeatable: both serializations must produce the same model
+            for (int i = 0; i < 2; i++) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                entity.writeTo(out);
+                Assert.assertEquals(model, parse(new ByteArrayInputStream(out.toByteArray()), format));
+            }
+        }
+    }
+
+    private Model parse(InputStream in, RDFFormat format) throws Exception {
+        Assert.assertNotNull(in);
+        try {
+            return Rio.parse(in, "http://example.org/", format);
+        } finally {
+            in.close();
+        }
+    }
+
+}
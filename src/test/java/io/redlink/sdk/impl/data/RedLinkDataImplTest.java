@@ -0,0 +1,367 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.LocalCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import org.apache.commons.io.IOUtils;
+import org.apache.marmotta.client.model.rdf.Literal;
+import org.apache.marmotta.client.model.rdf.RDFNode;
+import org.apache.marmotta.client.model.rdf.URI;
+import org.apache.marmotta.client.model.sparql.SPARQLResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.apache.http.HeaderElement;
+import org.apache.http.message.BasicHeaderValueParser;
+import org.openrdf.model.Model;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.impl.MapBindingSet;
+import org.openrdf.query.impl.TupleQueryResultImpl;
+import org.openrdf.query.resultio.QueryResultIO;
+import org.openrdf.query.resultio.TupleQueryResultFormat;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.Rio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire formats negotiation unit tests, run against a local fake data endpoint
+ */
+public class RedLinkDataImplTest {
+
+    private static final String DATASET = "rdf";
+
+    private static final String QUERY = "SELECT ?s ?label WHERE { ?s rdfs:label ?label }";
+
+    private HttpServer server;
+
+    /**
+     * Accept header of each request received
+     */
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * Formats the endpoint is able to write
+     */
+    private Set<TupleQueryResultFormat> supported;
+
+    /**
+     * Content-Type of each import, or Accept header of each export, received
+     */
+    private final List<String> transfers = new CopyOnWriteArrayList<>();
+
+    /**
+     * RDF formats the endpoint is able to read and write
+     */
+    private Set<RDFFormat> supportedRDF;
+
+    /**
+     * Data stored in the dataset
+     */
+    private volatile byte[] dataset;
+
+    private volatile RDFFormat datasetFormat;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String accept = exchange.getRequestHeaders().getFirst("Accept");
+                requests.add(accept);
+                IOUtils.toByteArray(exchange.getRequestBody());
+                final TupleQueryResultFormat format = QueryResultIO.getWriterFormatForMIMEType(accept);
+                if (format == null || !supported.contains(format)) {
+                    exchange.sendResponseHeaders(406, -1);
+                    exchange.close();
+                    return;
+                }
+                final byte[] response = results(format);
+                exchange.getResponseHeaders().set("Content-Type", format.getDefaultMIMEType());
+                exchange.sendResponseHeaders(200, response.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.createContext("/1.0/data/" + DATASET, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    final String accept = exchange.getRequestHeaders().getFirst("Accept");
+                    transfers.add(accept);
+                    for (HeaderElement element : BasicHeaderValueParser.parseElements(accept, null)) {
+                        final RDFFormat format = Rio.getWriterFormatForMIMEType(element.getName());
+                        if (format != null && supportedRDF.contains(format)) {
+                            final byte[] response = convert(dataset, datasetFormat, format);
+                            exchange.getResponseHeaders().set("Content-Type", format.getDefaultMIMEType());
+                            exchange.sendResponseHeaders(200, response.length);
+                            final OutputStream out = exchange.getResponseBody();
+                            out.write(response);
+                            out.close();
+                            return;
+                        }
+                    }
+                    exchange.sendResponseHeaders(406, -1);
+                } else {
+                    final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                    transfers.add(contentType);
+                    final byte[] content = IOUtils.toByteArray(exchange.getRequestBody());
+                    final RDFFormat format = Rio.getParserFormatForMIMEType(contentType.split(";")[0]);
+                    if (format != null && supportedRDF.contains(format)) {
+                        dataset = content;
+                        datasetFormat = format;
+                        exchange.sendResponseHeaders(200, -1);
+                    } else {
+                        exchange.sendResponseHeaders(415, -1);
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testBinaryResults() throws Exception {
+        supported = set(TupleQueryResultFormat.BINARY, TupleQueryResultFormat.TSV, TupleQueryResultFormat.JSON);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            assertResults(data.sparqlTupleQuery(QUERY, "test"));
+            Assert.assertEquals(Arrays.asList(TupleQueryResultFormat.BINARY.getDefaultMIMEType()), requests);
+        } finally {
+            data.close();
+        }
+    }
+
+    @Test
+    public void testFallback() throws Exception {
+        supported = set(TupleQueryResultFormat.TSV, TupleQueryResultFormat.JSON);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            assertResults(data.sparqlTupleQuery(QUERY, "test"));
+            Assert.assertEquals(Arrays.asList(
+                    TupleQueryResultFormat.BINARY.getDefaultMIMEType(),
+                    TupleQueryResultFormat.TSV.getDefaultMIMEType()), requests);
+
+            // the refused format is not requested again
+            requests.clear();
+            assertResults(data.sparqlTupleQuery(QUERY, "test"));
+            Assert.assertEquals(Arrays.asList(TupleQueryResultFormat.TSV.getDefaultMIMEType()), requests);
+        } finally {
+            data.close();
+        }
+    }
+
+    @Test
+    public void testAsyncFallback() throws Exception {
+        supported = set(TupleQueryResultFormat.JSON);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            assertResults(data.sparqlTupleQueryAsync(QUERY, "test").get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(Arrays.asList(
+                    TupleQueryResultFormat.BINARY.getDefaultMIMEType(),
+                    TupleQueryResultFormat.TSV.getDefaultMIMEType(),
+                    TupleQueryResultFormat.JSON.getDefaultMIMEType()), requests);
+
+            requests.clear();
+            assertResults(data.sparqlTupleQueryAsync(QUERY, "test").get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(Arrays.asList(TupleQueryResultFormat.JSON.getDefaultMIMEType()), requests);
+        } finally {
+            data.close();
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testNoAcceptableFormat() throws Exception {
+        supported = set(TupleQueryResultFormat.CSV);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            data.sparqlTupleQuery(QUERY, "test");
+        } finally {
+            Assert.assertEquals(3, requests.size());
+            data.close();
+        }
+    }
+
+    @Test
+    public void testBinaryData() throws Exception {
+        supportedRDF = set(RDFFormat.BINARY, RDFFormat.NTRIPLES, RDFFormat.TURTLE);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(),
+                RedLinkDataImpl.BINARY_WIRE_FORMATS);
+        try {
+            final Model model = model();
+            Assert.assertTrue(data.importDataset(model, DATASET));
+            Assert.assertEquals(RDFFormat.BINARY, datasetFormat);
+            Assert.assertEquals(model, data.exportDataset(DATASET));
+            Assert.assertEquals(Arrays.asList(RDFFormat.BINARY.getDefaultMIMEType(),
+                    RDFFormat.BINARY.getDefaultMIMEType() + ", " + RDFFormat.NTRIPLES.getDefaultMIMEType() + ";q=0.9, "
+                            + RDFFormat.TURTLE.getDefaultMIMEType() + ";q=0.8"), transfers);
+        } finally {
+            data.close();
+        }
+    }
+
+    @Test
+    public void testDefaultWireFormat() throws Exception {
+        supportedRDF = set(RDFFormat.BINARY, RDFFormat.NTRIPLES, RDFFormat.TURTLE);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+        try {
+            final Model model = model();
+            Assert.assertTrue(data.importDataset(model, DATASET));
+            Assert.assertEquals(RDFFormat.TURTLE, datasetFormat);
+            Assert.assertEquals(model, data.exportDataset(DATASET));
+            Assert.assertEquals(Arrays.asList(RDFFormat.TURTLE.getDefaultMIMEType(),
+                    RDFFormat.TURTLE.getDefaultMIMEType()), transfers);
+        } finally {
+            data.close();
+        }
+    }
+
+    @Test
+    public void testImportFallback() throws Exception {
+        supportedRDF = set(RDFFormat.TURTLE);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(),
+                RedLinkDataImpl.BINARY_WIRE_FORMATS);
+        try {
+            final Model model = model();
+            Assert.assertTrue(data.importDataset(model, DATASET, true));
+            Assert.assertEquals(3, transfers.size());
+            Assert.assertEquals(RDFFormat.TURTLE, datasetFormat);
+
+            // the unsupported formats are not sent again
+            transfers.clear();
+            Assert.assertTrue(data.importDataset(model, DATASET));
+            Assert.assertEquals(1, transfers.size());
+            Assert.assertTrue(transfers.get(0).startsWith(RDFFormat.TURTLE.getDefaultMIMEType()));
+
+            // exports are decoded in the format chosen by the endpoint
+            Assert.assertEquals(model, data.exportDataset(DATASET));
+        } finally {
+            data.close();
+        }
+    }
+
+    @Test
+    public void testCustomWireFormats() throws Exception {
+        supportedRDF = set(RDFFormat.BINARY, RDFFormat.NTRIPLES, RDFFormat.TURTLE);
+        final RedLinkDataImpl data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(),
+                Collections.singletonList(RDFFormat.NTRIPLES));
+        try {
+            final Model model = model();
+            Assert.assertTrue(data.importDataset(model, DATASET));
+            Assert.assertEquals(RDFFormat.NTRIPLES, datasetFormat);
+            Assert.assertEquals(model, data.exportDataset(DATASET));
+            Assert.assertEquals(RDFFormat.NTRIPLES.getDefaultMIMEType(), transfers.get(1));
+        } finally {
+            data.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedWireFormat() {
+        new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(),
+                Collections.singletonList(new RDFFormat("unknown", "application/x-unknown", null, "unknown", false, false)));
+    }
+
+    private static Model model() {
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+        final Model model = new LinkedHashModel();
+        for (int i = 0; i < 10; i++) {
+            final org.openrdf.model.URI subject = vf.createURI("http://example.org/resource/r" + i);
+            model.add(subject, RDFS.LABEL, vf.createLiteral("Resource " + i, "en"));
+            model.add(subject, RDF.VALUE, vf.createLiteral(i));
+        }
+        return model;
+    }
+
+    private static byte[] convert(byte[] data, RDFFormat from, RDFFormat to) throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Rio.write(Rio.parse(new ByteArrayInputStream(data), "", from), out, to);
+            return out.toByteArray();
+        } catch (RDFParseException | RDFHandlerException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void assertResults(SPARQLResult result) {
+        Assert.assertEquals(2, result.size());
+        Assert.assertTrue(result.getFieldNames().containsAll(Arrays.asList("s", "label")));
+        final Map<String, RDFNode> first = result.get(0);
+        Assert.assertEquals("http://example.org/paris", ((URI) first.get("s")).getUri());
+        Assert.assertEquals("Paris", ((Literal) first.get("label")).getContent());
+        Assert.assertEquals("fr", ((Literal) first.get("label")).getLanguage());
+        Assert.assertEquals("http://example.org/london", ((URI) result.get(1).get("s")).getUri());
+    }
+
+    private static byte[] results(TupleQueryResultFormat format) throws IOException {
+        final ValueFactory vf = ValueFactoryImpl.getInstance();
+        final List<BindingSet> solutions = new ArrayList<>();
+        final MapBindingSet paris = new MapBindingSet();
+        paris.addBinding("s", vf.createURI("http://example.org/paris"));
+        paris.addBinding("label", vf.createLiteral("Paris", "fr"));
+        solutions.add(paris);
+        final MapBindingSet london = new MapBindingSet();
+        london.addBinding("s", vf.createURI("http://example.org/london"));
+        london.addBinding("label", vf.createLiteral("London", "en"));
+        solutions.add(london);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            QueryResultIO.write(new TupleQueryResultImpl(Arrays.asList("s", "label"), solutions), format, out);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @SafeVarargs
+    private static <T> Set<T> set(T... formats) {
+        return new HashSet<>(Arrays.asList(formats));
+    }
+
+}
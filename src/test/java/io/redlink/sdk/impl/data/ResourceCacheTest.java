@@ -0,0 +1,220 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.LocalCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.rio.RDFFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resource cache unit tests, run against a local fake data endpoint
+ */
+public class ResourceCacheTest {
+
+    private static final String DATASET = "test";
+
+    private static final String RESOURCE = "http://example.org/paris";
+
+    private static final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private HttpServer server;
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    /**
+     * Label of the resource served by the endpoint, null if it does not exist
+     */
+    private volatile String label = "Paris";
+
+    private RedLinkDataImpl data;
+
+    private ResourceCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/1.0/data/" + DATASET, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                IOUtils.toByteArray(exchange.getRequestBody());
+                if ("GET".equals(exchange.getRequestMethod()) && exchange.getRequestURI().getPath().endsWith("/resource")) {
+                    reads.incrementAndGet();
+                    if (label == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else {
+                        final byte[] response = String.format("<%s> <%s> \"%s\" .\n", RESOURCE, RDFS.LABEL, label).getBytes(Charsets.UTF_8);
+                        exchange.getResponseHeaders().set("Content-Type", RDFFormat.NTRIPLES.getDefaultMIMEType());
+                        exchange.sendResponseHeaders(200, response.length);
+                        final OutputStream out = exchange.getResponseBody();
+                        out.write(response);
+                        out.close();
+                    }
+                } else {
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        cache = ResourceCache.builder().build();
+        data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(),
+                Collections.singletonList(RDFFormat.NTRIPLES), cache);
+    }
+
+    @After
+    public void tearDown() {
+        data.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testCached() {
+        final Model model = data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(1, model.size());
+        // changes to the returned model are not cached
+        model.clear();
+        final Model cached = data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(1, cached.size());
+        Assert.assertEquals(1, reads.get());
+        Assert.assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    public void testCachedAsync() throws Exception {
+        Assert.assertEquals(1, data.getResourceAsync(RESOURCE, DATASET).get(10, TimeUnit.SECONDS).size());
+        Assert.assertEquals(1, data.getResourceAsync(RESOURCE, DATASET).get(10, TimeUnit.SECONDS).size());
+        Assert.assertEquals(1, data.getResource(RESOURCE, DATASET).size());
+        Assert.assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        data.close();
+        cache = ResourceCache.builder().setExpireMissingAfterWrite(100, TimeUnit.MILLISECONDS).build();
+        data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig(),
+                Collections.singletonList(RDFFormat.NTRIPLES), cache);
+        label = null;
+        Assert.assertTrue(data.getResource(RESOURCE, DATASET).isEmpty());
+        Assert.assertTrue(data.getResource(RESOURCE, DATASET).isEmpty());
+        Assert.assertEquals(1, reads.get());
+
+        label = "Paris";
+        Thread.sleep(150);
+        Assert.assertEquals(1, data.getResource(RESOURCE, DATASET).size());
+        Assert.assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void testSerialized() {
+        data.getResource(RESOURCE, DATASET);
+        final RedLinkDataImpl deserialized = (RedLinkDataImpl) SerializationUtils.deserialize(SerializationUtils.serialize(data));
+        try {
+            Assert.assertNotNull(deserialized.getCache());
+            Assert.assertNotSame(cache, deserialized.getCache());
+            // cached entries are not serialized, but the cache is kept
+            Assert.assertEquals(1, deserialized.getResource(RESOURCE, DATASET).size());
+            Assert.assertEquals(1, deserialized.getResource(RESOURCE, DATASET).size());
+            Assert.assertEquals(2, reads.get());
+            Assert.assertEquals(1, deserialized.getCache().stats().hitCount());
+        } finally {
+            deserialized.close();
+        }
+    }
+
+    @Test
+    public void testInvalidatedByResourceWrites() {
+        data.getResource(RESOURCE, DATASET);
+        final Model model = new LinkedHashModel();
+        model.add(vf.createURI(RESOURCE), RDFS.LABEL, vf.createLiteral("Paris", "fr"));
+        data.importResource(RESOURCE, model, DATASET);
+        data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(2, reads.get());
+
+        data.deleteResource(RESOURCE, DATASET);
+        data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(3, reads.get());
+    }
+
+    @Test
+    public void testInvalidatedByDatasetWrites() throws Exception {
+        data.getResource(RESOURCE, DATASET);
+        data.sparqlUpdate("INSERT DATA { <http://example.org/paris> <http://example.org/p> \"v\" }", DATASET);
+        data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(2, reads.get());
+
+        data.sparqlUpdateAsync("INSERT DATA { <http://example.org/paris> <http://example.org/p> \"v\" }", DATASET).get(10, TimeUnit.SECONDS);
+        data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(3, reads.get());
+
+        data.cleanDataset(DATASET);
+        data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(4, reads.get());
+
+        data.importDataset(new LinkedHashModel(), DATASET);
+        data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(5, reads.get());
+    }
+
+    @Test
+    public void testOtherDatasetsKept() {
+        data.getResource(RESOURCE, DATASET);
+        data.cleanDataset("other");
+        data.getResource(RESOURCE, DATASET);
+        Assert.assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testStaleReadNotCached() {
+        final long version = cache.version();
+        final Model model = new LinkedHashModel();
+        model.add(vf.createURI(RESOURCE), RDFS.LABEL, vf.createLiteral("Paris"));
+        // a write completes while the resource is being read
+        cache.invalidateDataset(DATASET);
+        cache.put(DATASET, RESOURCE, model, version);
+        Assert.assertNull(cache.get(DATASET, RESOURCE));
+    }
+
+    @Test
+    public void testMaximumWeight() {
+        final ResourceCache small = ResourceCache.builder().setMaximumWeight(3).build();
+        final Model model = new LinkedHashModel();
+        model.add(vf.createURI(RESOURCE), RDFS.LABEL, vf.createLiteral("Paris"));
+        small.put(DATASET, RESOURCE, model, small.version());
+        small.put(DATASET, "http://example.org/rome", model, small.version());
+        Assert.assertEquals(1, small.size());
+    }
+
+}
@@ -0,0 +1,278 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.redlink.sdk.impl.LocalCredentials;
+import io.redlink.sdk.impl.RedLinkClientConfig;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Model;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.LinkedHashModel;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statement loader unit tests, run against a local fake data endpoint
+ */
+public class StatementLoaderTest {
+
+    private static final String DATASET = "test";
+
+    private static final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * Chunks imported by the endpoint
+     */
+    private final List<Model> chunks = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    /**
+     * Released to let the endpoint answer
+     */
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private volatile int status = 200;
+
+    private RedLinkDataImpl data;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/1.0/data/" + DATASET, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final int current = concurrent.incrementAndGet();
+                try {
+                    int max;
+                    while (current > (max = maxConcurrent.get()) && !maxConcurrent.compareAndSet(max, current)) {
+                        // retry
+                    }
+                    final byte[] content = IOUtils.toByteArray(exchange.getRequestBody());
+                    final RDFFormat format = Rio.getParserFormatForMIMEType(exchange.getRequestHeaders().getFirst("Content-Type").split(";")[0]);
+                    release.await(10, TimeUnit.SECONDS);
+                    if (status == 200) {
+                        chunks.add(Rio.parse(new ByteArrayInputStream(content), "", format));
+                    }
+                    exchange.sendResponseHeaders(status, -1);
+                } catch (Exception e) {
+                    exchange.sendResponseHeaders(500, -1);
+                } finally {
+                    concurrent.decrementAndGet();
+                    exchange.close();
+                }
+            }
+        });
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.start();
+        data = new RedLinkDataImpl(new LocalCredentials(server), RedLinkClientConfig.defaultConfig());
+    }
+
+    @After
+    public void tearDown() {
+        data.close();
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testChunkedByStatements() throws Exception {
+        final Recorder recorder = new Recorder();
+        final StatementLoader loader = data.createStatementLoader(DATASET,
+                StatementLoaderConfig.builder().setMaxStatements(10).setListener(recorder).build());
+        loader.load(statements(25));
+        loader.close();
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(25, imported().size());
+        Assert.assertEquals(25, recorder.imported.get());
+    }
+
+    @Test
+    public void testChunkedBySize() throws Exception {
+        final StatementLoader loader = data.createStatementLoader(DATASET,
+                StatementLoaderConfig.builder().setMaxSize(16 * 1024).build());
+        loader.load(statements(2000));
+        loader.close();
+        Assert.assertTrue(chunks.size() > 2);
+        Assert.assertEquals(2000, imported().size());
+    }
+
+    @Test
+    public void testRDFHandler() throws Exception {
+        final StatementLoader loader = data.createStatementLoader(DATASET,
+                StatementLoaderConfig.builder().setMaxStatements(2).build());
+        final Model model = new LinkedHashModel();
+        final Iterator<Statement> statements = statements(5);
+        while (statements.hasNext()) {
+            model.add(statements.next());
+        }
+        final StringWriter turtle = new StringWriter();
+        Rio.write(model, turtle, RDFFormat.TURTLE);
+        final RDFParser parser = Rio.createParser(RDFFormat.TURTLE);
+        parser.setRDFHandler(loader);
+        parser.parse(new StringReader(turtle.toString()), "");
+        loader.close();
+        Assert.assertEquals(model, imported());
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        release = new CountDownLatch(1);
+        final StatementLoader loader = data.createStatementLoader(DATASET,
+                StatementLoaderConfig.builder().setMaxStatements(1).setMaxInFlight(2).build());
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    loader.load(statements(10));
+                } catch (RDFHandlerException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        producer.start();
+        producer.join(500);
+        // blocked on the third chunk
+        Assert.assertTrue(producer.isAlive());
+        Assert.assertTrue(chunks.isEmpty());
+        release.countDown();
+        producer.join(10000);
+        Assert.assertFalse(producer.isAlive());
+        loader.close();
+        Assert.assertEquals(10, imported().size());
+        Assert.assertTrue(maxConcurrent.get() <= 2);
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        status = 500;
+        final Recorder recorder = new Recorder();
+        final StatementLoader loader = data.createStatementLoader(DATASET,
+                StatementLoaderConfig.builder().setMaxStatements(10).setListener(recorder).build());
+        try {
+            loader.load(statements(25));
+            Assert.fail("failed import not reported");
+        } catch (RDFHandlerException e) {
+            Assert.assertTrue(recorder.failed.get() > 0);
+        }
+        loader.close();
+    }
+
+    @Test
+    public void testImportDataset() throws Exception {
+        Assert.assertTrue(data.importDataset(statements(15), DATASET));
+        Assert.assertEquals(15, imported().size());
+        status = 500;
+        Assert.assertFalse(data.importDataset(statements(15), DATASET));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() throws Exception {
+        final StatementLoader loader = data.createStatementLoader(DATASET);
+        loader.close();
+        loader.handleStatement(statements(1).next());
+    }
+
+    private Model imported() {
+        final Model model = new LinkedHashModel();
+        for (Model chunk : chunks) {
+            model.addAll(chunk);
+        }
+        return model;
+    }
+
+    /**
+     * Statements generated as they are iterated
+     */
+    private static Iterator<Statement> statements(final int count) {
+        return new Iterator<Statement>() {
+
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Statement next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int i = next++;
+                return vf.createStatement(vf.createURI("http://example.org/r" + i), RDFS.LABEL, vf.createLiteral("resource " + i, "en"));
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+    private static class Recorder implements StatementLoaderListener {
+
+        private final AtomicInteger imported = new AtomicInteger();
+
+        private final AtomicInteger failed = new AtomicInteger();
+
+        @Override
+        public void chunkImported(int statements, long bytes, long latency) {
+            Assert.assertTrue(bytes > 0);
+            imported.addAndGet(statements);
+        }
+
+        @Override
+        public void chunkFailed(int statements, Exception error) {
+            failed.addAndGet(statements);
+        }
+
+    }
+
+}
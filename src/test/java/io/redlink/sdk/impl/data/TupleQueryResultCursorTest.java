@@ -0,0 +1,164 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.redlink.sdk.impl.data;
+
+import com.google.common.base.Charsets;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.QueryEvaluationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Lazily parsed tuple query results unit tests
+ */
+public class TupleQueryResultCursorTest {
+
+    private static final String RESULTS = "{\"head\":{\"vars\":[\"s\",\"o\"]},\"results\":{\"bindings\":["
+            + "{\"s\":{\"type\":\"uri\",\"value\":\"http://example.org/paris\"},"
+            + "\"o\":{\"type\":\"literal\",\"value\":\"Paris\",\"xml:lang\":\"fr\"}},"
+            + "{\"s\":{\"type\":\"bnode\",\"value\":\"b0\"},"
+            + "\"o\":{\"type\":\"typed-literal\",\"value\":\"42\",\"datatype\":\"http://www.w3.org/2001/XMLSchema#int\"}},"
+            + "{\"s\":{\"type\":\"uri\",\"value\":\"http://example.org/london\"}}"
+            + "]}}";
+
+    @Test
+    public void testIteration() throws Exception {
+        final Connection connection = new Connection();
+        final TupleQueryResultCursor cursor = new TupleQueryResultCursor(stream(RESULTS), connection);
+        Assert.assertEquals(Arrays.asList("s", "o"), cursor.getBindingNames());
+
+        Assert.assertTrue(cursor.hasNext());
+        BindingSet solution = cursor.next();
+        Assert.assertEquals("http://example.org/paris", ((URI) solution.getValue("s")).stringValue());
+        Assert.assertEquals("fr", ((Literal) solution.getValue("o")).getLanguage());
+
+        solution = cursor.next();
+        Assert.assertEquals("b0", ((BNode) solution.getValue("s")).getID());
+        Assert.assertEquals(XMLSchema.INT, ((Literal) solution.getValue("o")).getDatatype());
+        Assert.assertEquals(42, ((Literal) solution.getValue("o")).intValue());
+
+        solution = cursor.next();
+        Assert.assertFalse(solution.hasBinding("o"));
+        Assert.assertFalse(cursor.hasNext());
+        Assert.assertTrue(connection.closed);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        final Connection connection = new Connection();
+        final TupleQueryResultCursor cursor = new TupleQueryResultCursor(
+                stream("{\"head\":{\"vars\":[\"s\"]},\"results\":{\"bindings\":[]}}"), connection);
+        Assert.assertEquals(Collections.singletonList("s"), cursor.getBindingNames());
+        Assert.assertFalse(cursor.hasNext());
+        Assert.assertTrue(connection.closed);
+    }
+
+    @Test
+    public void testEarlyClose() throws Exception {
+        final TrackedInputStream in = new TrackedInputStream(stream(RESULTS));
+        final Connection connection = new Connection(in);
+        final TupleQueryResultCursor cursor = new TupleQueryResultCursor(in, connection);
+        cursor.next();
+        cursor.close();
+        // the connection is aborted before the stream is closed, which would read the rest of it
+        Assert.assertTrue(connection.closed);
+        Assert.assertTrue(connection.closedBeforeStream);
+        Assert.assertTrue(in.closed);
+    }
+
+    @Test(expected = QueryEvaluationException.class)
+    public void testTruncated() throws Exception {
+        final TupleQueryResultCursor cursor = new TupleQueryResultCursor(
+                stream(RESULTS.substring(0, RESULTS.length() / 2)), new Connection());
+        try {
+            while (cursor.hasNext()) {
+                cursor.next();
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testBooleanResult() throws Exception {
+        new TupleQueryResultCursor(stream("{\"head\":{},\"boolean\":true}"), new Connection());
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charsets.UTF_8));
+    }
+
+    private static class Connection implements Closeable {
+
+        private final TrackedInputStream stream;
+
+        private boolean closed;
+
+        private boolean closedBeforeStream;
+
+        private Connection() {
+            this(null);
+        }
+
+        private Connection(TrackedInputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void close() {
+            closedBeforeStream = stream != null && !stream.closed;
+            closed = true;
+        }
+
+    }
+
+    private static class TrackedInputStream extends InputStream {
+
+        private final InputStream in;
+
+        private boolean closed;
+
+        private TrackedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+    }
+
+}